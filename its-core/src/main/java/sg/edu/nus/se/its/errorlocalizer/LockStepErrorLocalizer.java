@@ -0,0 +1,221 @@
+package sg.edu.nus.se.its.errorlocalizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import sg.edu.nus.se.its.alignment.StructuralMapping;
+import sg.edu.nus.se.its.alignment.VariableMapping;
+import sg.edu.nus.se.its.interpreter.Interpreter;
+import sg.edu.nus.se.its.interpreter.Trace;
+import sg.edu.nus.se.its.interpreter.TraceCursor;
+import sg.edu.nus.se.its.interpreter.TraceEntry;
+import sg.edu.nus.se.its.interpreter.TraceListener;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Error localizer that compares the submission with the reference while the submission is
+ * executed. The submitted program is streamed block by block, see
+ * {@link Interpreter#executeProgram(Program, Input, TraceListener)}, and every entry at a mapped
+ * location is compared with the next entry of the reference trace at the corresponding location.
+ * The submission is executed once per input and its entries are compared for all variable
+ * mappings at the same time. The execution stops as soon as the given number of divergences has
+ * been found for every mapping, so that a submission that goes wrong early is not executed to the
+ * end.
+ *
+ * <p>The early stop only saves work with interpreters that stream their execution, such as the
+ * subclasses of {@link sg.edu.nus.se.its.interpreter.AbstractInterpreter}. Interpreters that do
+ * not override {@link Interpreter#executeProgram(Program, Input, TraceListener)}, e.g.,
+ * Interpreter4C, run the whole submission first and only replay its trace to this localizer; the
+ * result is the same, but the submission is still executed to the end.
+ *
+ * <p>The reference trace is computed in full, since it is typically taken from a cache, see
+ * {@link sg.edu.nus.se.its.interpreter.CachingInterpreter}. The values of the mapped variables
+ * are compared after the execution of the blocks, i.e., primed values take precedence over
+ * unprimed values.
+ */
+public class LockStepErrorLocalizer implements ErrorLocalizer {
+
+  private final int maxDivergences;
+
+  /**
+   * Creates a localizer that stops at the first divergence per input and variable mapping.
+   */
+  public LockStepErrorLocalizer() {
+    this(1);
+  }
+
+  /**
+   * Creates a localizer that stops after the given number of divergences per input and variable
+   * mapping.
+   *
+   * @param maxDivergences - number of distinct error locations after which an execution stops
+   */
+  public LockStepErrorLocalizer(int maxDivergences) {
+    if (maxDivergences <= 0) {
+      throw new IllegalArgumentException(
+          String.format("Invalid number of divergences: %d", maxDivergences));
+    }
+    this.maxDivergences = maxDivergences;
+  }
+
+  @Override
+  public ErrorLocalisation localizeErrors(Program submittedProgram, Program referenceProgram,
+      List<Input> inputs, String functionName, StructuralMapping structuralMapping,
+      VariableMapping variableMapping, Interpreter interpreter) {
+    ErrorLocalisation localisation = new ErrorLocalisation();
+    List<Map<Variable, Variable>> variableMappings = variableMapping.getMappings(functionName);
+    if (variableMappings == null) {
+      return localisation;
+    }
+    if (inputs == null || inputs.isEmpty()) {
+      inputs = List.of(new Input());
+    }
+
+    Map<Integer, Integer> locationMapping = structuralMapping.getMapping(functionName);
+    if (locationMapping == null || submittedProgram.getfnc(functionName) == null
+        || referenceProgram.getfnc(functionName) == null) {
+      UnmatchedException exception = new UnmatchedException(
+          String.format("Unmatched function: %s", functionName));
+      for (Map<Variable, Variable> mapping : variableMappings) {
+        localisation.addLocation(functionName, mapping, new ErrorLocation(-1, -1, exception));
+      }
+      return localisation;
+    }
+    Map<Integer, Integer> referenceLocations = new HashMap<>();
+    for (Map.Entry<Integer, Integer> entry : locationMapping.entrySet()) {
+      referenceLocations.put(entry.getValue(), entry.getKey());
+    }
+
+    for (Input input : inputs) {
+      Trace referenceTrace = interpreter.executeProgram(referenceProgram, input);
+      List<Comparison> comparisons = new ArrayList<>(variableMappings.size());
+      for (Map<Variable, Variable> mapping : variableMappings) {
+        comparisons.add(new Comparison(functionName, referenceTrace.cursor(),
+            referenceLocations, mapping, input));
+      }
+      interpreter.executeProgram(submittedProgram, input, entry -> fanOut(comparisons, entry));
+      for (Comparison comparison : comparisons) {
+        comparison.checkRemainingEntries(locationMapping);
+        for (ErrorLocation location : comparison.errors) {
+          localisation.addLocation(functionName, comparison.mapping, location);
+        }
+      }
+    }
+    return localisation;
+  }
+
+  /**
+   * Passes the entry to every comparison that has not yet found all its divergences, and stops
+   * the execution once no comparison is left.
+   */
+  private TraceListener.Signal fanOut(List<Comparison> comparisons, TraceEntry entry) {
+    boolean running = false;
+    for (Comparison comparison : comparisons) {
+      if (!comparison.isDone() && comparison.onEntry(entry) == TraceListener.Signal.CONTINUE) {
+        running = true;
+      }
+    }
+    return running ? TraceListener.Signal.CONTINUE : TraceListener.Signal.STOP;
+  }
+
+  /**
+   * Compares the streamed entries of the submission with the reference trace for one input and
+   * variable mapping.
+   */
+  private class Comparison implements TraceListener {
+
+    private final String functionName;
+    private final TraceCursor reference;
+    private final Map<Integer, Integer> referenceLocations;
+    private final Map<Variable, Variable> mapping;
+    private final Input input;
+    private final List<ErrorLocation> errors = new ArrayList<>();
+    private final Set<List<Integer>> reported = new HashSet<>();
+
+    Comparison(String functionName, TraceCursor reference,
+        Map<Integer, Integer> referenceLocations, Map<Variable, Variable> mapping, Input input) {
+      this.functionName = functionName;
+      this.reference = reference;
+      this.referenceLocations = referenceLocations;
+      this.mapping = mapping;
+      this.input = input;
+    }
+
+    @Override
+    public Signal onEntry(TraceEntry entry) {
+      if (!functionName.equals(entry.getFunctionName())) {
+        return Signal.CONTINUE;
+      }
+      int submissionLocation = entry.getLocation();
+      Integer referenceLocation = referenceLocations.get(submissionLocation);
+      if (referenceLocation == null) {
+        return Signal.CONTINUE;
+      }
+      TraceEntry referenceEntry = reference.next(functionName, referenceLocation);
+      if (referenceEntry == null) {
+        report(new ErrorLocation(referenceLocation, submissionLocation));
+      } else {
+        List<Variable> mismatches = new ArrayList<>();
+        for (Map.Entry<Variable, Variable> variables : mapping.entrySet()) {
+          Object expected = valueAfter(referenceEntry.getMem(), variables.getKey());
+          Object actual = valueAfter(entry.getMem(), variables.getValue());
+          if (!sameValue(expected, actual)) {
+            mismatches.add(variables.getValue());
+          }
+        }
+        if (!mismatches.isEmpty()) {
+          report(new ErrorLocation(referenceLocation, submissionLocation, mismatches));
+        }
+      }
+      return isDone() ? Signal.STOP : Signal.CONTINUE;
+    }
+
+    boolean isDone() {
+      return errors.size() >= maxDivergences;
+    }
+
+    /**
+     * Reports the reference entries at mapped locations that have no counterpart in the
+     * submission.
+     */
+    void checkRemainingEntries(Map<Integer, Integer> locationMapping) {
+      for (Map.Entry<Integer, Integer> locations : locationMapping.entrySet()) {
+        if (isDone()) {
+          return;
+        }
+        if (reference.next(functionName, locations.getKey()) != null) {
+          report(new ErrorLocation(locations.getKey(), locations.getValue()));
+        }
+      }
+    }
+
+    private void report(ErrorLocation location) {
+      if (errors.size() < maxDivergences
+          && reported.add(List.of(location.getLocationInReference(),
+              location.getLocationInSubmission()))) {
+        location.setTriggeringInput(input);
+        errors.add(location);
+      }
+    }
+  }
+
+  private static Object valueAfter(Memory memory, Variable variable) {
+    String name = variable.getUnprimedName();
+    String primedName = Variable.asPrimedVariableName(name);
+    return memory.containsKey(primedName) ? memory.get(primedName) : memory.get(name);
+  }
+
+  private static boolean sameValue(Object expected, Object actual) {
+    if (expected instanceof Number && actual instanceof Number) {
+      return ((Number) expected).doubleValue() == ((Number) actual).doubleValue();
+    }
+    return Objects.equals(expected, actual);
+  }
+}
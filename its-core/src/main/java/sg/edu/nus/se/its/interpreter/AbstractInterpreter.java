@@ -0,0 +1,973 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.MemoryLayout;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.PersistentMemory;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.Variable;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Skeleton implementation of the Interpreter interface that drives the execution of a Program
+ * model block by block. Language-specific interpreters provide the semantics of constants and
+ * operations, and the initial memory for a given input.
+ *
+ * <p>The assignments of a block are evaluated in order and stored in the primed variables, i.e.,
+ * the value of {@code x := e} is stored as {@code x'}. The trace entry of the block captures the
+ * memory at this point, before the primed values become the unprimed values for the next block.
+ * The next location depends on the number of outgoing transitions: without transitions the
+ * function returns, a single transition is taken unconditionally, and otherwise the value of
+ * {@link Constants#VAR_COND} decides.
+ *
+ * <p>By default, memory objects are created as {@link SlotMemory} for the layout of the executed
+ * function, so that the variable accesses on the hot path are resolved by slot instead of by name.
+ * For long executions, {@link MemoryRepresentation#PERSISTENT} records trace entries as snapshots
+ * that share unchanged values with each other.
+ *
+ * <p>By default, blocks are executed in a compiled form, see {@link ExpressionCompiler}, which is
+ * cached per Function object and recompiled when the function or its expressions are modified,
+ * see {@link Function#getModificationStamp()} and {@link Expression#getModificationStamp()}. A
+ * program that is executed on many inputs can be compiled as a whole with
+ * {@link #compile(Program)}, which links the compiled blocks of every function into an array and
+ * reflects the program at the time of the call.
+ *
+ * <p>Every execution runs under an {@link ExecutionBudget}, which limits the executed blocks, the
+ * wall-clock time, the trace entries and the size of the values in memory. The limits and a
+ * {@link CancellationToken} are checked at block boundaries. The methods of the Interpreter
+ * interface report an exhausted budget as RuntimeException, whereas
+ * {@link #execute(Program, Input, ExecutionBudget, CancellationToken)} returns it as part of an
+ * {@link ExecutionResult} together with the partial trace.
+ *
+ * <p>To verify repairs efficiently, {@link #executeWithCheckpoints(Program, Input)} records the
+ * memory of the entry function at the first visit of each location, and
+ * {@link #resume(CheckpointedExecution, Program, Collection)} re-executes a patched program only
+ * from the first visit of the earliest patched location. Resuming assumes that the state of an
+ * execution is contained in the memory of the entry function, which holds for interpreters that
+ * keep, e.g., the input stream in a variable.
+ */
+public abstract class AbstractInterpreter implements Interpreter {
+
+  /**
+   * Operands on which the default {@link #resolveOperator} compares the interpreter with the
+   * {@link NumericOperator}s, covering every numeric type, the promotions between them, negative
+   * operands and overflows.
+   */
+  private static final Object[][] PROBE_OPERANDS = {
+      {7, -2}, {-7, 2}, {0, 3}, {Integer.MAX_VALUE, 1}, {7L, -2L}, {Long.MAX_VALUE, 1L},
+      {7.5, -2.0}, {0.0, 0.5}, {'a', 1}, {'a', 'b'}, {3, 2L}, {3, 0.5}, {2L, 0.5}};
+
+  /**
+   * Marks an operation, by name and arity, that the default resolveOperator does not bind.
+   */
+  private static final Operator UNBOUND = new Operator() {};
+
+  private final String entryFunctionName;
+
+  private ExecutionBudget budget =
+      ExecutionBudget.ofTimeout(Constants.DEFAULT_TIMEOUT_INTERPRETATION);
+
+  private MemoryRepresentation memoryRepresentation = MemoryRepresentation.SLOT;
+
+  private int traceCheckpointInterval = 0;
+
+  private boolean compileExpressions = true;
+
+  /**
+   * Compiled functions, weakly keyed by the identity of the Function object.
+   */
+  private final Map<Function, CompiledFunction> compiledFunctions =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * State of the program execution running on the current thread.
+   */
+  private final ThreadLocal<Execution> currentExecution = new ThreadLocal<>();
+
+  /**
+   * Operators bound by the default {@link #resolveOperator}, by operation name and arity.
+   */
+  private final Map<String, Operator> boundOperators = new ConcurrentHashMap<>();
+
+  protected AbstractInterpreter() {
+    this(Constants.DEFAULT_ENTRY_FUNCTION_NAME);
+  }
+
+  protected AbstractInterpreter(String entryFunctionName) {
+    this.entryFunctionName = entryFunctionName;
+  }
+
+  public String getEntryFunctionName() {
+    return entryFunctionName;
+  }
+
+  /**
+   * Initializes the memory of the entry function with the given input, e.g., the input stream and
+   * the function arguments.
+   *
+   * @param function -- entry function of the program
+   * @param input -- program's input
+   * @param memory -- empty memory created for the entry function
+   */
+  protected abstract void initializeMemory(Function function, Input input, Memory memory);
+
+  /**
+   * Creates an empty memory for the execution of the given function.
+   *
+   * @param function -- Function object
+   * @return empty Memory object
+   */
+  protected Memory createMemory(Function function) {
+    switch (memoryRepresentation) {
+      case PERSISTENT:
+        return new PersistentMemory();
+      case SLOT:
+      default:
+        return new SlotMemory(function.getMemoryLayout());
+    }
+  }
+
+  public MemoryRepresentation getMemoryRepresentation() {
+    return memoryRepresentation;
+  }
+
+  public void setMemoryRepresentation(MemoryRepresentation memoryRepresentation) {
+    this.memoryRepresentation = memoryRepresentation;
+  }
+
+  /**
+   * Creates the trace for a new program execution.
+   *
+   * @return empty Trace object
+   */
+  protected Trace createTrace() {
+    if (traceCheckpointInterval > 0) {
+      return new CompactTrace(traceCheckpointInterval);
+    }
+    return new Trace();
+  }
+
+  public int getTraceCheckpointInterval() {
+    return traceCheckpointInterval;
+  }
+
+  /**
+   * Sets the storage mode of the produced traces: 0 records the complete memory for every trace
+   * entry, a positive value records a {@link CompactTrace} with the given checkpoint interval.
+   *
+   * @param traceCheckpointInterval -- number of entries between two complete memories, or 0
+   */
+  public void setTraceCheckpointInterval(int traceCheckpointInterval) {
+    this.traceCheckpointInterval = traceCheckpointInterval;
+  }
+
+  public boolean isCompileExpressions() {
+    return compileExpressions;
+  }
+
+  /**
+   * Enables or disables the cached compiled execution of blocks, which is enabled by default. The
+   * compiled blocks are reused until the function, the list of assignments of the block or an
+   * expression is modified. If disabled, every expression is evaluated by
+   * {@link #execute(Executable, Memory)}.
+   *
+   * @param compileExpressions -- whether blocks are executed in their compiled form
+   */
+  public void setCompileExpressions(boolean compileExpressions) {
+    this.compileExpressions = compileExpressions;
+  }
+
+  /**
+   * Resolves the implementation of an operator when an expression is compiled; without an
+   * operator, every evaluation of the operation is delegated to {@link #executeOperation}. The
+   * default implementation binds the {@link NumericOperator} of the operation, which also enables
+   * the unboxed evaluation, if {@link #executeOperation} returns the same values for a set of
+   * probe operands of every numeric type. The probe runs once per operation name and arity, so
+   * that, e.g., comparisons of an interpreter that returns Boolean values stay unbound.
+   * Interpreters can override this method to bind operators without probing, or none at all.
+   *
+   * @param operation -- Operation object, whose opcode identifies the operator
+   * @return Operator object or null
+   */
+  protected Operator resolveOperator(Operation operation) {
+    NumericOperator operator = NumericOperator.resolve(operation);
+    if (operator == null) {
+      return null;
+    }
+    int arity = operation.getArgs().size();
+    String key = operation.getName() + "/" + arity;
+    Operator bound = boundOperators.get(key);
+    if (bound == null) {
+      bound = agreesWith(operator, operation.getName(), arity) ? operator : UNBOUND;
+      boundOperators.putIfAbsent(key, bound);
+    }
+    return bound == UNBOUND ? null : bound;
+  }
+
+  /**
+   * Returns whether {@link #executeOperation} computes the same values as the given operator on
+   * all probe operands that the operator handles.
+   */
+  private boolean agreesWith(NumericOperator operator, String name, int arity) {
+    Variable left = new Variable("$left");
+    Variable right = new Variable("$right");
+    Operation probe = new Operation(name, arity == 1 ? List.of(left) : List.of(left, right), 0);
+    Memory memory = new Memory();
+    for (Object[] operands : PROBE_OPERANDS) {
+      Object expected = arity == 1 ? operator.apply(operands[0])
+          : operator.apply(operands[0], operands[1]);
+      if (expected == Operator.NOT_APPLICABLE) {
+        continue;
+      }
+      memory.put(left.getName(), operands[0]);
+      memory.put(right.getName(), operands[1]);
+      try {
+        if (!expected.equals(executeOperation(probe, memory))) {
+          return false;
+        }
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the compiled form of the block at the given location, compiling it if necessary.
+   *
+   * @param function -- Function object
+   * @param loc -- location of the block
+   * @return CompiledBlock object
+   */
+  protected CompiledBlock getCompiledBlock(Function function, int loc) {
+    CompiledFunction compiled = compiledFunctions.get(function);
+    if (compiled == null || !compiled.isValidFor(function)) {
+      compiled = new CompiledFunction(this, function);
+      compiledFunctions.put(function, compiled);
+    }
+    return compiled.getBlock(function, loc);
+  }
+
+  /**
+   * Returns the program that is executed on the current thread, e.g., to resolve function calls.
+   *
+   * @return Program object or null if there is no running execution
+   */
+  protected Program getExecutedProgram() {
+    Execution execution = currentExecution.get();
+    return execution == null ? null : execution.program;
+  }
+
+  @Override
+  public Trace executeProgram(Program program) {
+    return executeProgram(program, new Input());
+  }
+
+  @Override
+  public Trace executeProgram(Program program, Input input) {
+    Trace trace = createTrace();
+    completed(run(program, null, input, trace, budget, null));
+    return trace;
+  }
+
+  /**
+   * Executes the program and passes every trace entry to the listener without recording a trace.
+   * The execution stops as soon as the listener returns {@link TraceListener.Signal#STOP}.
+   */
+  @Override
+  public boolean executeProgram(Program program, Input input, TraceListener listener) {
+    return completed(run(program, null, input, listener, budget, null));
+  }
+
+  /**
+   * Executes the program under the given budget. An exhausted budget or a cancellation ends the
+   * execution at the next block boundary and is reported by the status of the result, which also
+   * contains the trace up to this point.
+   *
+   * @param program -- Program object
+   * @param input -- program's input
+   * @param budget -- limits of the execution
+   * @param token -- token to cancel the execution, can be null
+   * @return ExecutionResult object
+   */
+  public ExecutionResult execute(Program program, Input input, ExecutionBudget budget,
+      CancellationToken token) {
+    Trace trace = createTrace();
+    return withTrace(run(program, null, input, trace, budget, token), trace);
+  }
+
+  /**
+   * Executes the program under the given budget and passes every trace entry to the listener
+   * without recording a trace.
+   *
+   * @param program -- Program object
+   * @param input -- program's input
+   * @param budget -- limits of the execution
+   * @param token -- token to cancel the execution, can be null
+   * @param listener -- consumer of the trace entries, which can stop the execution
+   * @return ExecutionResult object without trace
+   */
+  public ExecutionResult execute(Program program, Input input, ExecutionBudget budget,
+      CancellationToken token, TraceListener listener) {
+    return run(program, null, input, listener, budget, token);
+  }
+
+  /**
+   * Executes the program and records a checkpoint of the memory at the first visit of every
+   * location of the entry function.
+   *
+   * @param program -- Program object, which must not be modified afterwards
+   * @param input -- program's input
+   * @return CheckpointedExecution object, whose trace is the trace of the program
+   */
+  public CheckpointedExecution executeWithCheckpoints(Program program, Input input) {
+    Function function = getEntryFunction(program);
+    Memory memory = createMemory(function);
+    initializeMemory(function, input, memory);
+    Trace trace = createTrace();
+    Execution execution = new Execution(program, null, trace, budget, null);
+    execution.checkpoints = new HashMap<>();
+    ExecutionResult result = run(execution, function, memory, function.getInitloc());
+    completed(result);
+    return new CheckpointedExecution(program, input, withTrace(result, trace),
+        execution.checkpoints);
+  }
+
+  /**
+   * Executes a patched copy of the program of the given execution, e.g., after applying a
+   * {@link sg.edu.nus.se.its.repair.LocalRepair}, on the same input. The patched program is
+   * executed from the checkpoint of the earliest visited patched location; the trace entries
+   * before this point are shared with the given execution. If no patched location was visited,
+   * the execution is unchanged and its trace is reused.
+   *
+   * <p>Checkpoints are only recorded for the entry function. A patch of any other function may
+   * change the result of every call, so the patched program is then executed from the start.
+   *
+   * @param execution -- checkpointed execution of the original program
+   * @param patched -- copy of the program that differs only in the blocks at the patched
+   *     locations
+   * @param patchedLocations -- pairs of function name and location whose blocks were changed
+   * @return CheckpointedExecution object of the patched program
+   */
+  public CheckpointedExecution resume(CheckpointedExecution execution, Program patched,
+      Collection<Pair<String, Integer>> patchedLocations) {
+    int location = 0;
+    CheckpointedExecution.Checkpoint start = null;
+    for (Pair<String, Integer> patchedLocation : patchedLocations) {
+      if (!entryFunctionName.equals(patchedLocation.getValue0())) {
+        return executeWithCheckpoints(patched, execution.getInput());
+      }
+      CheckpointedExecution.Checkpoint checkpoint =
+          execution.getCheckpoint(patchedLocation.getValue1());
+      if (checkpoint != null && (start == null || checkpoint.entries < start.entries)) {
+        start = checkpoint;
+        location = patchedLocation.getValue1();
+      }
+    }
+    if (start == null) {
+      return new CheckpointedExecution(patched, execution.getInput(), execution.getResult(),
+          execution.getCheckpoints());
+    }
+
+    Function function = getEntryFunction(patched);
+    Memory memory = createMemory(function);
+    for (Map.Entry<String, Object> variable : start.memory.entrySet()) {
+      memory.put(variable.getKey(), variable.getValue());
+    }
+    Trace trace = createTrace();
+    int index = 0;
+    for (TraceEntry entry : execution.getTrace()) {
+      if (index++ == start.entries) {
+        break;
+      }
+      trace.add(entry);
+    }
+    Execution resumed = new Execution(patched, null, trace, budget, null);
+    resumed.checkpoints = new HashMap<>();
+    for (Map.Entry<Integer, CheckpointedExecution.Checkpoint> checkpoint : execution
+        .getCheckpoints().entrySet()) {
+      if (checkpoint.getValue().entries < start.entries) {
+        resumed.checkpoints.put(checkpoint.getKey(), checkpoint.getValue());
+      }
+    }
+    resumed.steps = start.steps;
+    resumed.entries = start.entries;
+    ExecutionResult result = run(resumed, function, memory, location);
+    completed(result);
+    return new CheckpointedExecution(patched, execution.getInput(), withTrace(result, trace),
+        resumed.checkpoints);
+  }
+
+  /**
+   * Executes the program on every given input in parallel. The program is compiled once for this
+   * call and the compiled form is shared by all executions.
+   */
+  @Override
+  public List<Trace> executeProgram(Program program, List<Input> inputs, Executor executor) {
+    CompiledProgram compiled = compile(program);
+    return BatchExecution.run(inputs, executor, compiled::execute);
+  }
+
+  /**
+   * Executes the program on every given input in parallel under the given budget.
+   *
+   * @param program -- Program object, which is not modified by the executions
+   * @param inputs -- program's inputs
+   * @param budget -- limits of each execution
+   * @param executor -- executor for the executions
+   * @return results in the order of the inputs
+   */
+  public List<ExecutionResult> execute(Program program, List<Input> inputs,
+      ExecutionBudget budget, Executor executor) {
+    CompiledProgram compiled = compile(program);
+    return BatchExecution.run(inputs, executor, input -> compiled.execute(input, budget, null));
+  }
+
+  /**
+   * Compiles the program for repeated execution with this interpreter. The blocks are compiled
+   * anew, independent of {@link #setCompileExpressions(boolean)}.
+   *
+   * @param program -- Program object
+   * @return CompiledProgram object
+   */
+  public CompiledProgram compile(Program program) {
+    return new CompiledProgram(this, program);
+  }
+
+  boolean executeCompiled(CompiledProgram compiled, Input input, TraceListener listener) {
+    return completed(run(compiled.getProgram(), compiled, input, listener, budget, null));
+  }
+
+  ExecutionResult executeCompiled(CompiledProgram compiled, Input input, ExecutionBudget budget,
+      CancellationToken token) {
+    Trace trace = createTrace();
+    return withTrace(run(compiled.getProgram(), compiled, input, trace, budget, token), trace);
+  }
+
+  /**
+   * Returns whether the execution ran to completion, and throws a RuntimeException if it
+   * exhausted its budget.
+   */
+  private static boolean completed(ExecutionResult result) {
+    if (result.isBudgetExhausted() || result.getStatus() == ExecutionResult.Status.CANCELLED) {
+      throw new RuntimeException(result.getMessage());
+    }
+    return result.isCompleted();
+  }
+
+  private static ExecutionResult withTrace(ExecutionResult result, Trace trace) {
+    return new ExecutionResult(result.getStatus(), trace, result.getSteps(), result.getElapsed(),
+        result.getMessage());
+  }
+
+  /**
+   * Runs the entry function of the program under the given budget.
+   */
+  private ExecutionResult run(Program program, CompiledProgram compiled, Input input,
+      TraceListener listener, ExecutionBudget budget, CancellationToken token) {
+    Function function = getEntryFunction(program);
+    Memory memory = createMemory(function);
+    initializeMemory(function, input, memory);
+    return run(new Execution(program, compiled, listener, budget, token), function, memory,
+        function.getInitloc());
+  }
+
+  /**
+   * Runs the entry function from the given location.
+   */
+  private ExecutionResult run(Execution execution, Function function, Memory memory,
+      int location) {
+    Execution outerExecution = currentExecution.get();
+    currentExecution.set(execution);
+    try {
+      if (execution.compiled != null) {
+        runFunction(execution, function, memory);
+      } else {
+        runBlocks(execution, function, memory, location);
+      }
+      return execution.result(ExecutionResult.Status.COMPLETED, null);
+    } catch (ExecutionStopped e) {
+      if (e.execution != execution) {
+        throw e;
+      }
+      return execution.result(e.status, e.getMessage());
+    } finally {
+      restoreExecution(outerExecution);
+    }
+  }
+
+  private Function getEntryFunction(Program program) {
+    Function function = program.getfnc(entryFunctionName);
+    if (function == null) {
+      throw new RuntimeException(String.format("Unknown function: %s", entryFunctionName));
+    }
+    return function;
+  }
+
+  @Override
+  public Object execute(Executable executable, Memory memory) {
+    return executable.execute(memory, this);
+  }
+
+  /**
+   * Executes the function on the given memory and records its blocks in the trace of the running
+   * execution. If there is no running execution, e.g., if the function is executed directly, the
+   * blocks are recorded in a new trace.
+   *
+   * @return the memory after the execution of the function
+   */
+  @Override
+  public Object executeFunction(Function function, Memory memory) {
+    if (memory == null) {
+      memory = createMemory(function);
+    }
+    Execution execution = currentExecution.get();
+    if (execution != null) {
+      return runFunction(execution, function, memory);
+    }
+    execution = new Execution(null, null, createTrace(), budget, null);
+    currentExecution.set(execution);
+    try {
+      return runFunction(execution, function, memory);
+    } catch (ExecutionStopped e) {
+      throw new RuntimeException(e.getMessage());
+    } finally {
+      restoreExecution(null);
+    }
+  }
+
+  private Memory runFunction(Execution execution, Function function, Memory memory) {
+    if (execution.compiled != null) {
+      LinkedFunction linked = execution.compiled.getLinkedFunction(function);
+      if (linked != null) {
+        return runLinkedFunction(execution, linked, memory);
+      }
+    }
+    return runBlocks(execution, function, memory, function.getInitloc());
+  }
+
+  private Memory runBlocks(Execution execution, Function function, Memory memory,
+      int location) {
+    Object frame = new Object();
+    execution.depth++;
+    try {
+      while (true) {
+        if (execution.checkpoints != null && execution.depth == 1) {
+          execution.checkpoint(location, memory);
+        }
+        execution.step();
+        TraceEntry entry = executeBlock(function, memory, location);
+        entry.setFrame(frame);
+        execution.record(entry);
+        Integer nextLocation = nextLocation(function, location, memory);
+        if (nextLocation == null) {
+          return memory;
+        }
+        location = nextLocation;
+      }
+    } finally {
+      execution.depth--;
+    }
+  }
+
+  private Memory runLinkedFunction(Execution execution, LinkedFunction function, Memory memory) {
+    int index = function.getEntry();
+    Object frame = new Object();
+    execution.depth++;
+    try {
+      while (index != LinkedFunction.RETURN) {
+        execution.step();
+        TraceEntry entry = function.getBlock(index).execute(memory);
+        entry.setFrame(frame);
+        execution.record(entry);
+        index = function.next(index, memory, this);
+      }
+      return memory;
+    } finally {
+      execution.depth--;
+    }
+  }
+
+  private void restoreExecution(Execution outerExecution) {
+    if (outerExecution == null) {
+      currentExecution.remove();
+    } else {
+      currentExecution.set(outerExecution);
+    }
+  }
+
+  /**
+   * Determines the location that is executed after the given location.
+   *
+   * @param function -- the executed function
+   * @param location -- the executed location
+   * @param memory -- the memory after the execution of the location
+   * @return next location or null if the function returns
+   */
+  protected Integer nextLocation(Function function, int location, Memory memory) {
+    int transitions = function.getTransCount(location);
+    if (transitions == 0) {
+      return null;
+    }
+    if (transitions == 1) {
+      Integer nextLocation = function.getTrans(location, true);
+      return nextLocation != null ? nextLocation : function.getTrans(location, false);
+    }
+    return function.getTrans(location, isTrue(memory.get(Constants.VAR_COND)));
+  }
+
+  /**
+   * Returns the truth value of the given value, following the C semantics for numbers.
+   */
+  protected boolean isTrue(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    if (value instanceof Character) {
+      return (Character) value != 0;
+    }
+    return false;
+  }
+
+  @Override
+  public Object executeVariable(Variable variable, Memory memory) {
+    if (memory instanceof SlotMemory) {
+      SlotMemory slotMemory = (SlotMemory) memory;
+      int slot = slotMemory.getLayout().slotOf(variable);
+      if (slot >= 0) {
+        if (slotMemory.hasValue(slot)) {
+          return slotMemory.getValue(slot);
+        }
+        int unprimedSlot = MemoryLayout.unprimedSlotOf(slot);
+        if (slot != unprimedSlot && slotMemory.hasValue(unprimedSlot)) {
+          return slotMemory.getValue(unprimedSlot);
+        }
+        return Constants.UNDEFINED;
+      }
+    }
+    String name = variable.getName();
+    if (memory.containsKey(name)) {
+      return memory.get(name);
+    }
+    if (variable.isPrimed() && memory.containsKey(variable.getUnprimedName())) {
+      return memory.get(variable.getUnprimedName());
+    }
+    return Constants.UNDEFINED;
+  }
+
+  @Override
+  public TraceEntry executeBlock(Function function, Memory memory, int loc) {
+    if (memory == null) {
+      memory = createMemory(function);
+    }
+    if (compileExpressions) {
+      return getCompiledBlock(function, loc).execute(memory);
+    }
+    return executeAssignments(function, loc, assignmentsAt(function, loc), memory);
+  }
+
+  @Override
+  public TraceEntry executeBlock(Function function, List<Pair<String, Expression>> block,
+      Memory memory) {
+    if (memory == null) {
+      memory = createMemory(function);
+    }
+    return executeAssignments(function, locationOf(function, block), block, memory);
+  }
+
+  /**
+   * Returns the assignments of the given location. A location that only has transitions, e.g., an
+   * empty block of a parsed model, is executed as a block without assignments.
+   */
+  static List<Pair<String, Expression>> assignmentsAt(Function function, int loc) {
+    if (!function.locExist(loc) && function.getLoctrans().containsKey(loc)) {
+      return Collections.emptyList();
+    }
+    return function.getExprs(loc);
+  }
+
+  /**
+   * Looks up the location of the given block, or 0 if the block does not belong to the function.
+   */
+  private static int locationOf(Function function, List<Pair<String, Expression>> block) {
+    for (Map.Entry<Integer, ? extends List<Pair<String, Expression>>> entry : function
+        .getLocexprs().entrySet()) {
+      if (entry.getValue() == block) {
+        return entry.getKey();
+      }
+    }
+    return 0;
+  }
+
+  private static String[] assignedVariables(List<Pair<String, Expression>> block) {
+    String[] variables = new String[block.size()];
+    for (int i = 0; i < variables.length; i++) {
+      variables[i] = block.get(i).getValue0();
+    }
+    return variables;
+  }
+
+  private TraceEntry executeAssignments(Function function, int loc,
+      List<Pair<String, Expression>> block, Memory memory) {
+    if (memory instanceof SlotMemory) {
+      return executeAssignments(function, loc, block, (SlotMemory) memory);
+    }
+    for (Pair<String, Expression> assignment : block) {
+      Object value = execute(assignment.getValue1(), memory);
+      memory.put(Variable.asPrimedVariableName(assignment.getValue0()), value);
+    }
+    TraceEntry entry = new TraceEntry(function.getName(), loc, memory.snapshot());
+    entry.setAssignedVariables(assignedVariables(block));
+    for (Pair<String, Expression> assignment : block) {
+      String primedName = Variable.asPrimedVariableName(assignment.getValue0());
+      if (memory.containsKey(primedName)) {
+        memory.put(assignment.getValue0(), memory.remove(primedName));
+      }
+    }
+    return entry;
+  }
+
+  private TraceEntry executeAssignments(Function function, int loc,
+      List<Pair<String, Expression>> block, SlotMemory memory) {
+    MemoryLayout layout = memory.getLayout();
+    int[] slots = new int[block.size()];
+    for (int i = 0; i < slots.length; i++) {
+      Pair<String, Expression> assignment = block.get(i);
+      Object value = execute(assignment.getValue1(), memory);
+      int slot = layout.slotOf(assignment.getValue0());
+      slots[i] = slot;
+      if (slot >= 0) {
+        memory.storeValue(MemoryLayout.primedSlotOf(slot), value);
+      } else {
+        memory.put(Variable.asPrimedVariableName(assignment.getValue0()), value);
+      }
+    }
+    TraceEntry entry = new TraceEntry(function.getName(), loc, memory.snapshot());
+    entry.setAssignedVariables(assignedVariables(block));
+    for (int i = 0; i < slots.length; i++) {
+      Pair<String, Expression> assignment = block.get(i);
+      int slot = slots[i];
+      if (slot < 0) {
+        String primedName = Variable.asPrimedVariableName(assignment.getValue0());
+        if (memory.containsKey(primedName)) {
+          memory.put(assignment.getValue0(), memory.remove(primedName));
+        }
+        continue;
+      }
+      int primedSlot = MemoryLayout.primedSlotOf(slot);
+      memory.moveValue(primedSlot, MemoryLayout.unprimedSlotOf(slot));
+    }
+    return entry;
+  }
+
+  /**
+   * Sets the timeout for a program execution.
+   *
+   * @param timeout -- timeout in seconds
+   */
+  @Override
+  public void setTimeout(int timeout) {
+    budget = budget.withMaxWallClock(Duration.ofSeconds(timeout));
+  }
+
+  /**
+   * Returns the timeout in seconds, or 0 if the wall-clock time is not limited.
+   */
+  public int getTimeout() {
+    Duration maxWallClock = budget.getMaxWallClock();
+    return maxWallClock == null ? 0 : (int) maxWallClock.getSeconds();
+  }
+
+  public long getStepLimit() {
+    return budget.getMaxSteps();
+  }
+
+  /**
+   * Sets the maximum number of blocks that a program execution may execute.
+   *
+   * @param stepLimit -- maximum number of executed blocks, or 0 for no limit
+   */
+  public void setStepLimit(long stepLimit) {
+    budget = budget.withMaxSteps(stepLimit);
+  }
+
+  public ExecutionBudget getBudget() {
+    return budget;
+  }
+
+  /**
+   * Sets the budget of the executions that do not specify their own budget. The timeout and the
+   * step limit are part of this budget.
+   *
+   * @param budget -- limits of an execution
+   */
+  public void setBudget(ExecutionBudget budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * State of one program execution.
+   */
+  private static class Execution {
+
+    /**
+     * Number of steps between two checks of the clock.
+     */
+    private static final int CLOCK_INTERVAL_MASK = 0x3f;
+
+    private final Program program;
+    private final CompiledProgram compiled;
+    private final TraceListener listener;
+    private final ExecutionBudget budget;
+    private final CancellationToken token;
+    private final long start;
+    private final long deadline;
+    private final long stepLimit;
+    private final long entryLimit;
+    private final int valueSizeLimit;
+    private long steps;
+    private long entries;
+    private int depth;
+
+    /**
+     * Checkpoints of the entry function by location, or null if none are recorded.
+     */
+    private Map<Integer, CheckpointedExecution.Checkpoint> checkpoints;
+
+    Execution(Program program, CompiledProgram compiled, TraceListener listener,
+        ExecutionBudget budget, CancellationToken token) {
+      this.program = program;
+      this.compiled = compiled;
+      this.listener = listener;
+      this.budget = budget;
+      this.token = token;
+      this.start = System.nanoTime();
+      Duration maxWallClock = budget.getMaxWallClock();
+      this.deadline = maxWallClock == null ? 0 : start + maxWallClock.toNanos();
+      this.stepLimit = budget.getMaxSteps();
+      this.entryLimit = budget.getMaxTraceEntries();
+      this.valueSizeLimit = budget.getMaxValueSize();
+    }
+
+    /**
+     * Records the memory before the first visit of the location.
+     */
+    void checkpoint(int location, Memory memory) {
+      if (!checkpoints.containsKey(location)) {
+        checkpoints.put(location,
+            new CheckpointedExecution.Checkpoint((int) entries, steps, memory.snapshot()));
+      }
+    }
+
+    /**
+     * Passes the entry of an executed block to the listener.
+     */
+    void record(TraceEntry entry) {
+      if (entryLimit > 0 && entries >= entryLimit) {
+        throw new ExecutionStopped(this, ExecutionResult.Status.TRACE_LIMIT_EXCEEDED,
+            String.format("Execution exceeded the limit of %d trace entries", entryLimit));
+      }
+      if (valueSizeLimit > 0) {
+        checkValueSizes(entry);
+      }
+      entries++;
+      if (listener.onEntry(entry) == TraceListener.Signal.STOP) {
+        throw new ExecutionStopped(this, ExecutionResult.Status.STOPPED, null);
+      }
+    }
+
+    private void checkValueSizes(TraceEntry entry) {
+      for (Map.Entry<String, Object> value : entry.getMem().entrySet()) {
+        int size = sizeOf(value.getValue());
+        if (size > valueSizeLimit) {
+          throw new ExecutionStopped(this, ExecutionResult.Status.VALUE_SIZE_EXCEEDED,
+              String.format("Value of %s exceeded the size limit of %d with size %d",
+                  value.getKey(), valueSizeLimit, size));
+        }
+      }
+    }
+
+    private static int sizeOf(Object value) {
+      if (value instanceof CharSequence) {
+        return ((CharSequence) value).length();
+      }
+      if (value instanceof Collection) {
+        return ((Collection<?>) value).size();
+      }
+      if (value instanceof Map) {
+        return ((Map<?, ?>) value).size();
+      }
+      if (value != null && value.getClass().isArray()) {
+        return Array.getLength(value);
+      }
+      return 0;
+    }
+
+    /**
+     * Accounts for the execution of one block and checks the cancellation token, the step limit
+     * and the timeout.
+     */
+    void step() {
+      if (token != null && token.isCancelled()) {
+        throw new ExecutionStopped(this, ExecutionResult.Status.CANCELLED,
+            "Execution was cancelled");
+      }
+      steps++;
+      if (stepLimit > 0 && steps > stepLimit) {
+        throw new ExecutionStopped(this, ExecutionResult.Status.STEP_LIMIT_EXCEEDED,
+            String.format("Execution exceeded the limit of %d steps", stepLimit));
+      }
+      if (deadline != 0 && (steps & CLOCK_INTERVAL_MASK) == 1 && System.nanoTime() - deadline > 0) {
+        throw new ExecutionStopped(this, ExecutionResult.Status.TIMEOUT,
+            String.format("Execution exceeded the timeout of %s", budget.getMaxWallClock()));
+      }
+    }
+
+    /**
+     * Returns the result of this execution, without trace.
+     */
+    ExecutionResult result(ExecutionResult.Status status, String message) {
+      // the step that exceeded a limit of step() has not been executed
+      long executedSteps = status == ExecutionResult.Status.STEP_LIMIT_EXCEEDED
+          || status == ExecutionResult.Status.TIMEOUT ? steps - 1 : steps;
+      return new ExecutionResult(status, null, executedSteps,
+          Duration.ofNanos(System.nanoTime() - start), message);
+    }
+  }
+
+  /**
+   * Unwinds the (possibly nested) function executions when a listener stops the execution or the
+   * execution exhausts its budget.
+   */
+  private static class ExecutionStopped extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Execution execution;
+    private final ExecutionResult.Status status;
+
+    ExecutionStopped(Execution execution, ExecutionResult.Status status, String message) {
+      super(message, null, false, false);
+      this.execution = execution;
+      this.status = status;
+    }
+  }
+}
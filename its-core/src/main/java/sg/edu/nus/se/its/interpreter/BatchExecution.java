@@ -0,0 +1,47 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import sg.edu.nus.se.its.model.Input;
+
+/**
+ * Runs one execution per input on an executor and collects the results in the order of the
+ * inputs.
+ */
+final class BatchExecution {
+
+  private BatchExecution() {
+  }
+
+  /**
+   * Executes the task for every input and waits for all results.
+   *
+   * @param inputs -- program's inputs
+   * @param executor -- executor for the tasks
+   * @param task -- execution of one input
+   * @return results in the order of the inputs
+   * @throws RuntimeException of the first failed task in the order of the inputs
+   */
+  static <T> List<T> run(List<Input> inputs, Executor executor, Function<Input, T> task) {
+    List<CompletableFuture<T>> futures = new ArrayList<>(inputs.size());
+    for (Input input : inputs) {
+      futures.add(CompletableFuture.supplyAsync(() -> task.apply(input), executor));
+    }
+    List<T> results = new ArrayList<>(futures.size());
+    for (CompletableFuture<T> future : futures) {
+      try {
+        results.add(future.join());
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,141 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Interpreter that takes the traces of a reference program from a {@link ReferenceTraceCache} and
+ * delegates everything else to another interpreter. The reference program is recognized by
+ * identity, so that the submitted program is never looked up in the cache; it must not be
+ * modified while this interpreter is used.
+ *
+ * <p>A typical workflow creates one cache per assignment and one CachingInterpreter per
+ * submission, so that the reference program is executed once per input for all submissions. If a
+ * {@link TraceStore} with precomputed traces is given, the traces that it contains are served
+ * from the store instead, see {@link StoredTrace#asTrace()}: their memories are decoded from the
+ * mapped file on access and are not copied into the cache.
+ */
+public class CachingInterpreter implements Interpreter {
+
+  private final Interpreter delegate;
+  private final ReferenceTraceCache cache;
+  private final Program reference;
+  private final String fingerprint;
+  private final TraceStore store;
+
+  /**
+   * Creates an interpreter that caches the traces of the given reference program.
+   *
+   * @param delegate -- interpreter for the actual executions
+   * @param cache -- cache shared by the submissions of an assignment
+   * @param reference -- reference program of the assignment
+   */
+  public CachingInterpreter(Interpreter delegate, ReferenceTraceCache cache, Program reference) {
+    this(delegate, cache, reference, null);
+  }
+
+  /**
+   * Creates an interpreter that caches the traces of the given reference program and takes
+   * precomputed traces from the given store.
+   *
+   * @param delegate -- interpreter for the actual executions
+   * @param cache -- cache shared by the submissions of an assignment
+   * @param reference -- reference program of the assignment
+   * @param store -- store of precomputed traces, can be null
+   */
+  public CachingInterpreter(Interpreter delegate, ReferenceTraceCache cache, Program reference,
+      TraceStore store) {
+    this.delegate = delegate;
+    this.cache = cache;
+    this.reference = reference;
+    this.fingerprint = ReferenceTraceCache.fingerprint(reference);
+    this.store = store;
+  }
+
+  public Interpreter getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public Trace executeProgram(Program program) {
+    return executeProgram(program, new Input());
+  }
+
+  @Override
+  public Trace executeProgram(Program program, Input input) {
+    if (program != reference) {
+      return delegate.executeProgram(program, input);
+    }
+    StoredTrace stored = store == null ? null : store.get(fingerprint, input);
+    if (stored != null) {
+      return stored.asTrace();
+    }
+    return cache.get(fingerprint, input, () -> delegate.executeProgram(program, input));
+  }
+
+  @Override
+  public boolean executeProgram(Program program, Input input, TraceListener listener) {
+    if (program != reference) {
+      return delegate.executeProgram(program, input, listener);
+    }
+    return Interpreter.super.executeProgram(program, input, listener);
+  }
+
+  @Override
+  public List<Trace> executeProgram(Program program, List<Input> inputs, Executor executor) {
+    if (program != reference) {
+      return delegate.executeProgram(program, inputs, executor);
+    }
+    return Interpreter.super.executeProgram(program, inputs, executor);
+  }
+
+  @Override
+  public Object execute(Executable executable, Memory memory) {
+    return delegate.execute(executable, memory);
+  }
+
+  @Override
+  public Object executeFunction(Function function, Memory memory) {
+    return delegate.executeFunction(function, memory);
+  }
+
+  @Override
+  public Object executeConstant(Constant constant, Memory memory) {
+    return delegate.executeConstant(constant, memory);
+  }
+
+  @Override
+  public Object executeOperation(Operation operation, Memory memory) {
+    return delegate.executeOperation(operation, memory);
+  }
+
+  @Override
+  public Object executeVariable(Variable variable, Memory memory) {
+    return delegate.executeVariable(variable, memory);
+  }
+
+  @Override
+  public TraceEntry executeBlock(Function function, Memory memory, int loc) {
+    return delegate.executeBlock(function, memory, loc);
+  }
+
+  @Override
+  public TraceEntry executeBlock(Function function, List<Pair<String, Expression>> block,
+      Memory memory) {
+    return delegate.executeBlock(function, block, memory);
+  }
+
+  @Override
+  public void setTimeout(int timeout) {
+    delegate.setTimeout(timeout);
+  }
+}
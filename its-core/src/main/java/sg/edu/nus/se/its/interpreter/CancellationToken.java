@@ -0,0 +1,21 @@
+package sg.edu.nus.se.its.interpreter;
+
+/**
+ * Flag to cancel a running execution from another thread. The interpreter checks the token before
+ * every block, so a cancelled execution ends at the next block boundary.
+ */
+public class CancellationToken {
+
+  private volatile boolean cancelled;
+
+  /**
+   * Requests the cancellation of the executions that use this token.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+}
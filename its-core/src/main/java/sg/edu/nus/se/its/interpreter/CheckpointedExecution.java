@@ -0,0 +1,108 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.Program;
+
+/**
+ * Completed execution of a program together with the memory checkpoints of its entry function.
+ * A checkpoint is recorded at the first visit of every location of the entry function, before the
+ * block at this location is executed, see
+ * {@link AbstractInterpreter#executeWithCheckpoints(Program, Input)}.
+ *
+ * <p>The checkpoints allow to re-execute a patched copy of the program from the first visit of the
+ * earliest patched location, see
+ * {@link AbstractInterpreter#resume(CheckpointedExecution, Program, java.util.Collection)}, since
+ * the execution up to this point does not depend on the patch. Patches of other functions than
+ * the entry function are not covered by checkpoints and execute the program from the start. The
+ * executed program must not be modified afterwards; patches are applied to a deep copy, see
+ * {@link Program#deepCopy()}.
+ */
+public class CheckpointedExecution {
+
+  private final Program program;
+  private final Input input;
+  private final ExecutionResult result;
+  private final Map<Integer, Checkpoint> checkpoints;
+
+  CheckpointedExecution(Program program, Input input, ExecutionResult result,
+      Map<Integer, Checkpoint> checkpoints) {
+    this.program = program;
+    this.input = input;
+    this.result = result;
+    this.checkpoints = checkpoints;
+  }
+
+  public Program getProgram() {
+    return program;
+  }
+
+  public Input getInput() {
+    return input;
+  }
+
+  public ExecutionResult getResult() {
+    return result;
+  }
+
+  public Trace getTrace() {
+    return result.getTrace();
+  }
+
+  /**
+   * Returns the locations of the entry function that were visited by the execution.
+   */
+  public Set<Integer> getCheckpointedLocations() {
+    return Collections.unmodifiableSet(checkpoints.keySet());
+  }
+
+  /**
+   * Returns the position in the trace of the first visit of the given location, or -1 if the
+   * location was not visited.
+   *
+   * @param location -- location of the entry function
+   * @return index of the first trace entry of the location, or -1
+   */
+  public int getFirstVisit(int location) {
+    Checkpoint checkpoint = checkpoints.get(location);
+    return checkpoint == null ? -1 : checkpoint.entries;
+  }
+
+  Checkpoint getCheckpoint(int location) {
+    return checkpoints.get(location);
+  }
+
+  Map<Integer, Checkpoint> getCheckpoints() {
+    return checkpoints;
+  }
+
+  /**
+   * State of the execution before the first visit of a location.
+   */
+  static final class Checkpoint {
+
+    /**
+     * Number of trace entries recorded before the visit.
+     */
+    final int entries;
+
+    /**
+     * Number of blocks executed before the visit.
+     */
+    final long steps;
+
+    /**
+     * Memory of the entry function before the visit.
+     */
+    final Memory memory;
+
+    Checkpoint(int entries, long steps, Memory memory) {
+      this.entries = entries;
+      this.steps = steps;
+      this.memory = memory;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Execution trace that stores the memory of every trace entry as a delta to the previous entry,
+ * i.e., only the variables that changed. Every {@code checkpointInterval} entries the complete
+ * memory is stored as a checkpoint. The memory of an entry is rebuilt lazily from the nearest
+ * checkpoint when it is requested, so that the Trace API remains unchanged.
+ *
+ * <p>For entries recorded by an {@link AbstractInterpreter}, the delta is computed from the
+ * variables written by the previous and the current block of the same function invocation instead
+ * of comparing the complete memories; other entries are compared completely.
+ */
+public class CompactTrace extends Trace {
+
+  /**
+   * Default number of entries between two checkpoints.
+   */
+  public static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+
+  private static final String[] NO_KEYS = new String[0];
+  private static final Object[] NO_VALUES = new Object[0];
+
+  private final int checkpointInterval;
+
+  /**
+   * Memory after the last added entry, used to compute the delta of the next entry.
+   */
+  private final Map<String, Object> current = new HashMap<>();
+
+  private final List<DeltaTraceEntry> deltaEntries = new ArrayList<>();
+
+  /**
+   * Variables assigned by the block of the last added entry, or null if unknown.
+   */
+  private String[] previousAssigned;
+
+  /**
+   * Function invocation of the last added entry, or null if unknown.
+   */
+  private Object previousFrame;
+
+  public CompactTrace() {
+    this(DEFAULT_CHECKPOINT_INTERVAL);
+  }
+
+  /**
+   * Creates an empty trace that stores a complete memory every checkpointInterval entries.
+   *
+   * @param checkpointInterval - number of entries between two checkpoints, at least 1
+   */
+  public CompactTrace(int checkpointInterval) {
+    if (checkpointInterval < 1) {
+      throw new IllegalArgumentException(
+          String.format("Invalid checkpoint interval: %d", checkpointInterval));
+    }
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  public int getCheckpointInterval() {
+    return checkpointInterval;
+  }
+
+  @Override
+  public void add(String fnc, int loc, Memory mem) {
+    add(fnc, loc, mem, null, null);
+  }
+
+  @Override
+  public void add(TraceEntry entry) {
+    add(entry.getFunctionName(), entry.getLocation(), entry.getMem(),
+        entry.getAssignedVariables(), entry.getFrame());
+  }
+
+  private void add(String fnc, int loc, Memory mem, String[] assigned, Object frame) {
+    int index = deltaEntries.size();
+    DeltaTraceEntry entry;
+    if (index % checkpointInterval == 0) {
+      Memory checkpoint = new Memory();
+      checkpoint.putAll(mem);
+      entry = new DeltaTraceEntry(fnc, loc, index, checkpoint, NO_KEYS, NO_VALUES, NO_KEYS);
+      current.clear();
+      current.putAll(mem);
+    } else if (assigned != null && previousAssigned != null && frame != null
+        && frame == previousFrame) {
+      entry = createDelta(fnc, loc, index, mem, writtenVariables(assigned));
+      entry.applyTo(current);
+    } else {
+      entry = createDelta(fnc, loc, index, mem, mem.keySet());
+      entry.applyTo(current);
+    }
+    previousAssigned = assigned;
+    previousFrame = frame;
+    deltaEntries.add(entry);
+    super.add(entry);
+  }
+
+  /**
+   * Returns the variables that may have changed since the previous entry of the same function
+   * invocation: the previous block committed its primed values and this block primed the values of
+   * its assignments. This assumes that a block changes the memory only through its assignments.
+   */
+  private Collection<String> writtenVariables(String[] assigned) {
+    Set<String> variables = new LinkedHashSet<>();
+    for (String variable : previousAssigned) {
+      variables.add(variable);
+      variables.add(Variable.asPrimedVariableName(variable));
+    }
+    for (String variable : assigned) {
+      variables.add(Variable.asPrimedVariableName(variable));
+    }
+    return variables;
+  }
+
+  /**
+   * Computes the delta of the given memory to the current memory, comparing only the given
+   * variables; the variables of the current memory that are not in the given memory are removed
+   * if they are among the compared ones, or if all variables of the memory are compared.
+   */
+  private DeltaTraceEntry createDelta(String fnc, int loc, int index, Memory mem,
+      Collection<String> variables) {
+    List<String> changedKeys = new ArrayList<>();
+    List<Object> changedValues = new ArrayList<>();
+    List<String> removedKeys = new ArrayList<>();
+    for (String key : variables) {
+      boolean present = mem.containsKey(key);
+      if (!present) {
+        if (current.containsKey(key)) {
+          removedKeys.add(key);
+        }
+        continue;
+      }
+      Object value = mem.get(key);
+      Object previous = current.get(key);
+      if (!Objects.equals(previous, value) || (previous == null && !current.containsKey(key))) {
+        changedKeys.add(key);
+        changedValues.add(value);
+      }
+    }
+    if (variables == mem.keySet() && current.size() + changedKeys.size() > mem.size()) {
+      for (String key : current.keySet()) {
+        if (!mem.containsKey(key)) {
+          removedKeys.add(key);
+        }
+      }
+    }
+    return new DeltaTraceEntry(fnc, loc, index, null, changedKeys.toArray(NO_KEYS),
+        changedValues.toArray(), removedKeys.toArray(NO_KEYS));
+  }
+
+  /**
+   * Rebuilds the memory of the entry at the given index, starting from the closest preceding entry
+   * whose memory is still available.
+   */
+  private Memory rebuild(int index) {
+    int start = index;
+    Memory base = null;
+    while (true) {
+      DeltaTraceEntry entry = deltaEntries.get(start);
+      base = entry.checkpoint != null ? entry.checkpoint : entry.cachedMemory();
+      if (base != null || start % checkpointInterval == 0) {
+        break;
+      }
+      start--;
+    }
+    Memory memory = new Memory();
+    memory.putAll(base);
+    for (int i = start + 1; i <= index; i++) {
+      deltaEntries.get(i).applyTo(memory);
+    }
+    return memory;
+  }
+
+  /**
+   * Trace entry that stores either a checkpoint or the delta to the previous entry.
+   */
+  private class DeltaTraceEntry extends TraceEntry {
+
+    private final int index;
+    private final Memory checkpoint;
+    private final String[] changedKeys;
+    private final Object[] changedValues;
+    private final String[] removedKeys;
+    private SoftReference<Memory> memory;
+
+    DeltaTraceEntry(String functionName, int loc, int index, Memory checkpoint,
+        String[] changedKeys, Object[] changedValues, String[] removedKeys) {
+      super(functionName, loc, null);
+      this.index = index;
+      this.checkpoint = checkpoint;
+      this.changedKeys = changedKeys;
+      this.changedValues = changedValues;
+      this.removedKeys = removedKeys;
+    }
+
+    Memory cachedMemory() {
+      return memory == null ? null : memory.get();
+    }
+
+    void applyTo(Map<String, Object> target) {
+      for (String key : removedKeys) {
+        target.remove(key);
+      }
+      for (int i = 0; i < changedKeys.length; i++) {
+        target.put(changedKeys[i], changedValues[i]);
+      }
+    }
+
+    /**
+     * Returns a copy of the memory of this entry, so that the stored checkpoint or the cached
+     * memory, from which later entries are rebuilt, cannot be modified by the caller.
+     */
+    @Override
+    public Memory getMem() {
+      if (checkpoint != null) {
+        return checkpoint.snapshot();
+      }
+      Memory result = cachedMemory();
+      if (result == null) {
+        result = rebuild(index);
+        memory = new SoftReference<>(result);
+      }
+      return result.snapshot();
+    }
+  }
+}
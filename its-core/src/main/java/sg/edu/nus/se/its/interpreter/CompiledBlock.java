@@ -0,0 +1,134 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.List;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.MemoryLayout;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Compiled form of the assignments of one location, with the target slots resolved against the
+ * memory layout of the function. The execution follows the semantics of
+ * {@link AbstractInterpreter}: the values are stored in the primed variables, the trace entry is
+ * recorded, and the primed values are committed to the unprimed variables.
+ */
+public class CompiledBlock {
+
+  private final String functionName;
+  private final int location;
+  private final MemoryLayout layout;
+  private final List<Pair<String, Expression>> block;
+  private final Object[] assignments;
+  private final String[] targets;
+  private final String[] primedTargets;
+  private final int[] slots;
+  private final CompiledExpression[] expressions;
+
+  /**
+   * Compiles the given block.
+   *
+   * @param functionName -- name of the function of the block
+   * @param location -- location of the block
+   * @param block -- assignments of the location
+   * @param compiler -- compiler for the function's layout
+   * @param layout -- memory layout of the function
+   */
+  public CompiledBlock(String functionName, int location, List<Pair<String, Expression>> block,
+      ExpressionCompiler compiler, MemoryLayout layout) {
+    this.functionName = functionName;
+    this.location = location;
+    this.layout = layout;
+    this.block = block;
+    this.assignments = block == null ? new Object[0] : block.toArray();
+    int size = assignments.length;
+    this.targets = new String[size];
+    this.primedTargets = new String[size];
+    this.slots = new int[size];
+    this.expressions = new CompiledExpression[size];
+    for (int i = 0; i < size; i++) {
+      Pair<String, Expression> assignment = block.get(i);
+      targets[i] = assignment.getValue0();
+      primedTargets[i] = Variable.asPrimedVariableName(targets[i]);
+      slots[i] = layout.slotOf(targets[i]);
+      expressions[i] = compiler.compile(assignment.getValue1());
+    }
+  }
+
+  public int getLocation() {
+    return location;
+  }
+
+  /**
+   * Returns whether this block has been compiled from the given assignments in their current
+   * state, i.e., whether neither the list nor its assignments have been replaced since.
+   *
+   * @param block -- assignments of the location
+   * @return true if the compiled form is up to date
+   */
+  public boolean isCompiledFrom(List<Pair<String, Expression>> block) {
+    if (block != this.block) {
+      return false;
+    }
+    if (block == null) {
+      return true;
+    }
+    if (block.size() != assignments.length) {
+      return false;
+    }
+    for (int i = 0; i < assignments.length; i++) {
+      if (block.get(i) != assignments[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Executes the block on the given memory.
+   *
+   * @param memory -- Memory object, which is updated in place
+   * @return trace entry of the block
+   */
+  public TraceEntry execute(Memory memory) {
+    if (memory instanceof SlotMemory && ((SlotMemory) memory).getLayout() == layout) {
+      return execute((SlotMemory) memory);
+    }
+    for (int i = 0; i < expressions.length; i++) {
+      memory.put(primedTargets[i], expressions[i].evaluate(memory));
+    }
+    TraceEntry entry = new TraceEntry(functionName, location, memory.snapshot());
+    entry.setAssignedVariables(targets);
+    for (int i = 0; i < expressions.length; i++) {
+      if (memory.containsKey(primedTargets[i])) {
+        memory.put(targets[i], memory.remove(primedTargets[i]));
+      }
+    }
+    return entry;
+  }
+
+  private TraceEntry execute(SlotMemory memory) {
+    for (int i = 0; i < expressions.length; i++) {
+      if (slots[i] >= 0) {
+        expressions[i].evaluateInto(memory, MemoryLayout.primedSlotOf(slots[i]));
+      } else {
+        memory.put(primedTargets[i], expressions[i].evaluate(memory));
+      }
+    }
+    TraceEntry entry = new TraceEntry(functionName, location, memory.snapshot());
+    entry.setAssignedVariables(targets);
+    for (int i = 0; i < expressions.length; i++) {
+      int slot = slots[i];
+      if (slot < 0) {
+        if (memory.containsKey(primedTargets[i])) {
+          memory.put(targets[i], memory.remove(primedTargets[i]));
+        }
+        continue;
+      }
+      int primedSlot = MemoryLayout.primedSlotOf(slot);
+      memory.moveValue(primedSlot, MemoryLayout.unprimedSlotOf(slot));
+    }
+    return entry;
+  }
+}
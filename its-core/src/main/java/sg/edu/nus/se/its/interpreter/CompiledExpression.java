@@ -0,0 +1,84 @@
+package sg.edu.nus.se.its.interpreter;
+
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.ValueType;
+
+/**
+ * Evaluator node of an expression that has been compiled by the {@link ExpressionCompiler}, i.e.,
+ * whose constants are already evaluated and whose operators are already bound.
+ */
+public abstract class CompiledExpression {
+
+  private final boolean pure;
+
+  protected CompiledExpression(boolean pure) {
+    this.pure = pure;
+  }
+
+  /**
+   * Evaluates the expression on the given memory.
+   *
+   * @param memory -- Memory object
+   * @return value of the expression
+   */
+  public abstract Object evaluate(Memory memory);
+
+  /**
+   * Evaluates the expression on a memory of the compiled layout and stores the value in the given
+   * slot, unboxed if the expression has a numeric type.
+   */
+  void evaluateInto(SlotMemory memory, int slot) {
+    memory.storeValue(slot, evaluate(memory));
+  }
+
+  /**
+   * Returns the static type of the expression, or {@link ValueType#OBJECT} if it is only
+   * evaluated to objects, see {@link TypedExpression}.
+   */
+  ValueType getType() {
+    return ValueType.OBJECT;
+  }
+
+  /**
+   * Evaluates an expression of type INT, LONG or CHAR without boxing. This implementation unboxes
+   * the value of {@link #evaluate}.
+   *
+   * @throws TypedExpression.TypeMismatch if the value is not integral
+   */
+  long evaluateLong(SlotMemory memory) {
+    return integralValue(evaluate(memory));
+  }
+
+  /**
+   * Evaluates an expression of a numeric type as double without boxing. This implementation
+   * unboxes the value of {@link #evaluate}.
+   *
+   * @throws TypedExpression.TypeMismatch if the value is not a number
+   */
+  double evaluateDouble(SlotMemory memory) {
+    Object value = evaluate(memory);
+    if (value instanceof Double) {
+      return (Double) value;
+    }
+    return integralValue(value);
+  }
+
+  private static long integralValue(Object value) {
+    if (value instanceof Integer || value instanceof Long) {
+      return ((Number) value).longValue();
+    }
+    if (value instanceof Character) {
+      return (Character) value;
+    }
+    throw TypedExpression.TypeMismatch.INSTANCE;
+  }
+
+  /**
+   * Returns whether the evaluation has no side effects, so that the expression may be evaluated
+   * again by the interpreter if a compiled operator cannot handle the values.
+   */
+  public boolean isPure() {
+    return pure;
+  }
+}
@@ -0,0 +1,54 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.MemoryLayout;
+
+/**
+ * Compiled blocks of one function, which are compiled lazily on their first execution. The
+ * compiled form belongs to one state of the function, identified by the modification stamps of
+ * the function and of the expressions, and does not reference the Function object itself, so that
+ * it can be cached with a weak reference to the function. A block is compiled anew if its list of
+ * assignments has been replaced or modified directly.
+ */
+class CompiledFunction {
+
+  private final String functionName;
+  private final MemoryLayout layout;
+  private final int functionStamp;
+  private final long expressionStamp;
+  private final ExpressionCompiler compiler;
+  private final Map<Integer, CompiledBlock> blocks = new ConcurrentHashMap<>();
+
+  CompiledFunction(AbstractInterpreter interpreter, Function function) {
+    this.functionName = function.getName();
+    this.functionStamp = function.getModificationStamp();
+    this.expressionStamp = Expression.getModificationStamp();
+    this.layout = function.getMemoryLayout();
+    this.compiler = new ExpressionCompiler(interpreter, layout, function.getTypes());
+  }
+
+  /**
+   * Returns whether this compiled form is still valid for the given function, i.e., whether the
+   * function has not been modified since the compilation.
+   */
+  boolean isValidFor(Function function) {
+    return function.getModificationStamp() == functionStamp
+        && Expression.getModificationStamp() == expressionStamp;
+  }
+
+  CompiledBlock getBlock(Function function, int location) {
+    List<Pair<String, Expression>> assignments = AbstractInterpreter.assignmentsAt(function,
+        location);
+    CompiledBlock block = blocks.get(location);
+    if (block == null || !block.isCompiledFrom(assignments)) {
+      block = new CompiledBlock(functionName, location, assignments, compiler, layout);
+      blocks.put(location, block);
+    }
+    return block;
+  }
+}
@@ -0,0 +1,85 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+
+/**
+ * Program that has been prepared by an {@link AbstractInterpreter} for repeated execution, e.g.,
+ * for grading a submission on many inputs. This is a linked interpreter, not a code generator:
+ * the blocks of every function are compiled once into evaluator trees (see
+ * {@link ExpressionCompiler}) and stored in an array by location, and the execution loop takes
+ * the transitions with {@link AbstractInterpreter#nextLocation} and looks up the next block by
+ * index.
+ *
+ * <p>The compiled form reflects the program at the time of compilation; later modifications of
+ * the program are not visible to it. The execution produces the same Trace as
+ * {@link AbstractInterpreter#executeProgram(Program, Input)} and honours the budget of the
+ * interpreter.
+ */
+public class CompiledProgram {
+
+  private final AbstractInterpreter interpreter;
+  private final Program program;
+  private final Map<Function, LinkedFunction> functions = new IdentityHashMap<>();
+
+  CompiledProgram(AbstractInterpreter interpreter, Program program) {
+    this.interpreter = interpreter;
+    this.program = program;
+    for (Function function : program.getFncs().values()) {
+      functions.put(function, new LinkedFunction(interpreter, function));
+    }
+  }
+
+  public Program getProgram() {
+    return program;
+  }
+
+  public AbstractInterpreter getInterpreter() {
+    return interpreter;
+  }
+
+  /**
+   * Returns the linked form of the given function, or null if it is not part of this program.
+   */
+  LinkedFunction getLinkedFunction(Function function) {
+    return functions.get(function);
+  }
+
+  /**
+   * Executes the program on the given input.
+   *
+   * @param input -- program's input
+   * @return Trace object
+   */
+  public Trace execute(Input input) {
+    Trace trace = interpreter.createTrace();
+    interpreter.executeCompiled(this, input, trace);
+    return trace;
+  }
+
+  /**
+   * Executes the program on the given input and passes every trace entry to the listener.
+   *
+   * @param input -- program's input
+   * @param listener -- consumer of the trace entries, which can stop the execution
+   * @return true if the program ran to completion, false if the listener stopped it
+   */
+  public boolean execute(Input input, TraceListener listener) {
+    return interpreter.executeCompiled(this, input, listener);
+  }
+
+  /**
+   * Executes the program on the given input under the given budget.
+   *
+   * @param input -- program's input
+   * @param budget -- limits of the execution
+   * @param token -- token to cancel the execution, can be null
+   * @return ExecutionResult object with the (partial) trace
+   */
+  public ExecutionResult execute(Input input, ExecutionBudget budget, CancellationToken token) {
+    return interpreter.executeCompiled(this, input, budget, token);
+  }
+}
@@ -0,0 +1,91 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.time.Duration;
+
+/**
+ * Limits of one program execution. A limit of 0 (or a null duration) means that the resource is
+ * not limited. Budgets are immutable; the with* methods return modified copies.
+ */
+public final class ExecutionBudget {
+
+  /**
+   * Budget without any limits.
+   */
+  public static final ExecutionBudget UNLIMITED = new ExecutionBudget(0, null, 0, 0);
+
+  private final long maxSteps;
+  private final Duration maxWallClock;
+  private final long maxTraceEntries;
+  private final int maxValueSize;
+
+  /**
+   * Creates a budget with the given limits.
+   *
+   * @param maxSteps -- maximum number of executed blocks, or 0
+   * @param maxWallClock -- maximum wall-clock time of the execution, or null
+   * @param maxTraceEntries -- maximum number of produced trace entries, or 0
+   * @param maxValueSize -- maximum size of a value in memory, i.e., the length of a string or the
+   *     number of elements of a collection or array, or 0
+   */
+  public ExecutionBudget(long maxSteps, Duration maxWallClock, long maxTraceEntries,
+      int maxValueSize) {
+    if (maxSteps < 0 || maxTraceEntries < 0 || maxValueSize < 0
+        || (maxWallClock != null && maxWallClock.isNegative())) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid execution budget: steps=%d, wallClock=%s, traceEntries=%d, valueSize=%d",
+          maxSteps, maxWallClock, maxTraceEntries, maxValueSize));
+    }
+    this.maxSteps = maxSteps;
+    this.maxWallClock = maxWallClock == null || maxWallClock.isZero() ? null : maxWallClock;
+    this.maxTraceEntries = maxTraceEntries;
+    this.maxValueSize = maxValueSize;
+  }
+
+  /**
+   * Creates a budget that only limits the wall-clock time.
+   *
+   * @param seconds -- timeout in seconds
+   * @return ExecutionBudget object
+   */
+  public static ExecutionBudget ofTimeout(int seconds) {
+    return UNLIMITED.withMaxWallClock(Duration.ofSeconds(seconds));
+  }
+
+  public long getMaxSteps() {
+    return maxSteps;
+  }
+
+  public Duration getMaxWallClock() {
+    return maxWallClock;
+  }
+
+  public long getMaxTraceEntries() {
+    return maxTraceEntries;
+  }
+
+  public int getMaxValueSize() {
+    return maxValueSize;
+  }
+
+  public ExecutionBudget withMaxSteps(long maxSteps) {
+    return new ExecutionBudget(maxSteps, maxWallClock, maxTraceEntries, maxValueSize);
+  }
+
+  public ExecutionBudget withMaxWallClock(Duration maxWallClock) {
+    return new ExecutionBudget(maxSteps, maxWallClock, maxTraceEntries, maxValueSize);
+  }
+
+  public ExecutionBudget withMaxTraceEntries(long maxTraceEntries) {
+    return new ExecutionBudget(maxSteps, maxWallClock, maxTraceEntries, maxValueSize);
+  }
+
+  public ExecutionBudget withMaxValueSize(int maxValueSize) {
+    return new ExecutionBudget(maxSteps, maxWallClock, maxTraceEntries, maxValueSize);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ExecutionBudget [steps=%d, wallClock=%s, traceEntries=%d, valueSize=%d]",
+        maxSteps, maxWallClock, maxTraceEntries, maxValueSize);
+  }
+}
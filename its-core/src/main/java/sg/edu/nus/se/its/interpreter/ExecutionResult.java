@@ -0,0 +1,103 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a program execution under an {@link ExecutionBudget}.
+ */
+public class ExecutionResult {
+
+  /**
+   * How the execution ended.
+   */
+  public enum Status {
+    /**
+     * The program ran to completion.
+     */
+    COMPLETED,
+    /**
+     * A trace listener stopped the execution.
+     */
+    STOPPED,
+    /**
+     * The execution was cancelled with its {@link CancellationToken}.
+     */
+    CANCELLED,
+    STEP_LIMIT_EXCEEDED,
+    TIMEOUT,
+    TRACE_LIMIT_EXCEEDED,
+    VALUE_SIZE_EXCEEDED
+  }
+
+  private final Status status;
+  private final Trace trace;
+  private final long steps;
+  private final Duration elapsed;
+  private final String message;
+
+  /**
+   * Creates the result of an execution.
+   *
+   * @param status -- how the execution ended
+   * @param trace -- recorded trace, or null if the entries were only streamed to a listener
+   * @param steps -- number of executed blocks
+   * @param elapsed -- wall-clock time of the execution
+   * @param message -- description of the exhausted limit, or null
+   */
+  public ExecutionResult(Status status, Trace trace, long steps, Duration elapsed,
+      String message) {
+    this.status = status;
+    this.trace = trace;
+    this.steps = steps;
+    this.elapsed = elapsed;
+    this.message = message;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isCompleted() {
+    return status == Status.COMPLETED;
+  }
+
+  /**
+   * Returns whether the execution ended because a limit of the budget was exhausted.
+   */
+  public boolean isBudgetExhausted() {
+    switch (status) {
+      case STEP_LIMIT_EXCEEDED:
+      case TIMEOUT:
+      case TRACE_LIMIT_EXCEEDED:
+      case VALUE_SIZE_EXCEEDED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the trace up to the end of the execution, or null if it was not recorded.
+   */
+  public Trace getTrace() {
+    return trace;
+  }
+
+  public long getSteps() {
+    return steps;
+  }
+
+  public Duration getElapsed() {
+    return elapsed;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ExecutionResult [status=%s, steps=%d, elapsed=%s%s]", status, steps,
+        elapsed, message == null ? "" : ", message=" + message);
+  }
+}
@@ -0,0 +1,330 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.MemoryLayout;
+import sg.edu.nus.se.its.model.Opcode;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.ValueType;
+import sg.edu.nus.se.its.model.Variable;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Compiles expressions of one function into trees of {@link CompiledExpression} nodes.
+ *
+ * <p>Constants are evaluated once with {@link Interpreter#executeConstant}. Variables are resolved
+ * to the slots of the function's {@link MemoryLayout} and read with the semantics of
+ * {@link AbstractInterpreter#executeVariable}. Operators are bound once with
+ * {@link AbstractInterpreter#resolveOperator}; the conditional operator and the bound logical
+ * operators of {@link NumericOperator} are evaluated lazily. An operation is delegated to
+ * {@link Interpreter#executeOperation} if it has no bound operator, if one of its operands has side
+ * effects, or if the bound operator cannot handle the values at runtime.
+ *
+ * <p>Constants, variables of the declared types int, long, double and char, and the bound
+ * {@link NumericOperator}s on them are additionally compiled to {@link TypedExpression} nodes,
+ * which evaluate on the unboxed values of a {@link SlotMemory}.
+ */
+public class ExpressionCompiler {
+
+  private final AbstractInterpreter interpreter;
+  private final MemoryLayout layout;
+  private final Map<String, String> types;
+
+  /**
+   * Creates a compiler for expressions that are evaluated on memories of the given layout.
+   *
+   * @param interpreter -- interpreter that provides the semantics
+   * @param layout -- memory layout of the function
+   */
+  public ExpressionCompiler(AbstractInterpreter interpreter, MemoryLayout layout) {
+    this(interpreter, layout, Collections.emptyMap());
+  }
+
+  /**
+   * Creates a compiler for expressions that are evaluated on memories of the given layout, where
+   * the variables have the given declared types.
+   *
+   * @param interpreter -- interpreter that provides the semantics
+   * @param layout -- memory layout of the function
+   * @param types -- declared types of the variables, see {@link
+   *     sg.edu.nus.se.its.model.Function#getTypes()}
+   */
+  public ExpressionCompiler(AbstractInterpreter interpreter, MemoryLayout layout,
+      Map<String, String> types) {
+    this.interpreter = interpreter;
+    this.layout = layout;
+    this.types = new HashMap<>(types);
+  }
+
+  /**
+   * Compiles the given expression.
+   *
+   * @param expression -- Expression object
+   * @return evaluator node
+   */
+  public CompiledExpression compile(Expression expression) {
+    if (expression instanceof Constant) {
+      Object value;
+      try {
+        value = interpreter.executeConstant((Constant) expression, new Memory());
+      } catch (RuntimeException e) {
+        // report invalid constants when they are evaluated, as the interpreter does
+        return new DelegateNode(interpreter, expression);
+      }
+      return TypedExpression.constant(value, layout, new ConstantNode(value));
+    }
+    if (expression instanceof Variable) {
+      Variable variable = (Variable) expression;
+      int slot = layout.slotOf(variable);
+      return TypedExpression.variable(
+          ValueType.ofDeclaredType(types.get(variable.getUnprimedName())), layout, slot,
+          new VariableNode(interpreter, layout, variable, slot));
+    }
+    if (expression instanceof Operation) {
+      return compileOperation((Operation) expression);
+    }
+    return new DelegateNode(interpreter, expression);
+  }
+
+  private CompiledExpression compileOperation(Operation operation) {
+    List<Expression> args = operation.getArgs();
+    CompiledExpression[] operands = new CompiledExpression[args.size()];
+    for (int i = 0; i < operands.length; i++) {
+      operands[i] = compile(args.get(i));
+      if (!operands[i].isPure()) {
+        return new DelegateNode(interpreter, operation);
+      }
+    }
+    if (operation.getOpcode() == Opcode.CONDITIONAL && operands.length == 3) {
+      return new ConditionalNode(interpreter, operation, operands[0], operands[1], operands[2]);
+    }
+    Operator operator = interpreter.resolveOperator(operation);
+    if ((operator == NumericOperator.AND || operator == NumericOperator.OR)
+        && operands.length == 2) {
+      return TypedExpression.operation(((NumericOperator) operator).getOpcode(), operands, layout,
+          new LogicalNode(interpreter, operation, operator == NumericOperator.AND, operands[0],
+              operands[1]));
+    }
+    if (operator == null) {
+      return new DelegateNode(interpreter, operation);
+    }
+    CompiledExpression node;
+    switch (operands.length) {
+      case 1:
+        node = new UnaryNode(interpreter, operation, operator, operands[0]);
+        break;
+      case 2:
+        node = new BinaryNode(interpreter, operation, operator, operands[0], operands[1]);
+        break;
+      default:
+        return new DelegateNode(interpreter, operation);
+    }
+    if (operator instanceof NumericOperator) {
+      // the typed nodes implement the semantics of the numeric operators only
+      return TypedExpression.operation(((NumericOperator) operator).getOpcode(), operands,
+          layout, node);
+    }
+    return node;
+  }
+
+  private static class ConstantNode extends CompiledExpression {
+
+    private final Object value;
+
+    ConstantNode(Object value) {
+      super(true);
+      this.value = value;
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      return value;
+    }
+  }
+
+  private static class VariableNode extends CompiledExpression {
+
+    private final AbstractInterpreter interpreter;
+    private final MemoryLayout layout;
+    private final Variable variable;
+    private final int slot;
+    private final int unprimedSlot;
+
+    VariableNode(AbstractInterpreter interpreter, MemoryLayout layout, Variable variable,
+        int slot) {
+      super(true);
+      this.interpreter = interpreter;
+      this.layout = layout;
+      this.variable = variable;
+      this.slot = slot;
+      this.unprimedSlot = slot < 0 ? -1 : MemoryLayout.unprimedSlotOf(slot);
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      if (slot >= 0 && memory instanceof SlotMemory
+          && ((SlotMemory) memory).getLayout() == layout) {
+        SlotMemory slotMemory = (SlotMemory) memory;
+        if (slotMemory.hasValue(slot)) {
+          return slotMemory.getValue(slot);
+        }
+        if (slot != unprimedSlot && slotMemory.hasValue(unprimedSlot)) {
+          return slotMemory.getValue(unprimedSlot);
+        }
+        return Constants.UNDEFINED;
+      }
+      return interpreter.executeVariable(variable, memory);
+    }
+  }
+
+  /**
+   * Node that evaluates the expression with the interpreter, e.g., function calls.
+   */
+  private static class DelegateNode extends CompiledExpression {
+
+    private final AbstractInterpreter interpreter;
+    private final Expression expression;
+
+    DelegateNode(AbstractInterpreter interpreter, Expression expression) {
+      super(false);
+      this.interpreter = interpreter;
+      this.expression = expression;
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      return interpreter.execute(expression, memory);
+    }
+  }
+
+  private static class UnaryNode extends CompiledExpression {
+
+    private final AbstractInterpreter interpreter;
+    private final Operation operation;
+    private final Operator operator;
+    private final CompiledExpression operand;
+
+    UnaryNode(AbstractInterpreter interpreter, Operation operation, Operator operator,
+        CompiledExpression operand) {
+      super(true);
+      this.interpreter = interpreter;
+      this.operation = operation;
+      this.operator = operator;
+      this.operand = operand;
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      Object result = operator.apply(operand.evaluate(memory));
+      if (result == Operator.NOT_APPLICABLE) {
+        return interpreter.executeOperation(operation, memory);
+      }
+      return result;
+    }
+  }
+
+  private static class BinaryNode extends CompiledExpression {
+
+    private final AbstractInterpreter interpreter;
+    private final Operation operation;
+    private final Operator operator;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    BinaryNode(AbstractInterpreter interpreter, Operation operation, Operator operator,
+        CompiledExpression left, CompiledExpression right) {
+      super(true);
+      this.interpreter = interpreter;
+      this.operation = operation;
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      Object result = operator.apply(left.evaluate(memory), right.evaluate(memory));
+      if (result == Operator.NOT_APPLICABLE) {
+        return interpreter.executeOperation(operation, memory);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Short-circuit evaluation of the logical operators on numeric operands.
+   */
+  private static class LogicalNode extends CompiledExpression {
+
+    private final AbstractInterpreter interpreter;
+    private final Operation operation;
+    private final boolean conjunction;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    LogicalNode(AbstractInterpreter interpreter, Operation operation, boolean conjunction,
+        CompiledExpression left, CompiledExpression right) {
+      super(true);
+      this.interpreter = interpreter;
+      this.operation = operation;
+      this.conjunction = conjunction;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      Object leftValue = left.evaluate(memory);
+      if (!NumericOperator.isNumeric(leftValue)) {
+        return interpreter.executeOperation(operation, memory);
+      }
+      if (interpreter.isTrue(leftValue) != conjunction) {
+        return conjunction ? 0 : 1;
+      }
+      Object rightValue = right.evaluate(memory);
+      if (!NumericOperator.isNumeric(rightValue)) {
+        return interpreter.executeOperation(operation, memory);
+      }
+      return interpreter.isTrue(rightValue) ? 1 : 0;
+    }
+  }
+
+  /**
+   * Evaluates only the selected branch of the conditional operator.
+   */
+  private static class ConditionalNode extends CompiledExpression {
+
+    private final AbstractInterpreter interpreter;
+    private final Operation operation;
+    private final CompiledExpression condition;
+    private final CompiledExpression thenBranch;
+    private final CompiledExpression elseBranch;
+
+    ConditionalNode(AbstractInterpreter interpreter, Operation operation,
+        CompiledExpression condition, CompiledExpression thenBranch,
+        CompiledExpression elseBranch) {
+      super(true);
+      this.interpreter = interpreter;
+      this.operation = operation;
+      this.condition = condition;
+      this.thenBranch = thenBranch;
+      this.elseBranch = elseBranch;
+    }
+
+    @Override
+    public Object evaluate(Memory memory) {
+      Object value = condition.evaluate(memory);
+      if (!(value instanceof Boolean) && !NumericOperator.isNumeric(value)) {
+        return interpreter.executeOperation(operation, memory);
+      }
+      return interpreter.isTrue(value) ? thenBranch.evaluate(memory)
+          : elseBranch.evaluate(memory);
+    }
+  }
+}
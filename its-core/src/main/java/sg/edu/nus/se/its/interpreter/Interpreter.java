@@ -1,6 +1,7 @@
 package sg.edu.nus.se.its.interpreter;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import org.javatuples.Pair;
 import sg.edu.nus.se.its.model.Constant;
 import sg.edu.nus.se.its.model.Expression;
@@ -33,6 +34,41 @@ public interface Interpreter {
    */
   public Trace executeProgram(Program program, Input input);
 
+  /**
+   * Executes a program with the given input and passes every trace entry to the listener, which
+   * can stop the execution early. The default implementation replays the complete trace;
+   * interpreters that support streaming stop the execution itself.
+   *
+   * @param program -- Program object
+   * @param input -- program's input
+   * @param listener -- consumer of the trace entries
+   * @return true if the program ran to completion, false if the listener stopped it
+   */
+  public default boolean executeProgram(Program program, Input input, TraceListener listener) {
+    for (TraceEntry entry : executeProgram(program, input)) {
+      if (listener.onEntry(entry) == TraceListener.Signal.STOP) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Executes a program on every given input and produces one execution trace per input. The
+   * inputs are executed in parallel by the given executor, e.g., a ForkJoinPool, and the traces
+   * are returned in the order of the inputs. The interpreter has to support concurrent executions.
+   *
+   * @param program -- Program object, which is not modified by the executions
+   * @param inputs -- program's inputs
+   * @param executor -- executor for the executions
+   * @return execution traces in the order of the inputs
+   * @throws RuntimeException of the first failed execution in the order of the inputs
+   */
+  public default List<Trace> executeProgram(Program program, List<Input> inputs,
+      Executor executor) {
+    return BatchExecution.run(inputs, executor, input -> executeProgram(program, input));
+  }
+
   /**
    * Executes the provided program element with respect to the given memory.
    *
@@ -0,0 +1,66 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Memory;
+
+/**
+ * Blocks of a function linked into an array: the locations are numbered densely in ascending
+ * order and every block is compiled once. Locations that only have transitions are linked as
+ * blocks without assignments. The transitions are taken with
+ * {@link AbstractInterpreter#nextLocation}, so that interpreters that override the control flow
+ * behave the same in the linked execution; the target location is mapped to its block by a binary
+ * search instead of a map lookup.
+ */
+class LinkedFunction {
+
+  /**
+   * Successor of a block whose function returns.
+   */
+  static final int RETURN = -1;
+
+  private final Function function;
+  private final int[] locations;
+  private final CompiledBlock[] blocks;
+
+  LinkedFunction(AbstractInterpreter interpreter, Function function) {
+    this.function = function;
+    this.locations = Stream.concat(function.getLocexprs().keySet().stream(),
+        function.getLoctrans().keySet().stream()).mapToInt(Integer::intValue).sorted().distinct()
+        .toArray();
+    this.blocks = new CompiledBlock[locations.length];
+    CompiledFunction compiled = new CompiledFunction(interpreter, function);
+    for (int i = 0; i < locations.length; i++) {
+      blocks[i] = compiled.getBlock(function, locations[i]);
+    }
+  }
+
+  /**
+   * Returns the index of the entry block.
+   */
+  int getEntry() {
+    return indexOf(function.getInitloc());
+  }
+
+  CompiledBlock getBlock(int index) {
+    return blocks[index];
+  }
+
+  /**
+   * Returns the index of the block that is executed after the block with the given index, or
+   * {@link #RETURN} if the function returns.
+   */
+  int next(int index, Memory memory, AbstractInterpreter interpreter) {
+    Integer location = interpreter.nextLocation(function, locations[index], memory);
+    return location == null ? RETURN : indexOf(location);
+  }
+
+  private int indexOf(int location) {
+    int index = Arrays.binarySearch(locations, location);
+    if (index < 0) {
+      throw new RuntimeException(String.format("Unknown location: %d", location));
+    }
+    return index;
+  }
+}
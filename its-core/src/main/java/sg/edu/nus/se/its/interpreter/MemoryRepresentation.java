@@ -0,0 +1,19 @@
+package sg.edu.nus.se.its.interpreter;
+
+/**
+ * Representation of the Memory objects that are created during interpretation.
+ */
+public enum MemoryRepresentation {
+
+  /**
+   * Values are stored in a dense array indexed by the slots of the function's memory layout. Trace
+   * entries copy the array.
+   */
+  SLOT,
+
+  /**
+   * Values are stored in a persistent hash array mapped trie. Trace entries share all values that
+   * did not change since the previous entry.
+   */
+  PERSISTENT
+}
@@ -0,0 +1,359 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import sg.edu.nus.se.its.model.Opcode;
+import sg.edu.nus.se.its.model.Operation;
+
+/**
+ * Arithmetic, comparison and logical operators on numbers with C semantics. The operands are
+ * promoted to the widest type of int, long, float and double; characters count as int.
+ * Comparisons and logical operators return 1 or 0. All other operands, e.g., strings or undefined
+ * values, as well as integer division by zero are left to the interpreter.
+ */
+public enum NumericOperator implements Operator {
+
+  ADD(Opcode.ADD) {
+    @Override
+    public Object apply(Object operand) {
+      switch (rank(operand)) {
+        case INT:
+          // characters and short integers are promoted to int
+          return intValue(operand);
+        case 0:
+          return NOT_APPLICABLE;
+        default:
+          return operand;
+      }
+    }
+
+    @Override
+    public Object apply(Object left, Object right) {
+      switch (rank(left, right)) {
+        case INT:
+          return intValue(left) + intValue(right);
+        case LONG:
+          return longValue(left) + longValue(right);
+        case FLOAT:
+          return floatValue(left) + floatValue(right);
+        case DOUBLE:
+          return doubleValue(left) + doubleValue(right);
+        default:
+          return NOT_APPLICABLE;
+      }
+    }
+  },
+
+  SUB(Opcode.SUB) {
+    @Override
+    public Object apply(Object operand) {
+      switch (rank(operand)) {
+        case INT:
+          return -intValue(operand);
+        case LONG:
+          return -longValue(operand);
+        case FLOAT:
+          return -floatValue(operand);
+        case DOUBLE:
+          return -doubleValue(operand);
+        default:
+          return NOT_APPLICABLE;
+      }
+    }
+
+    @Override
+    public Object apply(Object left, Object right) {
+      switch (rank(left, right)) {
+        case INT:
+          return intValue(left) - intValue(right);
+        case LONG:
+          return longValue(left) - longValue(right);
+        case FLOAT:
+          return floatValue(left) - floatValue(right);
+        case DOUBLE:
+          return doubleValue(left) - doubleValue(right);
+        default:
+          return NOT_APPLICABLE;
+      }
+    }
+  },
+
+  MUL(Opcode.MUL) {
+    @Override
+    public Object apply(Object left, Object right) {
+      switch (rank(left, right)) {
+        case INT:
+          return intValue(left) * intValue(right);
+        case LONG:
+          return longValue(left) * longValue(right);
+        case FLOAT:
+          return floatValue(left) * floatValue(right);
+        case DOUBLE:
+          return doubleValue(left) * doubleValue(right);
+        default:
+          return NOT_APPLICABLE;
+      }
+    }
+  },
+
+  DIV(Opcode.DIV) {
+    @Override
+    public Object apply(Object left, Object right) {
+      switch (rank(left, right)) {
+        case INT:
+          return intValue(right) == 0 ? NOT_APPLICABLE : intValue(left) / intValue(right);
+        case LONG:
+          return longValue(right) == 0 ? NOT_APPLICABLE : longValue(left) / longValue(right);
+        case FLOAT:
+          return floatValue(left) / floatValue(right);
+        case DOUBLE:
+          return doubleValue(left) / doubleValue(right);
+        default:
+          return NOT_APPLICABLE;
+      }
+    }
+  },
+
+  MOD(Opcode.MOD) {
+    @Override
+    public Object apply(Object left, Object right) {
+      switch (rank(left, right)) {
+        case INT:
+          return intValue(right) == 0 ? NOT_APPLICABLE : intValue(left) % intValue(right);
+        case LONG:
+          return longValue(right) == 0 ? NOT_APPLICABLE : longValue(left) % longValue(right);
+        default:
+          return NOT_APPLICABLE;
+      }
+    }
+  },
+
+  LT(Opcode.LT) {
+    @Override
+    public Object apply(Object left, Object right) {
+      return compare(this, left, right);
+    }
+  },
+
+  LE(Opcode.LE) {
+    @Override
+    public Object apply(Object left, Object right) {
+      return compare(this, left, right);
+    }
+  },
+
+  GT(Opcode.GT) {
+    @Override
+    public Object apply(Object left, Object right) {
+      return compare(this, left, right);
+    }
+  },
+
+  GE(Opcode.GE) {
+    @Override
+    public Object apply(Object left, Object right) {
+      return compare(this, left, right);
+    }
+  },
+
+  EQ(Opcode.EQ) {
+    @Override
+    public Object apply(Object left, Object right) {
+      return compare(this, left, right);
+    }
+  },
+
+  NE(Opcode.NE) {
+    @Override
+    public Object apply(Object left, Object right) {
+      return compare(this, left, right);
+    }
+  },
+
+  NOT(Opcode.NOT) {
+    @Override
+    public Object apply(Object operand) {
+      int rank = rank(operand);
+      return rank == 0 ? NOT_APPLICABLE : truth(!isNonZero(rank, operand));
+    }
+  },
+
+  /**
+   * Logical and; the compiled expression evaluates the right operand only if necessary.
+   */
+  AND(Opcode.AND) {
+    @Override
+    public Object apply(Object left, Object right) {
+      int rank = rank(left, right);
+      return rank == 0 ? NOT_APPLICABLE
+          : truth(isNonZero(rank(left), left) && isNonZero(rank(right), right));
+    }
+  },
+
+  /**
+   * Logical or; the compiled expression evaluates the right operand only if necessary.
+   */
+  OR(Opcode.OR) {
+    @Override
+    public Object apply(Object left, Object right) {
+      int rank = rank(left, right);
+      return rank == 0 ? NOT_APPLICABLE
+          : truth(isNonZero(rank(left), left) || isNonZero(rank(right), right));
+    }
+  };
+
+  private static final int INT = 1;
+  private static final int LONG = 2;
+  private static final int FLOAT = 3;
+  private static final int DOUBLE = 4;
+
+  private static final Integer TRUE = 1;
+  private static final Integer FALSE = 0;
+
+  private static final Map<Opcode, NumericOperator> BY_OPCODE = new EnumMap<>(Opcode.class);
+
+  static {
+    for (NumericOperator operator : values()) {
+      BY_OPCODE.put(operator.opcode, operator);
+    }
+  }
+
+  private final Opcode opcode;
+
+  NumericOperator(Opcode opcode) {
+    this.opcode = opcode;
+  }
+
+  public Opcode getOpcode() {
+    return opcode;
+  }
+
+  /**
+   * Returns the operator for the given operation, or null if there is none. Only the C symbols of
+   * the opcodes are resolved, since the Python operations have different semantics.
+   *
+   * @param operation -- Operation object
+   * @return NumericOperator or null
+   */
+  public static NumericOperator resolve(Operation operation) {
+    Opcode opcode = operation.getOpcode();
+    NumericOperator operator = BY_OPCODE.get(opcode);
+    if (operator == null || !opcode.isSymbol(operation.getName())) {
+      return null;
+    }
+    int arity = operation.getArgs().size();
+    boolean unary = operator == ADD || operator == SUB || operator == NOT;
+    boolean binary = operator != NOT;
+    return (arity == 1 && unary) || (arity == 2 && binary) ? operator : null;
+  }
+
+  /**
+   * Returns whether the value is a number or character handled by these operators.
+   */
+  static boolean isNumeric(Object value) {
+    return rank(value) != 0;
+  }
+
+  /**
+   * Returns the C truth value of a number of the given rank.
+   */
+  private static boolean isNonZero(int rank, Object value) {
+    switch (rank) {
+      case INT:
+        return intValue(value) != 0;
+      case LONG:
+        return longValue(value) != 0;
+      default:
+        return doubleValue(value) != 0;
+    }
+  }
+
+  private static Integer truth(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  private static int rank(Object value) {
+    if (value instanceof Integer || value instanceof Character || value instanceof Short
+        || value instanceof Byte) {
+      return INT;
+    }
+    if (value instanceof Long) {
+      return LONG;
+    }
+    if (value instanceof Float) {
+      return FLOAT;
+    }
+    if (value instanceof Double) {
+      return DOUBLE;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the rank of the promoted type of both operands, or 0 if either is not a number.
+   */
+  private static int rank(Object left, Object right) {
+    int leftRank = rank(left);
+    int rightRank = rank(right);
+    return leftRank == 0 || rightRank == 0 ? 0 : Math.max(leftRank, rightRank);
+  }
+
+  /**
+   * Compares both operands in the domain of their promoted type, where NaN is unordered.
+   */
+  private static Object compare(NumericOperator operator, Object left, Object right) {
+    int rank = rank(left, right);
+    if (rank == 0) {
+      return NOT_APPLICABLE;
+    }
+    if (rank == INT || rank == LONG) {
+      int result = Long.compare(longValue(left), longValue(right));
+      switch (operator) {
+        case LT:
+          return truth(result < 0);
+        case LE:
+          return truth(result <= 0);
+        case GT:
+          return truth(result > 0);
+        case GE:
+          return truth(result >= 0);
+        case EQ:
+          return truth(result == 0);
+        default:
+          return truth(result != 0);
+      }
+    }
+    double leftValue = doubleValue(left);
+    double rightValue = doubleValue(right);
+    switch (operator) {
+      case LT:
+        return truth(leftValue < rightValue);
+      case LE:
+        return truth(leftValue <= rightValue);
+      case GT:
+        return truth(leftValue > rightValue);
+      case GE:
+        return truth(leftValue >= rightValue);
+      case EQ:
+        return truth(leftValue == rightValue);
+      default:
+        return truth(leftValue != rightValue);
+    }
+  }
+
+  private static int intValue(Object value) {
+    return value instanceof Character ? (Character) value : ((Number) value).intValue();
+  }
+
+  private static long longValue(Object value) {
+    return value instanceof Character ? (Character) value : ((Number) value).longValue();
+  }
+
+  private static float floatValue(Object value) {
+    return value instanceof Character ? (Character) value : ((Number) value).floatValue();
+  }
+
+  private static double doubleValue(Object value) {
+    return value instanceof Character ? (Character) value : ((Number) value).doubleValue();
+  }
+}
@@ -0,0 +1,40 @@
+package sg.edu.nus.se.its.interpreter;
+
+/**
+ * Implementation of an operation on already evaluated operands. Operators are bound once when an
+ * expression is compiled. An operator returns {@link #NOT_APPLICABLE} for operands it does not
+ * handle, in which case the evaluation falls back to {@link Interpreter#executeOperation}.
+ */
+public interface Operator {
+
+  /**
+   * Result of an operator that cannot handle the given operands.
+   */
+  Object NOT_APPLICABLE = new Object() {
+    @Override
+    public String toString() {
+      return "NOT_APPLICABLE";
+    }
+  };
+
+  /**
+   * Applies the operator to a single operand.
+   *
+   * @param operand -- evaluated operand
+   * @return result or {@link #NOT_APPLICABLE}
+   */
+  default Object apply(Object operand) {
+    return NOT_APPLICABLE;
+  }
+
+  /**
+   * Applies the operator to two operands.
+   *
+   * @param left -- evaluated left operand
+   * @param right -- evaluated right operand
+   * @return result or {@link #NOT_APPLICABLE}
+   */
+  default Object apply(Object left, Object right) {
+    return NOT_APPLICABLE;
+  }
+}
@@ -0,0 +1,301 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Cache of execution traces, keyed by the fingerprint of the executed program and the input. The
+ * reference program of an assignment is executed on the same inputs for every submission, so that
+ * its traces can be computed once and shared by all submissions.
+ *
+ * <p>The cache is bounded by the estimated size of the traces and evicts the least recently used
+ * traces first. It is thread-safe: lookups do not block each other, and concurrent requests for a
+ * missing trace wait for a single execution. Failed executions are not cached.
+ *
+ * <p>The cached traces are shared. {@link #get} returns a copy of the trace with its own entries,
+ * whose memory snapshots are shared and must not be modified. The traces of one cache should be
+ * produced by interpreters with the same semantics and configuration.
+ */
+public class ReferenceTraceCache {
+
+  /**
+   * Estimated size of a trace entry without its memory, in bytes.
+   */
+  private static final long ENTRY_SIZE = 64;
+
+  /**
+   * Estimated size of one variable in a memory snapshot, in bytes.
+   */
+  private static final long VARIABLE_SIZE = 48;
+
+  private final long maxSize;
+  private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+  private final AtomicLong size = new AtomicLong();
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates a cache for traces of the given estimated total size.
+   *
+   * @param maxSize -- maximum estimated size of the cached traces in bytes
+   */
+  public ReferenceTraceCache(long maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid cache size: %d", maxSize));
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the trace of the program with the given fingerprint on the input, and executes the
+   * program if the trace is not cached.
+   *
+   * @param fingerprint -- fingerprint of the program, see {@link #fingerprint(Program)}
+   * @param input -- program's input
+   * @param execution -- execution of the program on the input
+   * @return copy of the cached trace
+   */
+  public Trace get(String fingerprint, Input input, Supplier<Trace> execution) {
+    Key key = new Key(fingerprint, input);
+    Slot slot = slots.get(key);
+    if (slot == null) {
+      Slot newSlot = new Slot();
+      slot = slots.putIfAbsent(key, newSlot);
+      if (slot == null) {
+        misses.incrementAndGet();
+        return copy(compute(key, newSlot, execution));
+      }
+    }
+    hits.incrementAndGet();
+    slot.lastAccess = clock.incrementAndGet();
+    try {
+      return copy(slot.trace.join());
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private Trace compute(Key key, Slot slot, Supplier<Trace> execution) {
+    slot.lastAccess = clock.incrementAndGet();
+    Trace trace;
+    try {
+      trace = execution.get();
+      slot.size = sizeOf(trace);
+    } catch (Throwable e) {
+      // also errors, e.g., a stack overflow, so that no other thread waits for the slot forever
+      slots.remove(key, slot);
+      slot.trace.completeExceptionally(e);
+      throw e;
+    }
+    slot.trace.complete(trace);
+    if (size.addAndGet(slot.size) > maxSize) {
+      evict();
+    }
+    return trace;
+  }
+
+  /**
+   * Removes the least recently used traces until the cache fits into its size.
+   */
+  private synchronized void evict() {
+    if (size.get() <= maxSize) {
+      return;
+    }
+    List<Map.Entry<Key, Slot>> candidates = new ArrayList<>();
+    for (Map.Entry<Key, Slot> entry : slots.entrySet()) {
+      if (entry.getValue().trace.isDone()) {
+        candidates.add(entry);
+      }
+    }
+    candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+    for (Map.Entry<Key, Slot> entry : candidates) {
+      if (size.get() <= maxSize) {
+        break;
+      }
+      if (slots.remove(entry.getKey(), entry.getValue())) {
+        size.addAndGet(-entry.getValue().size);
+      }
+    }
+  }
+
+  /**
+   * Removes all traces.
+   */
+  public synchronized void clear() {
+    for (Map.Entry<Key, Slot> entry : slots.entrySet()) {
+      if (entry.getValue().trace.isDone() && slots.remove(entry.getKey(), entry.getValue())) {
+        size.addAndGet(-entry.getValue().size);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of cached traces, including traces that are being computed.
+   */
+  public int size() {
+    return slots.size();
+  }
+
+  /**
+   * Returns the estimated size of the cached traces in bytes.
+   */
+  public long getEstimatedSize() {
+    return size.get();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private static long sizeOf(Trace trace) {
+    long result = 0;
+    for (TraceEntry entry : trace) {
+      result += ENTRY_SIZE + VARIABLE_SIZE * entry.getMem().size();
+    }
+    return result;
+  }
+
+  private static Trace copy(Trace trace) {
+    Trace copy = new Trace();
+    for (TraceEntry entry : trace) {
+      copy.add(new TraceEntry(entry.getFunctionName(), entry.getLocation(), entry.getMem()));
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the SHA-256 fingerprint of the structure of the program, i.e., of its functions,
+   * parameters, types, assignments and transitions. Structurally equal programs have the same
+   * fingerprint, independent of the order of the entries in their maps.
+   *
+   * @param program -- Program object
+   * @return hexadecimal SHA-256 hash
+   */
+  public static String fingerprint(Program program) {
+    StringBuilder text = new StringBuilder();
+    for (Function function : new TreeMap<>(program.getFncs()).values()) {
+      text.append("fun ").append(function.getName()).append(' ').append(function.getRettype())
+          .append(' ').append(function.getInitloc()).append('\n');
+      for (Pair<String, String> param : function.getParams()) {
+        text.append("param ").append(param.getValue0()).append(' ').append(param.getValue1())
+            .append('\n');
+      }
+      for (Map.Entry<String, String> type : new TreeMap<>(function.getTypes()).entrySet()) {
+        text.append("type ").append(type.getKey()).append(' ').append(type.getValue())
+            .append('\n');
+      }
+      for (Map.Entry<Integer, ArrayList<Pair<String, Expression>>> location : new TreeMap<>(
+          function.getLocexprs()).entrySet()) {
+        text.append("loc ").append(location.getKey()).append('\n');
+        for (Pair<String, Expression> assignment : location.getValue()) {
+          text.append(assignment.getValue0()).append(" := ");
+          appendExpression(text, assignment.getValue1());
+          text.append('\n');
+        }
+        Map<Boolean, Integer> transitions = function.getLoctrans().get(location.getKey());
+        if (transitions != null) {
+          text.append("trans ").append(transitions.get(true)).append(' ')
+              .append(transitions.get(false)).append('\n');
+        }
+      }
+    }
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256")
+          .digest(text.toString().getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void appendExpression(StringBuilder text, Expression expression) {
+    if (expression instanceof Constant) {
+      text.append("C[").append(((Constant) expression).getValue()).append(']');
+    } else if (expression instanceof Variable) {
+      text.append("V[").append(((Variable) expression).getName()).append(']');
+    } else if (expression instanceof Operation) {
+      Operation operation = (Operation) expression;
+      text.append("O[").append(operation.getName());
+      for (Expression arg : operation.getArgs()) {
+        text.append(' ');
+        appendExpression(text, arg);
+      }
+      text.append(']');
+    } else {
+      text.append(expression);
+    }
+  }
+
+  private static final class Slot {
+
+    private final CompletableFuture<Trace> trace = new CompletableFuture<>();
+    private volatile long lastAccess;
+    private long size;
+  }
+
+  private static final class Key {
+
+    private final String fingerprint;
+    private final List<String> inputs;
+    private final List<String> args;
+    private final int hash;
+
+    Key(String fingerprint, Input input) {
+      this.fingerprint = fingerprint;
+      this.inputs = Arrays.asList(input.getInputs().clone());
+      this.args = Arrays.asList(input.getArgs().clone());
+      this.hash = Objects.hash(fingerprint, inputs, args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash && fingerprint.equals(key.fingerprint) && inputs.equals(key.inputs)
+          && args.equals(key.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * View of a trace in a {@link TraceStore}. The entries are decoded from the mapped file whenever
+ * they are accessed, so that a stored trace does not occupy the heap. {@link #asTrace()} provides
+ * the Trace API on top of this view, {@link #toTrace()} decodes all entries at once.
+ */
+public class StoredTrace implements Iterable<TraceEntry> {
+
+  private final TraceStore store;
+  private final ByteBuffer buffer;
+  private final int offset;
+  private final int size;
+  private final int recordCount;
+
+  StoredTrace(TraceStore store, int offset) {
+    this.store = store;
+    this.buffer = store.buffer();
+    this.offset = offset;
+    this.size = buffer.getInt(offset);
+    this.recordCount = buffer.getInt(offset + 4);
+  }
+
+  /**
+   * Returns the number of entries.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Decodes the entry at the given position.
+   *
+   * @param index -- position of the entry in the trace
+   * @return TraceEntry object
+   */
+  public TraceEntry getEntry(int index) {
+    int position = entryOffset(index);
+    return new TraceEntry(store.string(buffer.getInt(position)), buffer.getInt(position + 4),
+        decodeMemory(position));
+  }
+
+  private int entryOffset(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(String.format("Invalid trace entry: %d", index));
+    }
+    return offset + buffer.getInt(offset + 8 + 4 * index);
+  }
+
+  private Memory decodeMemory(int position) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(position + 8);
+    int variables = view.getInt();
+    Memory memory = new Memory();
+    for (int i = 0; i < variables; i++) {
+      String name = store.string(view.getInt());
+      memory.put(name, readValue(view));
+    }
+    return memory;
+  }
+
+  private Object readValue(ByteBuffer view) {
+    byte tag = view.get();
+    switch (tag) {
+      case TraceStoreWriter.TAG_NULL:
+        return null;
+      case TraceStoreWriter.TAG_UNDEFINED:
+        return Constants.UNDEFINED;
+      case TraceStoreWriter.TAG_INT:
+        return view.getInt();
+      case TraceStoreWriter.TAG_LONG:
+        return view.getLong();
+      case TraceStoreWriter.TAG_DOUBLE:
+        return view.getDouble();
+      case TraceStoreWriter.TAG_FLOAT:
+        return view.getFloat();
+      case TraceStoreWriter.TAG_CHAR:
+        return view.getChar();
+      case TraceStoreWriter.TAG_BOOLEAN:
+        return view.get() != 0;
+      case TraceStoreWriter.TAG_STRING:
+        return store.string(view.getInt());
+      case TraceStoreWriter.TAG_LIST:
+        return readList(view);
+      case TraceStoreWriter.TAG_MAP:
+        return readMap(view);
+      case TraceStoreWriter.TAG_ARRAY:
+        return readArray(view);
+      default:
+        throw new RuntimeException(String.format("Invalid value tag: %d", tag));
+    }
+  }
+
+  private List<Object> readList(ByteBuffer view) {
+    int length = view.getInt();
+    List<Object> list = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      list.add(readValue(view));
+    }
+    return list;
+  }
+
+  private Map<Object, Object> readMap(ByteBuffer view) {
+    int length = view.getInt();
+    Map<Object, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < length; i++) {
+      Object key = readValue(view);
+      map.put(key, readValue(view));
+    }
+    return map;
+  }
+
+  private Object readArray(ByteBuffer view) {
+    String type = store.string(view.getInt());
+    int length = view.getInt();
+    Object array;
+    try {
+      array = Array.newInstance(Class.forName(type).getComponentType(), length);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException(String.format("Invalid array type: %s", type));
+    }
+    for (int i = 0; i < length; i++) {
+      Array.set(array, i, readValue(view));
+    }
+    return array;
+  }
+
+  public TraceEntry getLastEntry() {
+    return size == 0 ? null : getEntry(size - 1);
+  }
+
+  /**
+   * Returns the positions of the entries of the given function and location, in trace order.
+   *
+   * @param fnc -- name of the function
+   * @param location -- program location
+   * @return positions of the matching entries
+   */
+  public int[] positions(String fnc, int location) {
+    int records = offset + 8 + 4 * size;
+    int low = 0;
+    int high = recordCount - 1;
+    // find the first record of the location
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (buffer.getInt(records + 16 * middle) < location) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    for (int i = low; i < recordCount; i++) {
+      int record = records + 16 * i;
+      if (buffer.getInt(record) != location) {
+        break;
+      }
+      if (store.string(buffer.getInt(record + 4)).equals(fnc)) {
+        int[] positions = new int[buffer.getInt(record + 8)];
+        int start = offset + buffer.getInt(record + 12);
+        for (int j = 0; j < positions.length; j++) {
+          positions[j] = buffer.getInt(start + 4 * j);
+        }
+        return positions;
+      }
+    }
+    return new int[0];
+  }
+
+  /**
+   * Decodes the entries of the given function and location, in trace order.
+   *
+   * @param fnc -- name of the function
+   * @param location -- program location
+   * @return list of TraceEntry objects
+   */
+  public List<TraceEntry> getAll(String fnc, int location) {
+    int[] positions = positions(fnc, location);
+    List<TraceEntry> entries = new ArrayList<>(positions.length);
+    for (int position : positions) {
+      entries.add(getEntry(position));
+    }
+    return entries;
+  }
+
+  /**
+   * Returns a Trace of the stored entries, which decodes the memory of an entry only when it is
+   * accessed and keeps it as long as memory permits. Only the function names and locations of the
+   * entries are read up front to index the trace.
+   *
+   * @return Trace object backed by the store
+   */
+  public Trace asTrace() {
+    Trace trace = new Trace();
+    for (int i = 0; i < size; i++) {
+      int position = entryOffset(i);
+      trace.add(new LazyTraceEntry(store.string(buffer.getInt(position)),
+          buffer.getInt(position + 4), position));
+    }
+    return trace;
+  }
+
+  /**
+   * Decodes all entries into a Trace.
+   */
+  public Trace toTrace() {
+    Trace trace = new Trace();
+    for (int i = 0; i < size; i++) {
+      trace.add(getEntry(i));
+    }
+    return trace;
+  }
+
+  /**
+   * Trace entry whose memory is decoded from the store on first access.
+   */
+  private class LazyTraceEntry extends TraceEntry {
+
+    private final int position;
+    private SoftReference<Memory> memory;
+
+    LazyTraceEntry(String functionName, int location, int position) {
+      super(functionName, location, null);
+      this.position = position;
+    }
+
+    @Override
+    public Memory getMem() {
+      Memory result = memory == null ? null : memory.get();
+      if (result == null) {
+        result = decodeMemory(position);
+        memory = new SoftReference<>(result);
+      }
+      return result;
+    }
+  }
+
+  @Override
+  public Iterator<TraceEntry> iterator() {
+    return new Iterator<TraceEntry>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public TraceEntry next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return getEntry(next++);
+      }
+    };
+  }
+}
@@ -1,19 +1,61 @@
 package sg.edu.nus.se.its.interpreter;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 import sg.edu.nus.se.its.model.Memory;
 
 /**
  * Execution trace as result of program execution during interpretation.
+ *
+ * <p>The trace keeps an index from locations, and from functions and locations, to the positions
+ * of the matching entries, which is extended as entries are added. The list returned by
+ * {@link #getEntries()} is a view that keeps the index current: appended entries are indexed on
+ * the next lookup, and any other modification rebuilds the index.
  */
-public class Trace implements Iterable<TraceEntry> {
+public class Trace implements Iterable<TraceEntry>, TraceListener {
   private List<TraceEntry> entries = new ArrayList<>();
 
+  private final transient Map<Integer, Positions> locationIndex = new HashMap<>();
+  private final transient Map<String, Map<Integer, Positions>> functionIndex = new HashMap<>();
+
+  /**
+   * Number of entries covered by the index.
+   */
+  private transient int indexedCount;
+
+  /**
+   * View of the entries returned by {@link #getEntries()}.
+   */
+  private transient List<TraceEntry> entryView;
+
+  /**
+   * Cursor of {@link #getUnique(int)}.
+   */
+  private transient TraceCursor uniqueCursor;
+
   public void add(String fnc, int loc, Memory mem) {
-    entries.add(new TraceEntry(fnc, loc, mem));
+    add(new TraceEntry(fnc, loc, mem));
+  }
+
+  public void add(TraceEntry entry) {
+    entries.add(entry);
+    updateIndex();
+  }
+
+  /**
+   * Collects the entry, so that a Trace can record a streamed execution.
+   */
+  @Override
+  public Signal onEntry(TraceEntry entry) {
+    add(entry);
+    return Signal.CONTINUE;
   }
 
   /**
@@ -25,12 +67,24 @@ public class Trace implements Iterable<TraceEntry> {
    * @return TraceEntry object
    */
   public TraceEntry getUnique(int location) {
-    for (TraceEntry entry : getEntries()) {
-      if (entry.getLocation() == location && entry.setChecked()) {
-        return entry;
-      }
+    if (uniqueCursor == null) {
+      uniqueCursor = cursor();
+    }
+    TraceEntry entry = uniqueCursor.next(location);
+    while (entry != null && !entry.setChecked()) {
+      entry = uniqueCursor.next(location);
     }
-    return null;
+    return entry;
+  }
+
+  /**
+   * Creates a new cursor, which returns the entries of every location in order, independently of
+   * other cursors.
+   *
+   * @return TraceCursor object
+   */
+  public TraceCursor cursor() {
+    return new TraceCursor(this);
   }
 
   /**
@@ -40,15 +94,73 @@ public class Trace implements Iterable<TraceEntry> {
    * @return list of TraceEntry objects
    */
   public List<TraceEntry> getAll(int location) {
-    List<TraceEntry> matchingTraceEntry = new ArrayList<>();
-    for (TraceEntry entry : getEntries()) {
-      if (entry.getLocation() == location) {
-        matchingTraceEntry.add(entry);
-      }
+    return toEntries(positions(location));
+  }
+
+  /**
+   * Returns all matching TraceEntry objects for the given function and location id.
+   *
+   * @param fnc - name of the function
+   * @param location - program location to match
+   * @return list of TraceEntry objects
+   */
+  public List<TraceEntry> getAll(String fnc, int location) {
+    return toEntries(positions(fnc, location));
+  }
+
+  private List<TraceEntry> toEntries(Positions positions) {
+    if (positions == null) {
+      return new ArrayList<>();
+    }
+    List<TraceEntry> matchingTraceEntry = new ArrayList<>(positions.size);
+    for (int i = 0; i < positions.size; i++) {
+      matchingTraceEntry.add(entries.get(positions.values[i]));
     }
     return matchingTraceEntry;
   }
 
+  /**
+   * Returns the positions of the entries for the given location, or null if there are none.
+   */
+  Positions positions(int location) {
+    updateIndex();
+    return locationIndex.get(location);
+  }
+
+  /**
+   * Returns the positions of the entries for the given function and location, or null if there
+   * are none.
+   */
+  Positions positions(String fnc, int location) {
+    updateIndex();
+    Map<Integer, Positions> locations = functionIndex.get(fnc);
+    return locations == null ? null : locations.get(location);
+  }
+
+  TraceEntry entryAt(int position) {
+    return entries.get(position);
+  }
+
+  private void updateIndex() {
+    int size = entries.size();
+    for (int i = indexedCount; i < size; i++) {
+      TraceEntry entry = entries.get(i);
+      locationIndex.computeIfAbsent(entry.getLocation(), location -> new Positions()).add(i);
+      functionIndex.computeIfAbsent(entry.getFunctionName(), fnc -> new HashMap<>())
+          .computeIfAbsent(entry.getLocation(), location -> new Positions()).add(i);
+    }
+    indexedCount = size;
+  }
+
+  /**
+   * Discards the index after a modification other than appending entries.
+   */
+  private void invalidateIndex() {
+    locationIndex.clear();
+    functionIndex.clear();
+    indexedCount = 0;
+  }
+
   public TraceEntry getLastEntry() {
     return entries.get(entries.size() - 1);
   }
@@ -65,11 +177,89 @@ public class Trace implements Iterable<TraceEntry> {
     return String.format("Trace [%s]", entryString);
   }
 
+  /**
+   * Returns the entries of this trace as a modifiable list, whose modifications are reflected in
+   * the lookups by location.
+   */
   public List<TraceEntry> getEntries() {
-    return entries;
+    if (entryView == null) {
+      entryView = new EntryList();
+    }
+    return entryView;
   }
 
   public int size() {
     return entries.size();
   }
+
+  /**
+   * List of the entries that keeps the index current.
+   */
+  private final class EntryList extends AbstractList<TraceEntry> implements RandomAccess {
+
+    @Override
+    public TraceEntry get(int index) {
+      return entries.get(index);
+    }
+
+    @Override
+    public int size() {
+      return entries.size();
+    }
+
+    @Override
+    public TraceEntry set(int index, TraceEntry entry) {
+      TraceEntry previous = entries.set(index, entry);
+      invalidateIndex();
+      return previous;
+    }
+
+    @Override
+    public void add(int index, TraceEntry entry) {
+      entries.add(index, entry);
+      modCount++;
+      if (index < entries.size() - 1) {
+        invalidateIndex();
+      }
+    }
+
+    @Override
+    public TraceEntry remove(int index) {
+      TraceEntry previous = entries.remove(index);
+      modCount++;
+      invalidateIndex();
+      return previous;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+      entries.subList(fromIndex, toIndex).clear();
+      modCount++;
+      invalidateIndex();
+    }
+  }
+
+  /**
+   * Growable list of entry positions in ascending order.
+   */
+  static final class Positions {
+
+    private int[] values = new int[4];
+    private int size;
+
+    void add(int position) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = position;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+  }
 }
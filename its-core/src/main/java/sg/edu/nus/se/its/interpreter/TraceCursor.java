@@ -0,0 +1,64 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Iterates the entries of a trace per location, so that every entry is returned at most once.
+ * Unlike {@link Trace#getUnique(int)}, a cursor does not set the checked flag of the entries:
+ * several cursors can walk the same trace independently, e.g., one per structural mapping during
+ * error localization.
+ */
+public class TraceCursor {
+
+  private final Trace trace;
+  private final Map<Integer, Integer> nextByLocation = new HashMap<>();
+  private final Map<String, Map<Integer, Integer>> nextByFunction = new HashMap<>();
+
+  TraceCursor(Trace trace) {
+    this.trace = trace;
+  }
+
+  /**
+   * Returns the next entry for the given location, or null if all entries have been returned.
+   *
+   * @param location - program location to match
+   * @return TraceEntry object
+   */
+  public TraceEntry next(int location) {
+    int next = nextByLocation.getOrDefault(location, 0);
+    Trace.Positions positions = trace.positions(location);
+    if (positions == null || next >= positions.size()) {
+      return null;
+    }
+    nextByLocation.put(location, next + 1);
+    return trace.entryAt(positions.get(next));
+  }
+
+  /**
+   * Returns the next entry for the given function and location, or null if all entries have been
+   * returned. Entries returned by this method are tracked separately from {@link #next(int)}.
+   *
+   * @param fnc - name of the function
+   * @param location - program location to match
+   * @return TraceEntry object
+   */
+  public TraceEntry next(String fnc, int location) {
+    Map<Integer, Integer> locations = nextByFunction.computeIfAbsent(fnc, name -> new HashMap<>());
+    int next = locations.getOrDefault(location, 0);
+    Trace.Positions positions = trace.positions(fnc, location);
+    if (positions == null || next >= positions.size()) {
+      return null;
+    }
+    locations.put(location, next + 1);
+    return trace.entryAt(positions.get(next));
+  }
+
+  /**
+   * Starts over, so that all entries are returned again.
+   */
+  public void reset() {
+    nextByLocation.clear();
+    nextByFunction.clear();
+  }
+}
@@ -21,6 +21,16 @@ public class TraceEntry {
    */
   private boolean isChecked;
 
+  /**
+   * Variables assigned by the executed block, or null if unknown.
+   */
+  private transient String[] assignedVariables;
+
+  /**
+   * Identity of the function invocation that executed the block, or null if unknown.
+   */
+  private transient Object frame;
+
   /**
    * Creates a new trace entry for the given function name, memory, and code location.
    */
@@ -46,6 +56,31 @@ public class TraceEntry {
     return mem;
   }
 
+  /**
+   * Returns the variables assigned by the executed block, or null if unknown. Together with
+   * {@link #getFrame()}, they tell which variables changed since the previous block of the same
+   * function invocation: the assigned variables of this block, whose values are primed, and those
+   * of the previous block, whose values were committed.
+   */
+  String[] getAssignedVariables() {
+    return assignedVariables;
+  }
+
+  void setAssignedVariables(String[] assignedVariables) {
+    this.assignedVariables = assignedVariables;
+  }
+
+  /**
+   * Returns the identity of the function invocation that executed the block, or null if unknown.
+   */
+  Object getFrame() {
+    return frame;
+  }
+
+  void setFrame(Object frame) {
+    this.frame = frame;
+  }
+
   /**
    * Sets the "isChecked" flag to true and returns whether there was any change in its value.
    *
@@ -59,6 +94,7 @@ public class TraceEntry {
 
   @Override
   public String toString() {
-    return String.format("(fnc=%s, loc=%d, mem=%s)", this.functionName, this.location, this.mem);
+    return String.format("(fnc=%s, loc=%d, mem=%s)", this.functionName, this.location,
+        getMem());
   }
 }
@@ -0,0 +1,25 @@
+package sg.edu.nus.se.its.interpreter;
+
+/**
+ * Consumer of the trace entries of a program execution, which receives every entry as soon as it
+ * is produced and decides whether the execution continues.
+ */
+@FunctionalInterface
+public interface TraceListener {
+
+  /**
+   * Decision of a listener after receiving an entry.
+   */
+  enum Signal {
+    CONTINUE, STOP
+  }
+
+  /**
+   * Receives the next entry of the execution.
+   *
+   * @param entry -- TraceEntry object
+   * @return {@link Signal#STOP} to stop the execution after this entry, otherwise
+   *     {@link Signal#CONTINUE}
+   */
+  Signal onEntry(TraceEntry entry);
+}
@@ -0,0 +1,153 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+
+/**
+ * Read-only store of precomputed reference traces, which is mapped into memory from a file
+ * written by {@link TraceStoreWriter}. The traces stay in the mapped file, which the operating
+ * system shares between all processes that map it; only the entries that are accessed are decoded,
+ * see {@link StoredTrace}.
+ *
+ * <p>The store is thread-safe. The mapping remains valid after {@link #close()} until the store is
+ * garbage collected.
+ */
+public class TraceStore implements Closeable {
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final int stringCount;
+  private final int stringTableOffset;
+  private final AtomicReferenceArray<String> strings;
+  private final Map<String, Integer> traces;
+
+  private TraceStore(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+    this.channel = channel;
+    this.buffer = buffer;
+    if (buffer.capacity() < TraceStoreWriter.HEADER_SIZE
+        || buffer.getLong(0) != TraceStoreWriter.MAGIC) {
+      throw new IOException("Not a trace store");
+    }
+    int version = buffer.getInt(8);
+    if (version != TraceStoreWriter.VERSION) {
+      throw new IOException(String.format("Unsupported trace store version: %d", version));
+    }
+    this.stringCount = buffer.getInt(12);
+    int traceCount = buffer.getInt(16);
+    this.stringTableOffset = (int) buffer.getLong(20);
+    int directoryOffset = (int) buffer.getLong(28);
+    this.strings = new AtomicReferenceArray<>(stringCount);
+    this.traces = new HashMap<>(traceCount * 2);
+    for (int i = 0; i < traceCount; i++) {
+      int record = directoryOffset + 16 * i;
+      String key = string(buffer.getInt(record)) + '\n' + string(buffer.getInt(record + 4));
+      traces.put(key, (int) buffer.getLong(record + 8));
+    }
+  }
+
+  /**
+   * Maps the store in the given file.
+   *
+   * @param path -- path of the store file
+   * @return TraceStore object
+   * @throws IOException if the file cannot be read or is not a trace store
+   */
+  public static TraceStore open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new TraceStore(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          channel.size()));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the stored trace of the program with the given fingerprint on the input.
+   *
+   * @param fingerprint -- fingerprint of the program, see
+   *     {@link ReferenceTraceCache#fingerprint(Program)}
+   * @param input -- program's input
+   * @return StoredTrace object, or null if the store has no such trace
+   */
+  public StoredTrace get(String fingerprint, Input input) {
+    Integer offset = traces.get(fingerprint + '\n' + inputKey(input));
+    return offset == null ? null : new StoredTrace(this, offset);
+  }
+
+  /**
+   * Returns the stored trace of the program on the input, or null if there is none.
+   */
+  public StoredTrace get(Program program, Input input) {
+    return get(ReferenceTraceCache.fingerprint(program), input);
+  }
+
+  /**
+   * Returns the number of stored traces.
+   */
+  public int size() {
+    return traces.size();
+  }
+
+  ByteBuffer buffer() {
+    return buffer;
+  }
+
+  /**
+   * Returns the string with the given index in the string table. Strings are decoded once.
+   */
+  String string(int id) {
+    if (id < 0 || id >= stringCount) {
+      throw new RuntimeException(String.format("Invalid string index: %d", id));
+    }
+    String value = strings.get(id);
+    if (value == null) {
+      int offset = buffer.getInt(stringTableOffset + 4 * id);
+      byte[] bytes = new byte[buffer.getInt(offset)];
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset + 4);
+      view.get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+      strings.set(id, value);
+    }
+    return value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Returns the key of the input in the store.
+   */
+  static String inputKey(Input input) {
+    StringBuilder key = new StringBuilder();
+    appendStrings(key.append('i'), input.getInputs());
+    appendStrings(key.append('a'), input.getArgs());
+    return key.toString();
+  }
+
+  private static void appendStrings(StringBuilder key, String[] values) {
+    key.append(values.length);
+    for (String value : values) {
+      if (value == null) {
+        key.append(":-");
+      } else {
+        key.append(':').append(value.length()).append(':').append(value);
+      }
+    }
+  }
+}
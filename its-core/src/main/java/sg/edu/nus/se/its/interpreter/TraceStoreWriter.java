@@ -0,0 +1,287 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Builds a {@link TraceStore} file from the traces of reference programs.
+ *
+ * <p>The file consists of a header, the encoded traces, a string table and a directory of the
+ * traces. All numbers are big-endian. The header holds the magic number, the format version, the
+ * number of strings and traces, and the offsets of the string table and the directory. A trace is
+ * encoded as
+ * <ul>
+ * <li>the number of entries and of index records,</li>
+ * <li>the offset of every entry relative to the start of the trace,</li>
+ * <li>the index records (location, function name, number of entries, offset of the positions),
+ * sorted by location, followed by the positions of the entries per record,</li>
+ * <li>the entries (function name, location, number of variables, and per variable its name, a
+ * value tag and the value).</li>
+ * </ul>
+ * Strings are stored once in the string table and referenced by their index. Besides numbers,
+ * characters, booleans, strings and undefined, values can be lists, maps (e.g., structs) and
+ * arrays of such values; lists and maps are decoded as ArrayList and LinkedHashMap, arrays with
+ * their original array type. A trace with other values cannot be added to the store.
+ */
+public class TraceStoreWriter {
+
+  static final long MAGIC = 0x4954535452414345L;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8 + 4 + 4 + 4 + 8 + 8;
+
+  static final byte TAG_NULL = 0;
+  static final byte TAG_UNDEFINED = 1;
+  static final byte TAG_INT = 2;
+  static final byte TAG_LONG = 3;
+  static final byte TAG_DOUBLE = 4;
+  static final byte TAG_CHAR = 5;
+  static final byte TAG_BOOLEAN = 6;
+  static final byte TAG_STRING = 7;
+  static final byte TAG_FLOAT = 8;
+  static final byte TAG_LIST = 9;
+  static final byte TAG_MAP = 10;
+  static final byte TAG_ARRAY = 11;
+
+  private final Map<String, Integer> strings = new LinkedHashMap<>();
+  private final Map<String, byte[]> traces = new LinkedHashMap<>();
+  private final Map<String, int[]> keys = new HashMap<>();
+
+  /**
+   * Adds the trace of the given reference program on the input.
+   *
+   * @param program -- reference program
+   * @param input -- program's input
+   * @param trace -- execution trace of the program on the input
+   */
+  public void add(Program program, Input input, Trace trace) {
+    add(ReferenceTraceCache.fingerprint(program), input, trace);
+  }
+
+  /**
+   * Adds the trace of the program with the given fingerprint on the input. A trace that was added
+   * before for the same program and input is replaced.
+   *
+   * @param fingerprint -- fingerprint of the program, see
+   *     {@link ReferenceTraceCache#fingerprint(Program)}
+   * @param input -- program's input
+   * @param trace -- execution trace of the program on the input
+   * @throws RuntimeException if the trace contains a value that cannot be stored
+   */
+  public void add(String fingerprint, Input input, Trace trace) {
+    byte[] encoded = encode(trace);
+    String inputKey = TraceStore.inputKey(input);
+    String key = fingerprint + '\n' + inputKey;
+    keys.put(key, new int[] {stringId(fingerprint), stringId(inputKey)});
+    traces.put(key, encoded);
+  }
+
+  public int size() {
+    return traces.size();
+  }
+
+  private int stringId(String value) {
+    Integer id = strings.get(value);
+    if (id == null) {
+      id = strings.size();
+      strings.put(value, id);
+    }
+    return id;
+  }
+
+  private byte[] encode(Trace trace) {
+    List<TraceEntry> entries = trace.getEntries();
+    Map<Long, List<Integer>> positions = new HashMap<>();
+    Map<Long, String> functions = new HashMap<>();
+    for (int i = 0; i < entries.size(); i++) {
+      TraceEntry entry = entries.get(i);
+      long key = ((long) stringId(entry.getFunctionName()) << 32)
+          | (entry.getLocation() & 0xffffffffL);
+      positions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+      functions.put(key, entry.getFunctionName());
+    }
+    List<Long> records = new ArrayList<>(positions.keySet());
+    records.sort(Comparator.comparingInt((Long key) -> (int) (long) key)
+        .thenComparing(key -> functions.get(key)));
+
+    ByteArrayOutputStream encodedEntries = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(encodedEntries);
+    int headerSize = 8 + 4 * entries.size() + 16 * records.size();
+    for (List<Integer> list : positions.values()) {
+      headerSize += 4 * list.size();
+    }
+    int[] offsets = new int[entries.size()];
+    try {
+      for (int i = 0; i < entries.size(); i++) {
+        offsets[i] = headerSize + out.size();
+        writeEntry(out, entries.get(i));
+      }
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream(headerSize + out.size());
+      DataOutputStream header = new DataOutputStream(result);
+      header.writeInt(entries.size());
+      header.writeInt(records.size());
+      for (int offset : offsets) {
+        header.writeInt(offset);
+      }
+      int positionsOffset = 8 + 4 * entries.size() + 16 * records.size();
+      for (Long key : records) {
+        header.writeInt((int) (long) key);
+        header.writeInt((int) (key >>> 32));
+        header.writeInt(positions.get(key).size());
+        header.writeInt(positionsOffset);
+        positionsOffset += 4 * positions.get(key).size();
+      }
+      for (Long key : records) {
+        for (int position : positions.get(key)) {
+          header.writeInt(position);
+        }
+      }
+      encodedEntries.writeTo(result);
+      return result.toByteArray();
+    } catch (IOException e) {
+      // cannot happen for in-memory streams
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void writeEntry(DataOutputStream out, TraceEntry entry) throws IOException {
+    out.writeInt(stringId(entry.getFunctionName()));
+    out.writeInt(entry.getLocation());
+    Map<String, Object> memory = entry.getMem();
+    out.writeInt(memory.size());
+    for (Map.Entry<String, Object> variable : memory.entrySet()) {
+      out.writeInt(stringId(variable.getKey()));
+      writeValue(out, variable.getValue());
+    }
+  }
+
+  private void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TAG_NULL);
+    } else if (Constants.UNDEFINED.equals(value)) {
+      out.writeByte(TAG_UNDEFINED);
+    } else if (value instanceof Integer) {
+      out.writeByte(TAG_INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(TAG_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      out.writeByte(TAG_DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(TAG_FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Character) {
+      out.writeByte(TAG_CHAR);
+      out.writeChar((Character) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(TAG_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof String) {
+      out.writeByte(TAG_STRING);
+      out.writeInt(stringId((String) value));
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(TAG_LIST);
+      out.writeInt(list.size());
+      for (Object element : list) {
+        writeValue(out, element);
+      }
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(TAG_MAP);
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> element : map.entrySet()) {
+        writeValue(out, element.getKey());
+        writeValue(out, element.getValue());
+      }
+    } else if (value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      out.writeByte(TAG_ARRAY);
+      out.writeInt(stringId(value.getClass().getName()));
+      out.writeInt(length);
+      for (int i = 0; i < length; i++) {
+        writeValue(out, Array.get(value, i));
+      }
+    } else {
+      throw new RuntimeException(
+          String.format("Unsupported value in trace: %s", value.getClass().getName()));
+    }
+  }
+
+  /**
+   * Writes the store to the given file.
+   *
+   * @param path -- path of the store file, which is overwritten
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Path path) throws IOException {
+    try (OutputStream file = Files.newOutputStream(path);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      long offset = HEADER_SIZE;
+      long[] traceOffsets = new long[traces.size()];
+      int index = 0;
+      for (byte[] trace : traces.values()) {
+        traceOffsets[index++] = offset;
+        offset += trace.length;
+      }
+      List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+      for (String value : strings.keySet()) {
+        encodedStrings.add(value.getBytes(StandardCharsets.UTF_8));
+      }
+      long stringTableOffset = offset;
+      offset += 4L * strings.size();
+      for (byte[] value : encodedStrings) {
+        offset += 4 + value.length;
+      }
+      long directoryOffset = offset;
+      offset += 16L * traces.size();
+      if (offset > Integer.MAX_VALUE) {
+        throw new IOException(String.format("Trace store exceeds 2 GB: %d bytes", offset));
+      }
+
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      out.writeInt(traces.size());
+      out.writeLong(stringTableOffset);
+      out.writeLong(directoryOffset);
+      for (byte[] trace : traces.values()) {
+        out.write(trace);
+      }
+      int stringOffset = (int) stringTableOffset + 4 * strings.size();
+      for (byte[] value : encodedStrings) {
+        out.writeInt(stringOffset);
+        stringOffset += 4 + value.length;
+      }
+      for (byte[] value : encodedStrings) {
+        out.writeInt(value.length);
+        out.write(value);
+      }
+      index = 0;
+      for (String key : traces.keySet()) {
+        int[] ids = keys.get(key);
+        out.writeInt(ids[0]);
+        out.writeInt(ids[1]);
+        out.writeLong(traceOffsets[index++]);
+      }
+    }
+  }
+}
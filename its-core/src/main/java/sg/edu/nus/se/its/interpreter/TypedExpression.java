@@ -0,0 +1,478 @@
+package sg.edu.nus.se.its.interpreter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.MemoryLayout;
+import sg.edu.nus.se.its.model.Opcode;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.ValueType;
+
+/**
+ * Compiled expression of a static numeric type, which is evaluated on the unboxed values of a
+ * {@link SlotMemory} without allocating intermediate objects. The static types are derived from
+ * the declared C types of the variables and the values of the constants, and follow the promotion
+ * rules of {@link NumericOperator}.
+ *
+ * <p>The static types are an assumption about the values in memory: if a variable holds a value
+ * of another type, e.g., the undefined value, or if an integer division by zero occurs, the typed
+ * evaluation is abandoned and the equivalent boxed expression is evaluated instead. An expression
+ * whose typed evaluation fails repeatedly falls back to the boxed expression for good; the
+ * failures are counted across all threads that evaluate the expression.
+ */
+abstract class TypedExpression extends CompiledExpression {
+
+  /**
+   * Number of failed typed evaluations after which only the boxed expression is evaluated.
+   */
+  private static final int MAX_MISMATCHES = 16;
+
+  private final ValueType type;
+  private final MemoryLayout layout;
+  private final CompiledExpression boxed;
+  private final AtomicInteger mismatches = new AtomicInteger();
+
+  TypedExpression(ValueType type, MemoryLayout layout, CompiledExpression boxed) {
+    super(true);
+    this.type = type;
+    this.layout = layout;
+    this.boxed = boxed;
+  }
+
+  @Override
+  ValueType getType() {
+    return type;
+  }
+
+  @Override
+  public Object evaluate(Memory memory) {
+    if (mismatches.get() < MAX_MISMATCHES && memory instanceof SlotMemory
+        && ((SlotMemory) memory).getLayout() == layout) {
+      SlotMemory slotMemory = (SlotMemory) memory;
+      try {
+        switch (type) {
+          case INT:
+            return (int) evaluateLong(slotMemory);
+          case LONG:
+            return evaluateLong(slotMemory);
+          case CHAR:
+            return (char) evaluateLong(slotMemory);
+          default:
+            return evaluateDouble(slotMemory);
+        }
+      } catch (TypeMismatch e) {
+        mismatches.incrementAndGet();
+      }
+    }
+    return boxed.evaluate(memory);
+  }
+
+  @Override
+  void evaluateInto(SlotMemory memory, int slot) {
+    if (mismatches.get() < MAX_MISMATCHES) {
+      try {
+        switch (type) {
+          case INT:
+            memory.setInt(slot, (int) evaluateLong(memory));
+            return;
+          case LONG:
+            memory.setLong(slot, evaluateLong(memory));
+            return;
+          case CHAR:
+            memory.setChar(slot, (char) evaluateLong(memory));
+            return;
+          default:
+            memory.setDouble(slot, evaluateDouble(memory));
+            return;
+        }
+      } catch (TypeMismatch e) {
+        mismatches.incrementAndGet();
+      }
+    }
+    memory.storeValue(slot, boxed.evaluate(memory));
+  }
+
+  @Override
+  abstract long evaluateLong(SlotMemory memory);
+
+  /**
+   * Evaluates the expression as double, converting integral values.
+   */
+  @Override
+  double evaluateDouble(SlotMemory memory) {
+    return evaluateLong(memory);
+  }
+
+  /**
+   * Returns the promoted type of an arithmetic operation on operands of the given types.
+   */
+  static ValueType promote(ValueType left, ValueType right) {
+    if (left == ValueType.DOUBLE || right == ValueType.DOUBLE) {
+      return ValueType.DOUBLE;
+    }
+    if (left == ValueType.LONG || right == ValueType.LONG) {
+      return ValueType.LONG;
+    }
+    return ValueType.INT;
+  }
+
+  /**
+   * Returns the typed form of a constant, or the boxed node if its value is not numeric.
+   */
+  static CompiledExpression constant(Object value, MemoryLayout layout,
+      CompiledExpression boxed) {
+    ValueType type = ValueType.of(value);
+    if (!type.isPrimitive()) {
+      return boxed;
+    }
+    return new Constant(type, layout, boxed, value);
+  }
+
+  /**
+   * Returns the typed form of a variable, or the boxed node if its declared type is not stored
+   * unboxed.
+   */
+  static CompiledExpression variable(ValueType type, MemoryLayout layout, int slot,
+      CompiledExpression boxed) {
+    if (!type.isPrimitive() || slot < 0) {
+      return boxed;
+    }
+    return new Variable(type, layout, boxed, slot);
+  }
+
+  /**
+   * Returns the typed form of an operation with the given opcode, or the boxed node if the
+   * operation has no typed form for its operands.
+   */
+  static CompiledExpression operation(Opcode opcode, CompiledExpression[] operands,
+      MemoryLayout layout, CompiledExpression boxed) {
+    for (CompiledExpression operand : operands) {
+      if (!operand.getType().isPrimitive()) {
+        return boxed;
+      }
+    }
+    if (operands.length == 1) {
+      switch (opcode) {
+        case SUB:
+          return new Negation(layout, boxed, operands[0]);
+        case NOT:
+          return new Not(layout, boxed, operands[0]);
+        default:
+          return boxed;
+      }
+    }
+    if (operands.length != 2) {
+      return boxed;
+    }
+    CompiledExpression left = operands[0];
+    CompiledExpression right = operands[1];
+    ValueType type = promote(left.getType(), right.getType());
+    switch (opcode) {
+      case MOD:
+        if (type == ValueType.DOUBLE) {
+          return boxed;
+        }
+        return new Arithmetic(opcode, type, layout, boxed, left, right);
+      case ADD:
+      case SUB:
+      case MUL:
+      case DIV:
+        return new Arithmetic(opcode, type, layout, boxed, left, right);
+      case LT:
+      case LE:
+      case GT:
+      case GE:
+      case EQ:
+      case NE:
+        return new Comparison(opcode, type == ValueType.DOUBLE, layout, boxed, left, right);
+      case AND:
+      case OR:
+        return new Logical(opcode == Opcode.AND, layout, boxed, left, right);
+      default:
+        return boxed;
+    }
+  }
+
+  private static boolean isNonZero(CompiledExpression expression, SlotMemory memory) {
+    if (expression.getType() == ValueType.DOUBLE) {
+      return expression.evaluateDouble(memory) != 0;
+    }
+    return expression.evaluateLong(memory) != 0;
+  }
+
+  private static final class Constant extends TypedExpression {
+
+    private final long longValue;
+    private final double doubleValue;
+
+    Constant(ValueType type, MemoryLayout layout, CompiledExpression boxed, Object value) {
+      super(type, layout, boxed);
+      if (value instanceof Character) {
+        this.longValue = (Character) value;
+        this.doubleValue = longValue;
+      } else {
+        this.longValue = ((Number) value).longValue();
+        this.doubleValue = ((Number) value).doubleValue();
+      }
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      return longValue;
+    }
+
+    @Override
+    double evaluateDouble(SlotMemory memory) {
+      return doubleValue;
+    }
+  }
+
+  private static final class Variable extends TypedExpression {
+
+    private final int slot;
+    private final int unprimedSlot;
+
+    Variable(ValueType type, MemoryLayout layout, CompiledExpression boxed, int slot) {
+      super(type, layout, boxed);
+      this.slot = slot;
+      this.unprimedSlot = MemoryLayout.unprimedSlotOf(slot);
+    }
+
+    /**
+     * Returns the slot that holds the value, where a primed variable falls back to its unprimed
+     * counterpart, and checks the type of the value.
+     */
+    private int resolve(SlotMemory memory) {
+      int valueSlot = memory.hasValue(slot) ? slot : unprimedSlot;
+      if (memory.getType(valueSlot) != getType()) {
+        throw TypeMismatch.INSTANCE;
+      }
+      return valueSlot;
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      return memory.getLong(resolve(memory));
+    }
+
+    @Override
+    double evaluateDouble(SlotMemory memory) {
+      int valueSlot = resolve(memory);
+      return getType() == ValueType.DOUBLE ? memory.getDouble(valueSlot)
+          : memory.getLong(valueSlot);
+    }
+  }
+
+  private static final class Arithmetic extends TypedExpression {
+
+    private final Opcode opcode;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    Arithmetic(Opcode opcode, ValueType type, MemoryLayout layout, CompiledExpression boxed,
+        CompiledExpression left, CompiledExpression right) {
+      super(type, layout, boxed);
+      this.opcode = opcode;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      long leftValue = left.evaluateLong(memory);
+      long rightValue = right.evaluateLong(memory);
+      long result;
+      switch (opcode) {
+        case ADD:
+          result = leftValue + rightValue;
+          break;
+        case SUB:
+          result = leftValue - rightValue;
+          break;
+        case MUL:
+          result = leftValue * rightValue;
+          break;
+        case DIV:
+          if (rightValue == 0) {
+            throw TypeMismatch.INSTANCE;
+          }
+          result = leftValue / rightValue;
+          break;
+        default:
+          if (rightValue == 0) {
+            throw TypeMismatch.INSTANCE;
+          }
+          result = leftValue % rightValue;
+          break;
+      }
+      // int arithmetic wraps around at 32 bits
+      return getType() == ValueType.INT ? (int) result : result;
+    }
+
+    @Override
+    double evaluateDouble(SlotMemory memory) {
+      if (getType() != ValueType.DOUBLE) {
+        return evaluateLong(memory);
+      }
+      double leftValue = left.evaluateDouble(memory);
+      double rightValue = right.evaluateDouble(memory);
+      switch (opcode) {
+        case ADD:
+          return leftValue + rightValue;
+        case SUB:
+          return leftValue - rightValue;
+        case MUL:
+          return leftValue * rightValue;
+        default:
+          return leftValue / rightValue;
+      }
+    }
+  }
+
+  private static final class Negation extends TypedExpression {
+
+    private final CompiledExpression operand;
+
+    Negation(MemoryLayout layout, CompiledExpression boxed, CompiledExpression operand) {
+      super(promote(operand.getType(), ValueType.INT), layout, boxed);
+      this.operand = operand;
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      long result = -operand.evaluateLong(memory);
+      return getType() == ValueType.INT ? (int) result : result;
+    }
+
+    @Override
+    double evaluateDouble(SlotMemory memory) {
+      return getType() == ValueType.DOUBLE ? -operand.evaluateDouble(memory)
+          : evaluateLong(memory);
+    }
+  }
+
+  private static final class Comparison extends TypedExpression {
+
+    private final Opcode opcode;
+    private final boolean floating;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    Comparison(Opcode opcode, boolean floating, MemoryLayout layout, CompiledExpression boxed,
+        CompiledExpression left, CompiledExpression right) {
+      super(ValueType.INT, layout, boxed);
+      this.opcode = opcode;
+      this.floating = floating;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      boolean result;
+      if (floating) {
+        double leftValue = left.evaluateDouble(memory);
+        double rightValue = right.evaluateDouble(memory);
+        switch (opcode) {
+          case LT:
+            result = leftValue < rightValue;
+            break;
+          case LE:
+            result = leftValue <= rightValue;
+            break;
+          case GT:
+            result = leftValue > rightValue;
+            break;
+          case GE:
+            result = leftValue >= rightValue;
+            break;
+          case EQ:
+            result = leftValue == rightValue;
+            break;
+          default:
+            result = leftValue != rightValue;
+            break;
+        }
+      } else {
+        long leftValue = left.evaluateLong(memory);
+        long rightValue = right.evaluateLong(memory);
+        switch (opcode) {
+          case LT:
+            result = leftValue < rightValue;
+            break;
+          case LE:
+            result = leftValue <= rightValue;
+            break;
+          case GT:
+            result = leftValue > rightValue;
+            break;
+          case GE:
+            result = leftValue >= rightValue;
+            break;
+          case EQ:
+            result = leftValue == rightValue;
+            break;
+          default:
+            result = leftValue != rightValue;
+            break;
+        }
+      }
+      return result ? 1 : 0;
+    }
+  }
+
+  private static final class Not extends TypedExpression {
+
+    private final CompiledExpression operand;
+
+    Not(MemoryLayout layout, CompiledExpression boxed, CompiledExpression operand) {
+      super(ValueType.INT, layout, boxed);
+      this.operand = operand;
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      return isNonZero(operand, memory) ? 0 : 1;
+    }
+  }
+
+  /**
+   * Short-circuit evaluation of the logical operators.
+   */
+  private static final class Logical extends TypedExpression {
+
+    private final boolean conjunction;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    Logical(boolean conjunction, MemoryLayout layout, CompiledExpression boxed,
+        CompiledExpression left, CompiledExpression right) {
+      super(ValueType.INT, layout, boxed);
+      this.conjunction = conjunction;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    long evaluateLong(SlotMemory memory) {
+      if (isNonZero(left, memory) != conjunction) {
+        return conjunction ? 0 : 1;
+      }
+      return isNonZero(right, memory) ? 1 : 0;
+    }
+  }
+
+  /**
+   * Signals that the typed evaluation does not apply to the values in memory. The exception is
+   * preallocated and has no stack trace, since it is thrown on the evaluation path.
+   */
+  static final class TypeMismatch extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final TypeMismatch INSTANCE = new TypeMismatch();
+
+    private TypeMismatch() {
+      super(null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,309 @@
+package sg.edu.nus.se.its.model;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Base class for Memory implementations that keep their values outside of the HashMap storage
+ * inherited from Memory. Subclasses only provide the primitive map operations and an entry
+ * iterator; all other Map methods, including the collection views, are routed through them so
+ * that existing callers can keep using a Memory object as a plain map.
+ */
+public abstract class AbstractMemory extends Memory {
+
+  private static final long serialVersionUID = 1L;
+
+  protected AbstractMemory() {
+    super();
+  }
+
+  @Override
+  public abstract Object get(Object key);
+
+  @Override
+  public abstract Object put(String key, Object value);
+
+  @Override
+  public abstract Object remove(Object key);
+
+  @Override
+  public abstract boolean containsKey(Object key);
+
+  @Override
+  public abstract int size();
+
+  @Override
+  public abstract void clear();
+
+  /**
+   * Returns an iterator over all variable/value pairs of this memory. The iterator has to support
+   * {@code remove()} and {@code Map.Entry.setValue()}.
+   */
+  protected abstract Iterator<Map.Entry<String, Object>> entryIterator();
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    Iterator<Map.Entry<String, Object>> iterator = entryIterator();
+    while (iterator.hasNext()) {
+      if (Objects.equals(iterator.next().getValue(), value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Object getOrDefault(Object key, Object defaultValue) {
+    Object value = get(key);
+    return value != null || containsKey(key) ? value : defaultValue;
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends Object> map) {
+    for (Map.Entry<? extends String, ? extends Object> entry : map.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Object putIfAbsent(String key, Object value) {
+    Object current = get(key);
+    if (current == null) {
+      current = put(key, value);
+    }
+    return current;
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (containsKey(key) && Objects.equals(get(key), value)) {
+      remove(key);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public boolean replace(String key, Object oldValue, Object newValue) {
+    if (containsKey(key) && Objects.equals(get(key), oldValue)) {
+      put(key, newValue);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Object replace(String key, Object value) {
+    return containsKey(key) ? put(key, value) : null;
+  }
+
+  @Override
+  public Object computeIfAbsent(String key,
+      java.util.function.Function<? super String, ? extends Object> mappingFunction) {
+    Object current = get(key);
+    if (current == null) {
+      Object value = mappingFunction.apply(key);
+      if (value != null) {
+        put(key, value);
+        return value;
+      }
+    }
+    return current;
+  }
+
+  @Override
+  public Object computeIfPresent(String key,
+      BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+    Object current = get(key);
+    if (current == null) {
+      return null;
+    }
+    Object value = remappingFunction.apply(key, current);
+    if (value == null) {
+      remove(key);
+    } else {
+      put(key, value);
+    }
+    return value;
+  }
+
+  @Override
+  public Object compute(String key,
+      BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+    Object value = remappingFunction.apply(key, get(key));
+    if (value == null) {
+      remove(key);
+    } else {
+      put(key, value);
+    }
+    return value;
+  }
+
+  @Override
+  public Object merge(String key, Object value,
+      BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+    Object current = get(key);
+    Object merged = current == null ? value : remappingFunction.apply(current, value);
+    if (merged == null) {
+      remove(key);
+    } else {
+      put(key, merged);
+    }
+    return merged;
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super String, ? super Object> action) {
+    Iterator<Map.Entry<String, Object>> iterator = entryIterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Object> entry = iterator.next();
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+    Iterator<Map.Entry<String, Object>> iterator = entryIterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Object> entry = iterator.next();
+      entry.setValue(function.apply(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return entryIterator();
+      }
+
+      @Override
+      public int size() {
+        return AbstractMemory.this.size();
+      }
+
+      @Override
+      public void clear() {
+        AbstractMemory.this.clear();
+      }
+    };
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        Iterator<Map.Entry<String, Object>> entries = entryIterator();
+        return new Iterator<String>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public String next() {
+            return entries.next().getKey();
+          }
+
+          @Override
+          public void remove() {
+            entries.remove();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return AbstractMemory.this.size();
+      }
+
+      @Override
+      public boolean contains(Object key) {
+        return containsKey(key);
+      }
+
+      @Override
+      public boolean remove(Object key) {
+        if (containsKey(key)) {
+          AbstractMemory.this.remove(key);
+          return true;
+        }
+        return false;
+      }
+
+      @Override
+      public void clear() {
+        AbstractMemory.this.clear();
+      }
+    };
+  }
+
+  @Override
+  public Collection<Object> values() {
+    return new AbstractCollection<Object>() {
+      @Override
+      public Iterator<Object> iterator() {
+        Iterator<Map.Entry<String, Object>> entries = entryIterator();
+        return new Iterator<Object>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Object next() {
+            return entries.next().getValue();
+          }
+
+          @Override
+          public void remove() {
+            entries.remove();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return AbstractMemory.this.size();
+      }
+
+      @Override
+      public void clear() {
+        AbstractMemory.this.clear();
+      }
+    };
+  }
+
+  /**
+   * Subclasses that support cloning have to override this method, because the HashMap storage
+   * copied by the inherited implementation is not used.
+   */
+  @Override
+  public Object clone() {
+    throw new UnsupportedOperationException(
+        String.format("%s does not support clone()", getClass().getSimpleName()));
+  }
+
+  /**
+   * Serializes the values as a plain Memory object, since the inherited HashMap storage is empty.
+   */
+  protected Object writeReplace() {
+    Memory memory = new Memory();
+    memory.putAll(this);
+    return memory;
+  }
+}
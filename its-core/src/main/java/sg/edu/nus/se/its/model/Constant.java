@@ -36,8 +36,14 @@ public class Constant extends Expression {
 
   @Override
   public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
     if (o instanceof Constant) {
       Constant constant = (Constant) o;
+      if (hasDifferentCachedHash(constant)) {
+        return false;
+      }
       return Objects.equals(value, constant.value);
     }
     return false;
@@ -45,6 +51,9 @@ public class Constant extends Expression {
 
   @Override
   public int hashCode() {
+    if (isInterned()) {
+      return getCachedHash();
+    }
     return Objects.hash(value);
   }
 
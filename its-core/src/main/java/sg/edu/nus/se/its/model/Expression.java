@@ -1,6 +1,7 @@
 package sg.edu.nus.se.its.model;
 
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import sg.edu.nus.se.its.interpreter.Executable;
 import sg.edu.nus.se.its.util.JsonSerializable;
 
@@ -9,11 +10,26 @@ import sg.edu.nus.se.its.util.JsonSerializable;
  */
 public abstract class Expression implements Executable, JsonSerializable {
 
+  /**
+   * Number of in-place modifications of expressions, see {@link #getModificationStamp()}.
+   */
+  private static final AtomicLong modifications = new AtomicLong();
+
   /**
    * The source line number of the expression.
    */
   private int line;
 
+  /**
+   * Pool that interned this expression, or null if the expression is mutable.
+   */
+  private transient ExpressionPool pool;
+
+  /**
+   * Hash code of an interned expression, which is computed once.
+   */
+  private transient int hash;
+
   /**
    * Initiates an expression.
    *
@@ -29,6 +45,56 @@ public abstract class Expression implements Executable, JsonSerializable {
     return line;
   }
 
+  /**
+   * Returns a stamp that changes whenever an expression is modified in place, e.g., by prime() or
+   * replace() on a mutable expression. Compiled forms of expressions are only valid as long as the
+   * stamp is unchanged.
+   */
+  public static long getModificationStamp() {
+    return modifications.get();
+  }
+
+  /**
+   * Records an in-place modification of an expression.
+   */
+  protected static void modified() {
+    modifications.incrementAndGet();
+  }
+
+  /**
+   * Returns whether this expression has been interned by an {@link ExpressionPool}. Interned
+   * expressions are immutable and shared: priming or replacing returns another interned expression
+   * instead of modifying this one, and clone() returns a mutable copy. Interned expressions are
+   * compared like mutable expressions.
+   */
+  public boolean isInterned() {
+    return pool != null;
+  }
+
+  ExpressionPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Returns whether this and the given expression are both interned and have different hash
+   * codes, in which case they are not equal and their structure need not be compared.
+   */
+  boolean hasDifferentCachedHash(Expression other) {
+    return pool != null && other.pool != null && hash != other.hash;
+  }
+
+  int getCachedHash() {
+    return hash;
+  }
+
+  /**
+   * Marks this expression as interned by the given pool, which caches its hash code.
+   */
+  void intern(ExpressionPool pool) {
+    this.hash = hashCode();
+    this.pool = pool;
+  }
+
   public Expression prime() {
     return this;
   }
@@ -0,0 +1,170 @@
+package sg.edu.nus.se.its.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.javatuples.Pair;
+
+/**
+ * Hash-consing pool for expressions. Structurally identical expressions, i.e., with the same kind,
+ * name or value, prime status, source line and arguments, are represented by one shared,
+ * immutable node. The primed and the unprimed variant of a variable are different nodes, so that
+ * priming never modifies a shared node. Interned expressions are equal to each other and to
+ * mutable expressions under the same rules as mutable expressions, e.g., the variables x and x'
+ * are equal; their hash codes are computed only once.
+ *
+ * <p>Interned expressions keep the behaviour of the mutable expressions, except that prime(),
+ * unprime() and replace() return other interned expressions instead of modifying the receiver,
+ * and that the prime status of an interned variable cannot be changed with
+ * {@link Variable#setPrimed(boolean)}. A pool is typically shared by all programs of one cohort,
+ * so that their common subexpressions are stored once, see
+ * {@link sg.edu.nus.se.its.util.CorpusLoader}. The pool is thread-safe.
+ */
+public class ExpressionPool {
+
+  private static final int CONSTANT = 0;
+  private static final int VARIABLE = 1;
+  private static final int OPERATION = 2;
+
+  private static final Expression[] NO_ARGS = new Expression[0];
+
+  private final Map<Key, Expression> nodes = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the interned constant with the given value and source line.
+   */
+  public Constant constant(String value, int line) {
+    return (Constant) nodes.computeIfAbsent(new Key(CONSTANT, value, false, line, NO_ARGS),
+        key -> freeze(new Constant(value, line)));
+  }
+
+  /**
+   * Returns the interned variable with the given name, prime status and source line.
+   */
+  public Variable variable(String name, boolean primed, int line) {
+    return (Variable) nodes.computeIfAbsent(new Key(VARIABLE, name, primed, line, NO_ARGS),
+        key -> freeze(new Variable(name, line, primed)));
+  }
+
+  /**
+   * Returns the interned operation with the given name, arguments and source line. The arguments
+   * are interned as well.
+   */
+  public Operation operation(String name, List<Expression> args, int line) {
+    Expression[] internedArgs = new Expression[args.size()];
+    for (int i = 0; i < internedArgs.length; i++) {
+      internedArgs[i] = intern(args.get(i));
+    }
+    return (Operation) nodes.computeIfAbsent(new Key(OPERATION, name, false, line, internedArgs),
+        key -> freeze(new Operation(name,
+            Collections.unmodifiableList(Arrays.asList(internedArgs)), line)));
+  }
+
+  /**
+   * Returns the interned counterpart of the given expression. The given expression itself is not
+   * modified.
+   *
+   * @param expression -- Expression object
+   * @return interned Expression object, or the given expression if its type cannot be interned
+   */
+  public Expression intern(Expression expression) {
+    if (expression == null || expression.getPool() == this) {
+      return expression;
+    }
+    if (expression instanceof Constant) {
+      return constant(((Constant) expression).getValue(), expression.getLineNumber());
+    }
+    if (expression instanceof Variable) {
+      Variable variable = (Variable) expression;
+      return variable(variable.getUnprimedName(), variable.isPrimed(), variable.getLineNumber());
+    }
+    if (expression instanceof Operation) {
+      Operation operation = (Operation) expression;
+      return operation(operation.getName(), operation.getArgs(), operation.getLineNumber());
+    }
+    return expression;
+  }
+
+  /**
+   * Replaces all expressions of the given program with their interned counterparts.
+   *
+   * @param program -- Program object, which is modified in place
+   */
+  public void intern(Program program) {
+    for (Function function : program.getFncs().values()) {
+      for (List<Pair<String, Expression>> block : function.getLocexprs().values()) {
+        for (int i = 0; i < block.size(); i++) {
+          Pair<String, Expression> assignment = block.get(i);
+          block.set(i, new Pair<>(assignment.getValue0(), intern(assignment.getValue1())));
+        }
+      }
+      function.resetMemoryLayout();
+    }
+  }
+
+  /**
+   * Returns the number of distinct expressions in this pool.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  private <T extends Expression> T freeze(T expression) {
+    expression.intern(this);
+    return expression;
+  }
+
+  /**
+   * Structural identity of an expression, whose arguments are already interned.
+   */
+  private static final class Key {
+
+    private final int kind;
+    private final String text;
+    private final boolean primed;
+    private final int line;
+    private final Expression[] args;
+    private final int hash;
+
+    Key(int kind, String text, boolean primed, int line, Expression[] args) {
+      this.kind = kind;
+      this.text = text;
+      this.primed = primed;
+      this.line = line;
+      this.args = args;
+      int result = 31 * kind + Objects.hashCode(text);
+      result = 31 * result + (primed ? 1 : 0);
+      result = 31 * result + line;
+      for (Expression arg : args) {
+        result = 31 * result + System.identityHashCode(arg);
+      }
+      this.hash = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      if (hash != key.hash || kind != key.kind || primed != key.primed || line != key.line
+          || !Objects.equals(text, key.text) || args.length != key.args.length) {
+        return false;
+      }
+      for (int i = 0; i < args.length; i++) {
+        if (args[i] != key.args[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.javatuples.Pair;
 import sg.edu.nus.se.its.interpreter.Executable;
@@ -26,6 +27,17 @@ public class Function implements JsonSerializable, Executable {
   private HashMap<Integer, String> locdescs;
   private HashMap<String, String> types;
 
+  /**
+   * Slot assignment of the variables, compiled on demand and reset whenever the function changes.
+   */
+  private transient MemoryLayout memoryLayout;
+
+  /**
+   * Number of modifications through the methods of this class, see
+   * {@link #getModificationStamp()}.
+   */
+  private transient int modifications;
+
   /**
    * Creates new Function object for the given function name, its parameters (tuples of type and
    * name) and the return type.
@@ -69,6 +81,71 @@ public class Function implements JsonSerializable, Executable {
     return endloc;
   }
 
+  public void setInitloc(int initloc) {
+    this.initloc = initloc;
+  }
+
+  public void setEndloc(int endloc) {
+    this.endloc = endloc;
+  }
+
+  /**
+   * Creates a deep copy of this function without serialization. Expressions are copied with
+   * clone(), so that the copy can be modified independently; the immutable tuples of strings and
+   * the (immutable) constants are shared.
+   *
+   * @return copy of this function
+   */
+  public Function deepCopy() {
+    Function copy = new Function(name, params == null ? null : new ArrayList<>(params), rettype);
+    copy.initloc = initloc;
+    copy.endloc = endloc;
+    copy.locexprs = locexprs == null ? null : new HashMap<>(mapCapacity(locexprs.size()));
+    if (locexprs != null) {
+      for (Map.Entry<Integer, ArrayList<Pair<String, Expression>>> entry : locexprs.entrySet()) {
+        copy.locexprs.put(entry.getKey(), copyBlock(entry.getValue()));
+      }
+    }
+    copy.loctrans = loctrans == null ? null : new HashMap<>(mapCapacity(loctrans.size()));
+    if (loctrans != null) {
+      for (Map.Entry<Integer, HashMap<Boolean, Integer>> entry : loctrans.entrySet()) {
+        copy.loctrans.put(entry.getKey(),
+            entry.getValue() == null ? null : new HashMap<>(entry.getValue()));
+      }
+    }
+    copy.locdescs = locdescs == null ? null : new HashMap<>(locdescs);
+    copy.types = types == null ? null : new HashMap<>(types);
+    return copy;
+  }
+
+  private static ArrayList<Pair<String, Expression>> copyBlock(
+      List<Pair<String, Expression>> block) {
+    if (block == null) {
+      return null;
+    }
+    ArrayList<Pair<String, Expression>> copy = new ArrayList<>(block.size());
+    for (Pair<String, Expression> assignment : block) {
+      copy.add(assignment == null ? null
+          : new Pair<>(assignment.getValue0(), copyExpression(assignment.getValue1())));
+    }
+    return copy;
+  }
+
+  private static Expression copyExpression(Expression expression) {
+    if (expression == null) {
+      return null;
+    }
+    try {
+      return (Expression) expression.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new RuntimeException(String.format("Cannot copy expression: %s", expression), e);
+    }
+  }
+
+  private static int mapCapacity(int size) {
+    return Math.max(16, (int) (size / 0.75f) + 1);
+  }
+
   /**
    * Retrieve the expressions at the given code location.
    */
@@ -145,6 +222,39 @@ public class Function implements JsonSerializable, Executable {
     return loctrans.getOrDefault(loc, new HashMap<>()).get(cond);
   }
 
+  /**
+   * Returns the memory layout of this function, which is compiled on first use. Structural changes
+   * through the methods of this class reset the layout; if the location expressions are modified
+   * directly, {@link #resetMemoryLayout()} has to be called.
+   */
+  public MemoryLayout getMemoryLayout() {
+    MemoryLayout layout = memoryLayout;
+    if (layout == null) {
+      layout = MemoryLayout.of(this);
+      memoryLayout = layout;
+    }
+    return layout;
+  }
+
+  /**
+   * Discards the memory layout and records a modification of this function, which also
+   * invalidates the compiled blocks of the interpreter.
+   */
+  public void resetMemoryLayout() {
+    memoryLayout = null;
+    modifications++;
+  }
+
+  /**
+   * Returns a stamp that changes whenever the locations or the location expressions of this
+   * function are modified through the methods of this class or {@link #resetMemoryLayout()} is
+   * called. In-place modifications of the expressions themselves are tracked by
+   * {@link Expression#getModificationStamp()}.
+   */
+  public int getModificationStamp() {
+    return modifications;
+  }
+
   public String getLocdescAt(int loc) {
     return locdescs.get(loc);
   }
@@ -205,6 +315,7 @@ public class Function implements JsonSerializable, Executable {
     } else {
       this.locexprs.get(loc).add(idx, new Pair<>(var, exprs));
     }
+    resetMemoryLayout();
   }
 
   /**
@@ -249,6 +360,7 @@ public class Function implements JsonSerializable, Executable {
     trans.put(false, null);
     this.loctrans.put(loc, trans);
     this.locdescs.put(loc, desc);
+    modifications++;
     return loc;
   }
 
@@ -266,6 +378,7 @@ public class Function implements JsonSerializable, Executable {
       return;
     }
     this.types.put(var, type);
+    resetMemoryLayout();
   }
 
   /**
@@ -281,12 +394,14 @@ public class Function implements JsonSerializable, Executable {
     this.locdescs.remove(loc);
     assert this.loctrans.containsKey(loc);
     this.loctrans.remove(loc);
+    resetMemoryLayout();
 
   }
 
   public void replaceLocExpressions(int location,
       ArrayList<Pair<String, Expression>> locationExprs) {
     locexprs.put(location, locationExprs);
+    resetMemoryLayout();
   }
 
   public String getLocationDesc(int location) {
@@ -16,4 +16,16 @@ public class Memory extends HashMap<String, Object> {
   public Object getValueForVariable(String variableName) {
     return this.get(variableName);
   }
+
+  /**
+   * Returns a copy of the current values that is not affected by later changes to this memory,
+   * e.g., to record it in a trace entry.
+   *
+   * @return Memory object with the current values
+   */
+  public Memory snapshot() {
+    Memory copy = new Memory();
+    copy.putAll(this);
+    return copy;
+  }
 }
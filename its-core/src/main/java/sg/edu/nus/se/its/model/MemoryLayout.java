@@ -0,0 +1,143 @@
+package sg.edu.nus.se.its.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Assigns a dense integer slot to every variable of a function. Each variable occupies two
+ * consecutive slots: the even slot holds the unprimed variable (value before the execution of a
+ * block) and the following odd slot holds its primed counterpart (value after the execution).
+ */
+public class MemoryLayout {
+
+  /**
+   * Special variables that are available in every function.
+   */
+  private static final List<String> SPECIAL_VARIABLES =
+      List.of(Constants.VAR_IN, Constants.VAR_OUT, Constants.VAR_RET, Constants.VAR_COND,
+          Constants.VAR_BREAK, Constants.VAR_CONTINUE);
+
+  private final String[] names;
+  private final Map<String, Integer> slots;
+
+  /**
+   * Creates a layout for the given (unprimed) variable names, in the given order.
+   *
+   * @param variableNames - collection of unprimed variable names
+   */
+  public MemoryLayout(Set<String> variableNames) {
+    this.names = new String[variableNames.size() * 2];
+    this.slots = new HashMap<>(names.length * 2);
+    int slot = 0;
+    for (String name : variableNames) {
+      String primedName = Variable.asPrimedVariableName(name);
+      names[slot] = name;
+      names[slot + 1] = primedName;
+      slots.put(name, slot);
+      slots.put(primedName, slot + 1);
+      slot += 2;
+    }
+  }
+
+  /**
+   * Compiles the layout of the given function from its declared types, the variables assigned in
+   * its blocks, and the special variables defined in {@link Constants}.
+   *
+   * @param function - Function object
+   * @return memory layout of the function
+   */
+  public static MemoryLayout of(Function function) {
+    Set<String> variableNames = new LinkedHashSet<>(SPECIAL_VARIABLES);
+    variableNames.addAll(new TreeMap<>(function.getTypes()).keySet());
+    for (List<Pair<String, Expression>> block : new TreeMap<>(function.getLocexprs()).values()) {
+      for (Pair<String, Expression> assignment : block) {
+        String name = assignment.getValue0();
+        variableNames.add(Variable.isPrimedName(name) ? Variable.asUnprimedVariableName(name)
+            : name);
+      }
+    }
+    return new MemoryLayout(variableNames);
+  }
+
+  /**
+   * Returns the slot for the given (primed or unprimed) variable name, or -1 if the variable is
+   * not part of this layout.
+   */
+  public int slotOf(String variableName) {
+    Integer slot = slots.get(variableName);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * Returns the slot for the given variable, or -1 if the variable is not part of this layout.
+   * The slot is cached in the Variable node for the most recently used layout, so that repeated
+   * accesses through the same node do not look up the name.
+   */
+  public int slotOf(Variable variable) {
+    return variable.slotIn(this);
+  }
+
+  /**
+   * Looks up the slot for the given variable by its unprimed name, so that no primed name has to
+   * be constructed.
+   */
+  int lookupSlot(Variable variable) {
+    Integer slot = slots.get(variable.getUnprimedName());
+    if (slot == null) {
+      return -1;
+    }
+    return variable.isPrimed() ? primedSlotOf(slot) : slot;
+  }
+
+  /**
+   * Returns the slot of the primed counterpart of the variable in the given unprimed slot.
+   */
+  public static int primedSlotOf(int slot) {
+    return slot | 1;
+  }
+
+  /**
+   * Returns the slot of the unprimed counterpart of the variable in the given slot.
+   */
+  public static int unprimedSlotOf(int slot) {
+    return slot & ~1;
+  }
+
+  public static boolean isPrimedSlot(int slot) {
+    return (slot & 1) == 1;
+  }
+
+  public String nameOf(int slot) {
+    return names[slot];
+  }
+
+  /**
+   * Returns the number of slots, i.e., twice the number of variables.
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Returns the unprimed variable names of this layout in slot order.
+   */
+  public List<String> getVariableNames() {
+    List<String> variableNames = new ArrayList<>(names.length / 2);
+    for (int slot = 0; slot < names.length; slot += 2) {
+      variableNames.add(names[slot]);
+    }
+    return variableNames;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MemoryLayout%s", getVariableNames());
+  }
+}
@@ -0,0 +1,148 @@
+package sg.edu.nus.se.its.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Operation codes of the intermediate representation. Every operation name used by the parsers is
+ * mapped to one opcode, e.g., the C operator "+" and the Python node names "Add" and "UAdd" map to
+ * {@link #ADD}. The opcode carries the arity and the category of the operation, so that consumers
+ * can switch on it instead of comparing the name against the lists in {@link Constants}.
+ */
+public enum Opcode {
+
+  ADD(Category.ARITHMETIC, 1, 2, "+", "Add", "AssAdd", "UAdd"),
+  SUB(Category.ARITHMETIC, 1, 2, "-", "Sub", "USub"),
+  MUL(Category.ARITHMETIC, 2, 2, "*", "Mult"),
+  DIV(Category.ARITHMETIC, 2, 2, "/", "Div"),
+  FLOOR_DIV(Category.ARITHMETIC, 2, 2, "//", "FloorDiv"),
+  MOD(Category.ARITHMETIC, 2, 2, "%", "Mod"),
+  POW(Category.ARITHMETIC, 2, 2, "**", "Pow"),
+
+  LT(Category.COMPARISON, 2, 2, "<", "Lt"),
+  LE(Category.COMPARISON, 2, 2, "<=", "LtE"),
+  GT(Category.COMPARISON, 2, 2, ">", "Gt"),
+  GE(Category.COMPARISON, 2, 2, ">=", "GtE"),
+  EQ(Category.COMPARISON, 2, 2, "==", "Eq"),
+  NE(Category.COMPARISON, 2, 2, "!=", "NotEq"),
+  IS(Category.COMPARISON, 2, 2, "is", "Is"),
+  IS_NOT(Category.COMPARISON, 2, 2, "is not", "IsNot"),
+  IN(Category.COMPARISON, 2, 2, "in", "In"),
+  NOT_IN(Category.COMPARISON, 2, 2, "not in", "NotIn"),
+
+  AND(Category.LOGICAL, 2, Integer.MAX_VALUE, "&&", "And", "and"),
+  OR(Category.LOGICAL, 2, Integer.MAX_VALUE, "||", "Or", "or"),
+  NOT(Category.LOGICAL, 1, 1, "!", "Not", "not"),
+
+  BIT_AND(Category.BITWISE, 2, 2, "&", "BitAnd"),
+  BIT_OR(Category.BITWISE, 2, 2, "|", "BitOr"),
+  BIT_XOR(Category.BITWISE, 2, 2, "^", "BitXor"),
+  INVERT(Category.BITWISE, 1, 1, "~", "Invert"),
+  SHIFT_LEFT(Category.BITWISE, 2, 2, "<<", "LShift"),
+  SHIFT_RIGHT(Category.BITWISE, 2, 2, ">>", "RShift"),
+
+  CONDITIONAL(Category.CONTROL, 3, 3, Constants.CONDITIONAL_OPERATOR),
+  FUNCTION_CALL(Category.CALL, 1, Integer.MAX_VALUE, Constants.FUNCTION_CALL),
+  MATH_FUNCTION(Category.CALL, 1, 2, Constants.FUNCS.toArray(new String[0])),
+
+  STRING_APPEND(Category.STRING, 2, 2, Constants.STRING_APPEND),
+  STRING_FORMAT(Category.STRING, 1, Integer.MAX_VALUE, Constants.STRING_FORMAT),
+
+  LIST_HEAD(Category.COLLECTION, 2, 2, "ListHead"),
+  LIST_TAIL(Category.COLLECTION, 1, 1, "ListTail"),
+  ARRAY_CREATE(Category.COLLECTION, 0, Integer.MAX_VALUE, Constants.ARRAY_CREATE),
+  ARRAY_ASSIGN(Category.COLLECTION, 0, Integer.MAX_VALUE, Constants.ARRAY_ASSIGN),
+
+  /**
+   * Any operation name that is not known to this table.
+   */
+  UNKNOWN(Category.OTHER, 0, Integer.MAX_VALUE);
+
+  /**
+   * Kind of an operation.
+   */
+  public enum Category {
+    ARITHMETIC, COMPARISON, LOGICAL, BITWISE, CONTROL, CALL, STRING, COLLECTION, OTHER
+  }
+
+  private static final Map<String, Opcode> BY_NAME = new HashMap<>();
+
+  static {
+    for (Opcode opcode : values()) {
+      for (String name : opcode.names) {
+        BY_NAME.put(name, opcode);
+      }
+    }
+  }
+
+  private final Category category;
+  private final int minArity;
+  private final int maxArity;
+  private final String[] names;
+
+  Opcode(Category category, int minArity, int maxArity, String... names) {
+    this.category = category;
+    this.minArity = minArity;
+    this.maxArity = maxArity;
+    this.names = names;
+  }
+
+  /**
+   * Returns the opcode of the given operation name, or {@link #UNKNOWN}.
+   *
+   * @param name -- name of an Operation
+   * @return Opcode object
+   */
+  public static Opcode of(String name) {
+    Opcode opcode = name == null ? null : BY_NAME.get(name);
+    return opcode == null ? UNKNOWN : opcode;
+  }
+
+  public Category getCategory() {
+    return category;
+  }
+
+  public int getMinArity() {
+    return minArity;
+  }
+
+  /**
+   * Returns the maximum number of arguments, or Integer.MAX_VALUE for variadic operations.
+   */
+  public int getMaxArity() {
+    return maxArity;
+  }
+
+  /**
+   * Returns the symbol of the operation in C programs, or the name of the operation if it has no
+   * symbol, e.g., "+" for {@link #ADD} and "ite" for {@link #CONDITIONAL}.
+   */
+  public String getSymbol() {
+    return names.length == 0 ? null : names[0];
+  }
+
+  /**
+   * Returns whether the given name is the C symbol of this opcode. The Python names of an opcode
+   * share its meaning, but not necessarily the C semantics, e.g., "Div" is a true division.
+   */
+  public boolean isSymbol(String name) {
+    return names.length > 0 && names[0].equals(name);
+  }
+
+  /**
+   * Returns whether the opcode is a unary or binary operator, as opposed to a function-like
+   * operation.
+   */
+  public boolean isOperator() {
+    switch (category) {
+      case ARITHMETIC:
+      case COMPARISON:
+      case LOGICAL:
+      case BITWISE:
+        return true;
+      default:
+        return false;
+    }
+  }
+}
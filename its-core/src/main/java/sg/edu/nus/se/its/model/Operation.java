@@ -16,6 +16,12 @@ public class Operation extends Expression {
 
   private List<Expression> args;
 
+  /**
+   * Opcode of the name, which is resolved on first use since deserialized objects are not
+   * constructed through the constructor.
+   */
+  private transient Opcode opcode;
+
   /**
    * Initializes an Operation object with the pre-setting the isStatement value to false and the
    * original to null.
@@ -28,12 +34,25 @@ public class Operation extends Expression {
     super(line);
     this.name = name;
     this.args = args;
+    this.opcode = Opcode.of(name);
   }
 
   public String getName() {
     return name;
   }
 
+  /**
+   * Returns the opcode of this operation, or {@link Opcode#UNKNOWN} if the name is not known.
+   */
+  public Opcode getOpcode() {
+    Opcode result = opcode;
+    if (result == null) {
+      result = Opcode.of(name);
+      opcode = result;
+    }
+    return result;
+  }
+
   public List<Expression> getArgs() {
     return args;
   }
@@ -60,8 +79,14 @@ public class Operation extends Expression {
 
   @Override
   public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
     if (o instanceof Operation) {
       Operation operation = (Operation) o;
+      if (hasDifferentCachedHash(operation)) {
+        return false;
+      }
       return Objects.equals(name, operation.name) && Objects.equals(args, operation.args);
     }
     return false;
@@ -69,17 +94,37 @@ public class Operation extends Expression {
 
   @Override
   public int hashCode() {
+    if (isInterned()) {
+      return getCachedHash();
+    }
     return Objects.hash(name, args);
   }
 
+  /**
+   * Returns the operation with the given arguments, which is this operation if the arguments are
+   * unchanged. An interned operation is not modified but replaced by another interned operation.
+   */
+  private Expression withArgs(List<Expression> newArguments) {
+    for (int i = 0; i < newArguments.size(); i++) {
+      if (newArguments.get(i) != args.get(i)) {
+        if (isInterned()) {
+          return getPool().operation(name, newArguments, getLineNumber());
+        }
+        args = newArguments;
+        modified();
+        return this;
+      }
+    }
+    return this;
+  }
+
   @Override
   public Expression prime() {
     List<Expression> newArguments = new ArrayList<>();
     for (Expression expression : args) {
       newArguments.add(expression.prime());
     }
-    args = newArguments;
-    return this;
+    return withArgs(newArguments);
   }
 
   @Override
@@ -88,8 +133,7 @@ public class Operation extends Expression {
     for (Expression argument : this.args) {
       newArgs.add(argument.prime(name));
     }
-    this.args = newArgs;
-    return this;
+    return withArgs(newArgs);
   }
 
   @Override
@@ -98,8 +142,7 @@ public class Operation extends Expression {
     for (Expression expression : args) {
       newArguments.add(expression.unprime());
     }
-    args = newArguments;
-    return this;
+    return withArgs(newArguments);
   }
 
   @Override
@@ -108,8 +151,7 @@ public class Operation extends Expression {
     for (Expression expression : args) {
       newArguments.add(expression.replace(varName, expr));
     }
-    args = newArguments;
-    return this;
+    return withArgs(newArguments);
   }
 
   @Override
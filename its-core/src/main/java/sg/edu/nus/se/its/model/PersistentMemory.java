@@ -0,0 +1,444 @@
+package sg.edu.nus.se.its.model;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Memory backed by a persistent hash array mapped trie (HAMT). Taking a {@link #snapshot()} is a
+ * constant-time operation: the snapshot shares all trie nodes with this memory, and subsequent
+ * writes to either of them copy only the path from the root to the changed variable. Recording a
+ * trace entry therefore costs time and space proportional to the variables changed since the
+ * previous entry, instead of the size of the memory.
+ *
+ * <p>Nodes are owned by the memory that created them and are updated in place as long as no
+ * snapshot shares them, so that consecutive writes between two snapshots do not copy anything.
+ */
+public class PersistentMemory extends AbstractMemory {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final Object NOT_FOUND = new Object();
+
+  private Node root;
+  private int count;
+
+  /**
+   * Token that identifies the nodes this memory may update in place.
+   */
+  private transient Object edit = new Object();
+
+  public PersistentMemory() {
+    super();
+  }
+
+  private PersistentMemory(Node root, int count) {
+    super();
+    this.root = root;
+    this.count = count;
+  }
+
+  /**
+   * Returns an immutable view of the current values in constant time. Both this memory and the
+   * snapshot remain modifiable, writes to one of them are not visible in the other.
+   */
+  @Override
+  public Memory snapshot() {
+    edit = new Object();
+    return new PersistentMemory(root, count);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String) || root == null) {
+      return null;
+    }
+    Object value = root.find(0, hash(key), (String) key);
+    return value == NOT_FOUND ? null : value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && root != null
+        && root.find(0, hash(key), (String) key) != NOT_FOUND;
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    if (key == null) {
+      throw new NullPointerException("Variable name must not be null");
+    }
+    Change change = new Change();
+    Node node = root == null ? new BitmapNode(edit, 0, new Object[0]) : root;
+    root = node.assoc(edit, 0, hash(key), key, value, change);
+    if (change.added) {
+      count++;
+    }
+    return change.previous;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    if (!(key instanceof String) || root == null) {
+      return null;
+    }
+    Change change = new Change();
+    root = root.without(edit, 0, hash(key), (String) key, change);
+    if (change.removed) {
+      count--;
+    }
+    return change.previous;
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public void clear() {
+    root = null;
+    count = 0;
+  }
+
+  @Override
+  protected Iterator<Map.Entry<String, Object>> entryIterator() {
+    // nodes visited by the iterator must not be updated in place
+    edit = new Object();
+    return new EntryIterator(root);
+  }
+
+  @Override
+  public Object clone() {
+    return snapshot();
+  }
+
+  private static int hash(Object key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int bitpos(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /**
+   * Outcome of a single update of the trie.
+   */
+  private static class Change {
+    private boolean added;
+    private boolean removed;
+    private Object previous;
+  }
+
+  /**
+   * Node of the trie, storing its key/value pairs in a flat array. A null key denotes that the
+   * value is a sub-node.
+   */
+  private abstract static class Node {
+
+    final Object edit;
+    Object[] array;
+
+    Node(Object edit, Object[] array) {
+      this.edit = edit;
+      this.array = array;
+    }
+
+    abstract Object find(int shift, int hash, String key);
+
+    abstract Node assoc(Object edit, int shift, int hash, String key, Object value, Change change);
+
+    abstract Node without(Object edit, int shift, int hash, String key, Change change);
+
+    /**
+     * Returns a node with the given array, updating this node in place if it is owned by the edit.
+     */
+    Node withArray(Object edit, Object[] newArray) {
+      if (this.edit == edit) {
+        array = newArray;
+        return this;
+      }
+      return copy(edit, newArray);
+    }
+
+    Node withValue(Object edit, int index, Object value) {
+      if (this.edit == edit) {
+        array[index] = value;
+        return this;
+      }
+      Object[] newArray = array.clone();
+      newArray[index] = value;
+      return copy(edit, newArray);
+    }
+
+    abstract Node copy(Object edit, Object[] newArray);
+  }
+
+  private static final class BitmapNode extends Node {
+
+    int bitmap;
+
+    BitmapNode(Object edit, int bitmap, Object[] array) {
+      super(edit, array);
+      this.bitmap = bitmap;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object find(int shift, int hash, String key) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return NOT_FOUND;
+      }
+      int index = index(bit);
+      Object keyOrNull = array[2 * index];
+      Object valueOrNode = array[2 * index + 1];
+      if (keyOrNull == null) {
+        return ((Node) valueOrNode).find(shift + BITS, hash, key);
+      }
+      return key.equals(keyOrNull) ? valueOrNode : NOT_FOUND;
+    }
+
+    @Override
+    Node assoc(Object edit, int shift, int hash, String key, Object value, Change change) {
+      int bit = bitpos(hash, shift);
+      int index = index(bit);
+      if ((bitmap & bit) != 0) {
+        Object keyOrNull = array[2 * index];
+        Object valueOrNode = array[2 * index + 1];
+        if (keyOrNull == null) {
+          Node node = ((Node) valueOrNode).assoc(edit, shift + BITS, hash, key, value, change);
+          return node == valueOrNode ? this : withValue(edit, 2 * index + 1, node);
+        }
+        if (key.equals(keyOrNull)) {
+          change.previous = valueOrNode;
+          return valueOrNode == value ? this : withValue(edit, 2 * index + 1, value);
+        }
+        change.added = true;
+        Node node = createNode(edit, shift + BITS, (String) keyOrNull, valueOrNode, hash, key,
+            value);
+        Node result = withValue(edit, 2 * index, null);
+        result.array[2 * index + 1] = node;
+        return result;
+      }
+
+      int size = Integer.bitCount(bitmap);
+      Object[] newArray = new Object[2 * (size + 1)];
+      System.arraycopy(array, 0, newArray, 0, 2 * index);
+      newArray[2 * index] = key;
+      newArray[2 * index + 1] = value;
+      System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (size - index));
+      change.added = true;
+      if (this.edit == edit) {
+        bitmap |= bit;
+        array = newArray;
+        return this;
+      }
+      return new BitmapNode(edit, bitmap | bit, newArray);
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, String key, Change change) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = index(bit);
+      Object keyOrNull = array[2 * index];
+      Object valueOrNode = array[2 * index + 1];
+      if (keyOrNull == null) {
+        Node node = ((Node) valueOrNode).without(edit, shift + BITS, hash, key, change);
+        if (node == valueOrNode) {
+          return this;
+        }
+        if (node != null) {
+          return withValue(edit, 2 * index + 1, node);
+        }
+      } else if (key.equals(keyOrNull)) {
+        change.removed = true;
+        change.previous = valueOrNode;
+      } else {
+        return this;
+      }
+
+      if (bitmap == bit) {
+        return null;
+      }
+      int size = Integer.bitCount(bitmap);
+      Object[] newArray = new Object[2 * (size - 1)];
+      System.arraycopy(array, 0, newArray, 0, 2 * index);
+      System.arraycopy(array, 2 * (index + 1), newArray, 2 * index, 2 * (size - index - 1));
+      if (this.edit == edit) {
+        bitmap ^= bit;
+        array = newArray;
+        return this;
+      }
+      return new BitmapNode(edit, bitmap ^ bit, newArray);
+    }
+
+    @Override
+    Node copy(Object edit, Object[] newArray) {
+      return new BitmapNode(edit, bitmap, newArray);
+    }
+
+    private static Node createNode(Object edit, int shift, String key1, Object value1,
+        int hash2, String key2, Object value2) {
+      int hash1 = hash(key1);
+      if (hash1 == hash2) {
+        return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+      }
+      Change change = new Change();
+      return new BitmapNode(edit, 0, new Object[0])
+          .assoc(edit, shift, hash1, key1, value1, change)
+          .assoc(edit, shift, hash2, key2, value2, change);
+    }
+  }
+
+  /**
+   * Node for keys with identical hash codes, e.g., "Aa" and "BB".
+   */
+  private static final class CollisionNode extends Node {
+
+    final int hash;
+
+    CollisionNode(Object edit, int hash, Object[] array) {
+      super(edit, array);
+      this.hash = hash;
+    }
+
+    private int indexOf(String key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, String key) {
+      int index = indexOf(key);
+      return index < 0 ? NOT_FOUND : array[index + 1];
+    }
+
+    @Override
+    Node assoc(Object edit, int shift, int hash, String key, Object value, Change change) {
+      if (hash != this.hash) {
+        Node parent = new BitmapNode(edit, bitpos(this.hash, shift), new Object[] {null, this});
+        return parent.assoc(edit, shift, hash, key, value, change);
+      }
+      int index = indexOf(key);
+      if (index >= 0) {
+        change.previous = array[index + 1];
+        return array[index + 1] == value ? this : withValue(edit, index + 1, value);
+      }
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      change.added = true;
+      return withArray(edit, newArray);
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, String key, Change change) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      change.removed = true;
+      change.previous = array[index + 1];
+      if (array.length == 2) {
+        return null;
+      }
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+      return withArray(edit, newArray);
+    }
+
+    @Override
+    Node copy(Object edit, Object[] newArray) {
+      return new CollisionNode(edit, hash, newArray);
+    }
+  }
+
+  /**
+   * Depth-first iterator over the key/value pairs of the trie.
+   */
+  private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+    // hash codes have 32 bits, i.e., at most 7 bitmap levels plus one collision level
+    private final Object[][] arrays = new Object[8][];
+    private final int[] positions = new int[8];
+    private int depth = -1;
+    private String lastKey;
+
+    EntryIterator(Node root) {
+      if (root != null) {
+        push(root);
+      }
+    }
+
+    private void push(Node node) {
+      depth++;
+      arrays[depth] = node.array;
+      positions[depth] = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int position = positions[depth];
+        if (position >= array.length) {
+          depth--;
+        } else if (array[position] == null) {
+          positions[depth] = position + 2;
+          push((Node) array[position + 1]);
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object[] array = arrays[depth];
+      int position = positions[depth];
+      positions[depth] = position + 2;
+      String key = (String) array[position];
+      lastKey = key;
+      return new AbstractMap.SimpleEntry<String, Object>(key, array[position + 1]) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Object setValue(Object value) {
+          super.setValue(value);
+          return put(key, value);
+        }
+      };
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) {
+        throw new IllegalStateException();
+      }
+      PersistentMemory.this.remove(lastKey);
+      lastKey = null;
+    }
+  }
+}
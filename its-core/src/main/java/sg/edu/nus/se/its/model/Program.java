@@ -23,6 +23,15 @@ public class Program implements JsonSerializable {
     importStatements = new ArrayList<>();
   }
 
+  /**
+   * Initializes a program with the given import statements and functions by name. The map is used
+   * as is, e.g., a map which decodes the functions of a model file on first access.
+   */
+  public Program(List<String> importStatements, Map<String, Function> fncs) {
+    this.importStatements = importStatements;
+    this.fncs = fncs;
+  }
+
   public Map<String, Function> getFncs() {
     return fncs;
   }
@@ -47,6 +56,25 @@ public class Program implements JsonSerializable {
     return this.importStatements;
   }
 
+  /**
+   * Creates a deep copy of this program without serialization, see {@link Function#deepCopy()}.
+   *
+   * @return copy of this program
+   */
+  public Program deepCopy() {
+    Program copy = new Program();
+    copy.importStatements = importStatements == null ? null : new ArrayList<>(importStatements);
+    if (fncs == null) {
+      copy.fncs = null;
+    } else {
+      for (Map.Entry<String, Function> entry : fncs.entrySet()) {
+        Function function = entry.getValue();
+        copy.fncs.put(entry.getKey(), function == null ? null : function.deepCopy());
+      }
+    }
+    return copy;
+  }
+
   @Override
   public String toString() {
     String programString = "\n\n";
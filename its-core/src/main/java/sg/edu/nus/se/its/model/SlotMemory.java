@@ -0,0 +1,384 @@
+package sg.edu.nus.se.its.model;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Memory that stores the values of the variables known to a {@link MemoryLayout} in a dense array
+ * indexed by slot. Variables that are not part of the layout are kept in an overflow map, so that
+ * the object still behaves like any other Memory for callers that access variables by name.
+ *
+ * <p>Numbers, characters and the undefined value are stored unboxed, see {@link ValueType}, and
+ * are only boxed when they are read as objects. The boxed value is kept alongside the bits, so
+ * that a value is boxed at most once per write. Compiled expressions access them with the typed
+ * getters and setters, so that numeric loops do not allocate a boxed value per step.
+ */
+public class SlotMemory extends AbstractMemory {
+
+  private static final long serialVersionUID = 1L;
+
+  private final MemoryLayout layout;
+  /**
+   * Type of the value in each slot, or null if the slot is empty.
+   */
+  private ValueType[] types;
+  /**
+   * Bits of the unboxed values, i.e., integers or the raw bits of doubles.
+   */
+  private long[] bits;
+  /**
+   * Values of type OBJECT, and the boxed form of the unboxed values once it has been created. The
+   * boxed form is immutable, so that caching it is safe when a snapshot is read concurrently.
+   */
+  private Object[] values;
+  private int count;
+  private HashMap<String, Object> overflow;
+
+  /**
+   * Creates an empty memory for the given layout.
+   *
+   * @param layout - MemoryLayout object
+   */
+  public SlotMemory(MemoryLayout layout) {
+    super();
+    this.layout = layout;
+    this.types = new ValueType[layout.size()];
+    this.bits = new long[layout.size()];
+    this.values = new Object[layout.size()];
+  }
+
+  /**
+   * Creates a copy of the given memory that shares the layout, but not the values arrays.
+   *
+   * @param other - SlotMemory object to copy
+   */
+  public SlotMemory(SlotMemory other) {
+    super();
+    this.layout = other.layout;
+    this.types = other.types.clone();
+    this.bits = other.bits.clone();
+    this.values = other.values.clone();
+    this.count = other.count;
+    this.overflow = other.overflow == null ? null : new HashMap<>(other.overflow);
+  }
+
+  public MemoryLayout getLayout() {
+    return layout;
+  }
+
+  /**
+   * Returns the value in the given slot, or null if the slot is empty.
+   */
+  public Object getValue(int slot) {
+    Object value = values[slot];
+    if (value != null) {
+      return value;
+    }
+    ValueType type = types[slot];
+    if (type == null) {
+      return null;
+    }
+    switch (type) {
+      case INT:
+        value = (int) bits[slot];
+        break;
+      case LONG:
+        value = bits[slot];
+        break;
+      case DOUBLE:
+        value = Double.longBitsToDouble(bits[slot]);
+        break;
+      case CHAR:
+        value = (char) bits[slot];
+        break;
+      case UNDEFINED:
+        return Constants.UNDEFINED;
+      default:
+        return null;
+    }
+    values[slot] = value;
+    return value;
+  }
+
+  /**
+   * Returns whether the given slot holds a value.
+   */
+  public boolean hasValue(int slot) {
+    return types[slot] != null;
+  }
+
+  /**
+   * Returns the type of the value in the given slot, or null if the slot is empty.
+   */
+  public ValueType getType(int slot) {
+    return types[slot];
+  }
+
+  /**
+   * Returns the value of type INT, LONG or CHAR in the given slot.
+   */
+  public long getLong(int slot) {
+    return bits[slot];
+  }
+
+  /**
+   * Returns the value of type DOUBLE in the given slot.
+   */
+  public double getDouble(int slot) {
+    return Double.longBitsToDouble(bits[slot]);
+  }
+
+  /**
+   * Stores the value in the given slot and returns the previous value.
+   */
+  public Object setValue(int slot, Object value) {
+    Object previous = getValue(slot);
+    storeValue(slot, value);
+    return previous;
+  }
+
+  /**
+   * Stores the value in the given slot, unboxed if possible.
+   */
+  public void storeValue(int slot, Object value) {
+    ValueType type = ValueType.of(value);
+    switch (type) {
+      case INT:
+        setBits(slot, type, (Integer) value);
+        values[slot] = value;
+        break;
+      case LONG:
+        setBits(slot, type, (Long) value);
+        values[slot] = value;
+        break;
+      case DOUBLE:
+        setDouble(slot, (Double) value);
+        values[slot] = value;
+        break;
+      case CHAR:
+        setBits(slot, type, (Character) value);
+        values[slot] = value;
+        break;
+      case UNDEFINED:
+        setBits(slot, type, 0);
+        break;
+      default:
+        if (types[slot] == null) {
+          count++;
+        }
+        types[slot] = ValueType.OBJECT;
+        values[slot] = value;
+    }
+  }
+
+  public void setInt(int slot, int value) {
+    setBits(slot, ValueType.INT, value);
+  }
+
+  public void setLong(int slot, long value) {
+    setBits(slot, ValueType.LONG, value);
+  }
+
+  public void setDouble(int slot, double value) {
+    setBits(slot, ValueType.DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  public void setChar(int slot, char value) {
+    setBits(slot, ValueType.CHAR, value);
+  }
+
+  private void setBits(int slot, ValueType type, long value) {
+    if (types[slot] == null) {
+      count++;
+    }
+    types[slot] = type;
+    bits[slot] = value;
+    values[slot] = null;
+  }
+
+  /**
+   * Empties the given slot and returns the previous value.
+   */
+  public Object removeValue(int slot) {
+    if (types[slot] == null) {
+      return null;
+    }
+    Object previous = getValue(slot);
+    clearSlot(slot);
+    return previous;
+  }
+
+  /**
+   * Moves the value from one slot to another slot without boxing it. Nothing happens if the
+   * source slot is empty.
+   *
+   * @param from - slot to empty
+   * @param to - slot to overwrite
+   * @return whether a value was moved
+   */
+  public boolean moveValue(int from, int to) {
+    if (types[from] == null) {
+      return false;
+    }
+    if (types[to] == null) {
+      count++;
+    }
+    types[to] = types[from];
+    bits[to] = bits[from];
+    values[to] = values[from];
+    clearSlot(from);
+    return true;
+  }
+
+  private void clearSlot(int slot) {
+    types[slot] = null;
+    values[slot] = null;
+    count--;
+  }
+
+  /**
+   * Returns a copy of this memory, which copies the value arrays but shares the layout.
+   */
+  @Override
+  public Memory snapshot() {
+    return new SlotMemory(this);
+  }
+
+  @Override
+  public Object getValueForVariable(String variableName) {
+    return get(variableName);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int slot = layout.slotOf((String) key);
+    if (slot >= 0) {
+      return getValue(slot);
+    }
+    return overflow == null ? null : overflow.get(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int slot = layout.slotOf(key);
+    if (slot >= 0) {
+      return setValue(slot, value);
+    }
+    if (overflow == null) {
+      overflow = new HashMap<>();
+    }
+    return overflow.put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int slot = layout.slotOf((String) key);
+    if (slot >= 0) {
+      return removeValue(slot);
+    }
+    return overflow == null ? null : overflow.remove(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof String)) {
+      return false;
+    }
+    int slot = layout.slotOf((String) key);
+    if (slot >= 0) {
+      return types[slot] != null;
+    }
+    return overflow != null && overflow.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return count + (overflow == null ? 0 : overflow.size());
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(types, null);
+    Arrays.fill(values, null);
+    count = 0;
+    overflow = null;
+  }
+
+  @Override
+  protected Iterator<Map.Entry<String, Object>> entryIterator() {
+    return new Iterator<Map.Entry<String, Object>>() {
+      private int nextSlot = advance(0);
+      private int lastSlot = -1;
+      private Iterator<Map.Entry<String, Object>> overflowIterator;
+
+      private int advance(int slot) {
+        while (slot < types.length && types[slot] == null) {
+          slot++;
+        }
+        return slot;
+      }
+
+      @Override
+      public boolean hasNext() {
+        if (nextSlot < types.length) {
+          return true;
+        }
+        if (overflowIterator == null && overflow != null) {
+          overflowIterator = overflow.entrySet().iterator();
+        }
+        return overflowIterator != null && overflowIterator.hasNext();
+      }
+
+      @Override
+      public Map.Entry<String, Object> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (nextSlot < types.length) {
+          int slot = nextSlot;
+          lastSlot = slot;
+          nextSlot = advance(slot + 1);
+          return new AbstractMap.SimpleEntry<String, Object>(layout.nameOf(slot), getValue(slot)) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Object setValue(Object value) {
+              super.setValue(value);
+              return SlotMemory.this.setValue(slot, value);
+            }
+          };
+        }
+        lastSlot = -1;
+        return overflowIterator.next();
+      }
+
+      @Override
+      public void remove() {
+        if (lastSlot >= 0) {
+          removeValue(lastSlot);
+          lastSlot = -1;
+        } else if (overflowIterator != null) {
+          overflowIterator.remove();
+        } else {
+          throw new IllegalStateException();
+        }
+      }
+    };
+  }
+
+  @Override
+  public Object clone() {
+    return new SlotMemory(this);
+  }
+}
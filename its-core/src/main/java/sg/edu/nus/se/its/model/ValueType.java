@@ -0,0 +1,87 @@
+package sg.edu.nus.se.its.model;
+
+import sg.edu.nus.se.its.util.Constants;
+
+/**
+ * Representation of a value in a {@link SlotMemory}. Numbers and characters are stored unboxed,
+ * the undefined value is stored as a marker, and all other values are stored as objects.
+ */
+public enum ValueType {
+
+  OBJECT,
+  /**
+   * The undefined value {@link Constants#UNDEFINED}.
+   */
+  UNDEFINED,
+  INT,
+  LONG,
+  DOUBLE,
+  CHAR;
+
+  /**
+   * Returns whether values of this type are stored as integers, i.e., int, long or char.
+   */
+  public boolean isIntegral() {
+    return this == INT || this == LONG || this == CHAR;
+  }
+
+  /**
+   * Returns whether values of this type are stored unboxed.
+   */
+  public boolean isPrimitive() {
+    return isIntegral() || this == DOUBLE;
+  }
+
+  /**
+   * Returns the type in which the given value is stored.
+   *
+   * @param value -- value of a variable
+   * @return ValueType object
+   */
+  public static ValueType of(Object value) {
+    if (value instanceof Integer) {
+      return INT;
+    }
+    if (value instanceof Long) {
+      return LONG;
+    }
+    if (value instanceof Double) {
+      return DOUBLE;
+    }
+    if (value instanceof Character) {
+      return CHAR;
+    }
+    if (Constants.UNDEFINED.equals(value)) {
+      return UNDEFINED;
+    }
+    return OBJECT;
+  }
+
+  /**
+   * Returns the type in which values of the given declared C type are stored, or OBJECT if they
+   * are not stored unboxed.
+   *
+   * @param declaredType -- type of a variable, see {@link Function#getTypes()}
+   * @return ValueType object
+   */
+  public static ValueType ofDeclaredType(String declaredType) {
+    if (declaredType == null) {
+      return OBJECT;
+    }
+    switch (declaredType) {
+      case "int":
+        return INT;
+      case "long":
+      case "long int":
+      case "long long":
+      case "long long int":
+        return LONG;
+      case "double":
+        return DOUBLE;
+      case "char":
+        return CHAR;
+      default:
+        return OBJECT;
+    }
+  }
+}
@@ -17,11 +17,35 @@ public class Variable extends Expression implements Cloneable {
    */
   private boolean primed = false;
 
+  /**
+   * Cached primed name, since the name is looked up for every access during interpretation.
+   */
+  private transient String primedName;
+
+  /**
+   * Slot of this variable in the most recently used memory layout, so that the interpreter
+   * resolves the slot once per node instead of once per access.
+   */
+  private transient ResolvedSlot resolvedSlot;
+
   public Variable(String name, int line) {
     super(line);
     this.name = name;
   }
 
+  /**
+   * Creates a variable with the given prime status.
+   *
+   * @param name -- the unprimed name of the variable
+   * @param line -- the source line number
+   * @param primed -- whether the variable is primed
+   */
+  public Variable(String name, int line, boolean primed) {
+    super(line);
+    this.name = name;
+    this.primed = primed;
+  }
+
   // to create temporary variables
   public Variable(String name) {
     super(0);
@@ -33,7 +57,7 @@ public class Variable extends Expression implements Cloneable {
    */
   public String getName() {
     if (isPrimed()) {
-      return name + "'";
+      return getPrimedName();
     }
     return name;
   }
@@ -56,14 +80,43 @@ public class Variable extends Expression implements Cloneable {
    * Returns the variable name as String, including the "'" for primed variables.
    */
   public String getPrimedName() {
-    return name + "'";
+    String result = primedName;
+    if (result == null) {
+      result = asPrimedVariableName(name);
+      primedName = result;
+    }
+    return result;
   }
 
   /**
-   * Sets the prime status of the variable, without generating any clone.
+   * Sets the prime status of the variable, without generating any clone. Changing the status is
+   * an in-place modification, see {@link Expression#getModificationStamp()}.
+   *
+   * @throws UnsupportedOperationException if the variable is interned and the status changes; use
+   *     {@link #prime()} or {@link #unprime()}, which return the interned counterpart, instead
    */
   public void setPrimed(boolean primed) {
-    this.primed = primed;
+    if (isInterned() && this.primed != primed) {
+      throw new UnsupportedOperationException(
+          String.format("Interned variable %s is immutable", getName()));
+    }
+    if (this.primed != primed) {
+      this.primed = primed;
+      resolvedSlot = null;
+      modified();
+    }
+  }
+
+  /**
+   * Returns the slot of this variable in the given layout, see {@link MemoryLayout#slotOf}.
+   */
+  int slotIn(MemoryLayout layout) {
+    ResolvedSlot result = resolvedSlot;
+    if (result == null || result.layout != layout) {
+      result = new ResolvedSlot(layout, layout.lookupSlot(this));
+      resolvedSlot = result;
+    }
+    return result.slot;
   }
 
   /**
@@ -105,14 +158,7 @@ public class Variable extends Expression implements Cloneable {
     if (!var.isPrimed()) {
       throw new RuntimeException(String.format("Var %s is already not primed!", var.getName()));
     }
-    try {
-      Variable result = (Variable) var.clone();
-      result.setPrimed(false);
-      return result;
-    } catch (CloneNotSupportedException e) {
-      // should not happen
-      return null;
-    }
+    return new Variable(var.name, var.getLineNumber(), false);
   }
 
   @Override
@@ -122,9 +168,7 @@ public class Variable extends Expression implements Cloneable {
 
   @Override
   public Object clone() throws CloneNotSupportedException {
-    Variable cloneVariable = new Variable(this.name, this.getLineNumber());
-    cloneVariable.setPrimed(this.isPrimed());
-    return cloneVariable;
+    return new Variable(this.name, this.getLineNumber(), this.isPrimed());
   }
 
   @Override
@@ -139,8 +183,14 @@ public class Variable extends Expression implements Cloneable {
 
   @Override
   public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
     if (o instanceof Variable) {
       Variable variable = (Variable) o;
+      if (hasDifferentCachedHash(variable)) {
+        return false;
+      }
       return Objects.equals(
           Variable.isPrimedName(name) ? Variable.asUnprimedVariableName(name) : name,
           Variable.isPrimedName(variable.name) ? Variable.asUnprimedVariableName(variable.name)
@@ -151,11 +201,18 @@ public class Variable extends Expression implements Cloneable {
 
   @Override
   public int hashCode() {
-    return Objects.hash(name, primed, getLineNumber());
+    if (isInterned()) {
+      return getCachedHash();
+    }
+    // consistent with equals, which ignores the prime status and the line number
+    return Objects.hash(isPrimedName(name) ? asUnprimedVariableName(name) : name);
   }
 
   @Override
   public Expression prime() {
+    if (isInterned()) {
+      return getPool().variable(name, true, getLineNumber());
+    }
     this.setPrimed(true);
     return this;
   }
@@ -164,8 +221,7 @@ public class Variable extends Expression implements Cloneable {
   public Expression prime(Set<String> name) {
     for (String varName : name) {
       if (this.name.equals(varName)) {
-        this.setPrimed(true);
-        return this;
+        return prime();
       }
     }
     return this;
@@ -174,6 +230,9 @@ public class Variable extends Expression implements Cloneable {
   @Override
   public Expression replace(String varName, Expression expression) {
     if (name.equals(varName)) {
+      if (isInterned()) {
+        return getPool().intern(expression);
+      }
       try {
         return (Expression) expression.clone();
       } catch (CloneNotSupportedException e) {
@@ -185,7 +244,25 @@ public class Variable extends Expression implements Cloneable {
 
   @Override
   public Expression unprime() {
+    if (isInterned()) {
+      return getPool().variable(name, false, getLineNumber());
+    }
     this.setPrimed(false);
     return this;
   }
+
+  /**
+   * Slot of a variable in a layout, which is replaced as a whole so that it can be read without
+   * synchronization.
+   */
+  private static final class ResolvedSlot {
+
+    private final MemoryLayout layout;
+    private final int slot;
+
+    ResolvedSlot(MemoryLayout layout, int slot) {
+      this.layout = layout;
+      this.slot = slot;
+    }
+  }
 }
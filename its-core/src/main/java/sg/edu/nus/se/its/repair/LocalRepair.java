@@ -6,6 +6,7 @@ import org.javatuples.Pair;
 import org.javatuples.Triplet;
 import sg.edu.nus.se.its.model.Constant;
 import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Opcode;
 import sg.edu.nus.se.its.model.Operation;
 import sg.edu.nus.se.its.model.Variable;
 
@@ -91,7 +92,7 @@ public class LocalRepair {
       String name = expr.toString();
       return Variable.isPrimedName(name) ? Variable.asUnprimedVariableName(name) : name;
     } else if (expr instanceof Operation) {
-      if (((Operation) expr).getName().equals("ite")) {
+      if (((Operation) expr).getOpcode() == Opcode.CONDITIONAL) {
         return prettyPrintIteExpr((Operation) expr);
       }
       List<Expression> args = ((Operation) expr).getArgs();
@@ -0,0 +1,829 @@
+package sg.edu.nus.se.its.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.javatuples.Pair;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.ExpressionPool;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Compact binary de-/serialization of {@link Program} models, as an alternative to the JSON
+ * models written by {@link TestUtils#storeProgramAsJsonFile(Program, String)}.
+ *
+ * <p>A model file starts with the magic number and the format version, followed by the string
+ * table, the import statements, the function index and the functions. The string table consists
+ * of the number of strings, the offsets of the strings as 32-bit integers, with the end offset as
+ * last one, and the UTF-8 encoded strings. All other numbers are varints: unsigned LEB128, or
+ * zigzag-encoded if they may be negative. Every string, i.e., names, types, descriptions and
+ * constant values, is stored once in the string table and referenced by its index, where 0
+ * denotes null and i + 1 the i-th string. The program is encoded as
+ * <ul>
+ * <li>the import statements and the number of functions,</li>
+ * <li>the function index with the name and the encoded length of every function, where a null
+ * function has length 0,</li>
+ * <li>per function its name, return type, initial and end location, parameters and types,</li>
+ * <li>the blocks, sorted by location, with the locations delta-encoded, and per block its
+ * description, its transitions and its assignments,</li>
+ * <li>per assignment the variable and the expression tree in prefix order, where every node starts
+ * with a tag for its type.</li>
+ * </ul>
+ * Lists that may be null store their size + 1, with 0 for null. Null maps of a function are written
+ * as empty maps.
+ *
+ * <p>Decoded programs are loaded lazily: only the function index is read, and a function is
+ * decoded on its first access, e.g., through {@link Program#getfnc(String)}; strings are decoded
+ * once when they are first referenced. Iterating over the functions decodes all of them. The
+ * expressions of a model can be interned by an
+ * {@link ExpressionPool} while they are decoded, see {@link #decode(byte[], ExpressionPool)}.
+ */
+public class BinaryProgramCodec {
+
+  /**
+   * Extension of binary model files.
+   */
+  public static final String FILE_EXTENSION = ".bin";
+
+  static final long MAGIC = 0x4954534d4f44454cL;
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 8 + 4;
+
+  static final byte TAG_NULL = 0;
+  static final byte TAG_VARIABLE = 1;
+  static final byte TAG_PRIMED_VARIABLE = 2;
+  static final byte TAG_CONSTANT = 3;
+  static final byte TAG_OPERATION = 4;
+
+  // flags of the transitions of a location
+  static final int TRANS_TRUE = 1;
+  static final int TRANS_TRUE_TARGET = 2;
+  static final int TRANS_FALSE = 4;
+  static final int TRANS_FALSE_TARGET = 8;
+  static final int TRANS_NULL = 16;
+
+  /**
+   * Encodes the program in the binary model format.
+   *
+   * @param program -- Program
+   * @return encoded model
+   */
+  public static byte[] encode(Program program) {
+    return new Encoder().encode(program);
+  }
+
+  /**
+   * Decodes a program from the binary model format.
+   *
+   * @param model -- encoded model
+   * @return Program object
+   * @throws IOException if the data is not a valid model
+   */
+  public static Program decode(byte[] model) throws IOException {
+    return decode(ByteBuffer.wrap(model), null);
+  }
+
+  /**
+   * Decodes a program from the binary model format, with the expressions interned by the given
+   * pool as they are decoded.
+   *
+   * @param model -- encoded model
+   * @param expressions -- pool for the expressions, or null to decode mutable expressions
+   * @return Program object
+   * @throws IOException if the data is not a valid model
+   */
+  public static Program decode(byte[] model, ExpressionPool expressions) throws IOException {
+    return decode(ByteBuffer.wrap(model), expressions);
+  }
+
+  /**
+   * Decodes a program from the binary model format, starting at the position of the buffer. The
+   * buffer itself is not modified, but the program keeps a reference to it until all functions
+   * are decoded.
+   *
+   * @param model -- buffer with the encoded model
+   * @return Program object
+   * @throws IOException if the data is not a valid model
+   */
+  public static Program decode(ByteBuffer model) throws IOException {
+    return decode(model, null);
+  }
+
+  private static Program decode(ByteBuffer model, ExpressionPool expressions)
+      throws IOException {
+    ByteBuffer in = model.slice();
+    try {
+      if (in.remaining() < HEADER_SIZE || in.getLong() != MAGIC) {
+        throw new IOException("Not a binary program model");
+      }
+      int version = in.getInt();
+      if (version != VERSION) {
+        throw new IOException(String.format("Unsupported program model version: %d", version));
+      }
+      return decodeIndexed(in, expressions);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Truncated program model", e);
+    }
+  }
+
+  /**
+   * Reads the string table and the function index, returning a program which decodes the
+   * functions on first access.
+   */
+  private static Program decodeIndexed(ByteBuffer in, ExpressionPool expressions)
+      throws IOException {
+    int stringCount = in.getInt();
+    if (stringCount < 0 || stringCount > in.remaining() / 4) {
+      throw new IOException(String.format("Invalid string table size: %d", stringCount));
+    }
+    int offsetsPosition = in.position();
+    int dataPosition = offsetsPosition + 4 * (stringCount + 1);
+    in.position(dataPosition + in.getInt(offsetsPosition + 4 * stringCount));
+    StringTable strings = new StringTable(in, offsetsPosition, dataPosition, stringCount);
+    Decoder decoder = new Decoder(in, strings, null);
+
+    List<String> importStatements = decoder.readImportStatements();
+    int functionCount = readVarint(in);
+    if (functionCount < 0 || functionCount > in.remaining()) {
+      throw new IOException(String.format("Invalid number of functions: %d", functionCount));
+    }
+    String[] names = new String[functionCount];
+    int[] lengths = new int[functionCount];
+    for (int i = 0; i < functionCount; i++) {
+      names[i] = decoder.readString();
+      lengths[i] = readVarint(in);
+    }
+    Map<String, Integer> offsets = new HashMap<>();
+    Map<String, Function> functions = new HashMap<>();
+    long offset = in.position();
+    for (int i = 0; i < functionCount; i++) {
+      if (lengths[i] == 0) {
+        functions.put(names[i], null);
+      } else {
+        offsets.put(names[i], (int) offset);
+      }
+      offset += lengths[i] & 0xffffffffL;
+    }
+    if (offset > in.limit()) {
+      throw new IOException("Truncated program model");
+    }
+    return new Program(importStatements,
+        new LazyFunctionMap(in, strings, expressions, offsets, functions));
+  }
+
+  /**
+   * Writes the program to the given file in the binary model format.
+   *
+   * @param program -- Program
+   * @param path -- path of the model file, which is overwritten
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Program program, Path path) throws IOException {
+    Files.write(path, encode(program));
+  }
+
+  /**
+   * Reads the program from the given binary model file, which is mapped into memory.
+   *
+   * @param path -- path of the model file
+   * @return Program object
+   * @throws IOException if the file cannot be read or is not a binary model
+   */
+  public static Program read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Converts a JSON model into a binary model.
+   *
+   * @param jsonFile -- path of the JSON model
+   * @param binaryFile -- path of the binary model, which is overwritten
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void convertJsonToBinary(Path jsonFile, Path binaryFile) throws IOException {
+    Program program;
+    try (Reader reader = Files.newBufferedReader(jsonFile, StandardCharsets.UTF_8)) {
+      program = TupleTypeAdapterFactory.GSON.fromJson(reader, Program.class);
+    }
+    if (program == null) {
+      throw new IOException(String.format("Empty program model: %s", jsonFile));
+    }
+    write(program, binaryFile);
+  }
+
+  /**
+   * Converts a binary model into a JSON model in the format of
+   * {@link TestUtils#storeProgramAsJsonFile(Program, String)}.
+   *
+   * @param binaryFile -- path of the binary model
+   * @param jsonFile -- path of the JSON model, which is overwritten
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void convertBinaryToJson(Path binaryFile, Path jsonFile) throws IOException {
+    Program program = read(binaryFile);
+    try (Writer writer = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+      writer.write(TupleTypeAdapterFactory.toPrettyJson(program));
+    }
+  }
+
+  /**
+   * Converts the given model files: JSON models into binary models and binary models into JSON
+   * models, next to the original file.
+   *
+   * @param args -- paths of the model files
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    for (String arg : args) {
+      Path file = Paths.get(arg);
+      String name = file.getFileName().toString();
+      if (name.endsWith(FILE_EXTENSION)) {
+        String base = name.substring(0, name.length() - FILE_EXTENSION.length());
+        convertBinaryToJson(file, file.resolveSibling(base + ".json"));
+      } else {
+        String base = name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+        convertJsonToBinary(file, file.resolveSibling(base + FILE_EXTENSION));
+      }
+    }
+  }
+
+  /**
+   * Output stream with varint encoding.
+   */
+  static class VarintOutputStream extends ByteArrayOutputStream {
+
+    void writeVarint(int value) {
+      while ((value & ~0x7f) != 0) {
+        write((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+
+    void writeSignedVarint(int value) {
+      writeVarint((value << 1) ^ (value >> 31));
+    }
+  }
+
+  static int readVarint(ByteBuffer in) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = in.get();
+      result |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed varint in program model");
+  }
+
+  static int readSignedVarint(ByteBuffer in) throws IOException {
+    int value = readVarint(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Encodes one program, collecting the string table while the body is written.
+   */
+  private static class Encoder {
+
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    // stream that is currently written: the index, or the body of a function
+    private VarintOutputStream body;
+
+    byte[] encode(Program program) {
+      List<String> names = new ArrayList<>();
+      List<byte[]> functions = new ArrayList<>();
+      for (Map.Entry<String, Function> entry : program.getFncs().entrySet()) {
+        body = new VarintOutputStream();
+        if (entry.getValue() != null) {
+          writeFunction(entry.getValue());
+        }
+        names.add(entry.getKey());
+        functions.add(body.toByteArray());
+      }
+
+      VarintOutputStream index = new VarintOutputStream();
+      body = index;
+      List<String> importStatements = program.getImportStatements();
+      writeSize(importStatements);
+      if (importStatements != null) {
+        for (String statement : importStatements) {
+          writeString(statement);
+        }
+      }
+      body.writeVarint(names.size());
+      for (int i = 0; i < names.size(); i++) {
+        writeString(names.get(i));
+        body.writeVarint(functions.get(i).length);
+      }
+
+      List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+      for (String value : strings.keySet()) {
+        encodedStrings.add(value.getBytes(StandardCharsets.UTF_8));
+      }
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 4 + 4 * (strings.size() + 1));
+      header.putLong(MAGIC).putInt(VERSION).putInt(strings.size());
+      int stringOffset = 0;
+      for (byte[] value : encodedStrings) {
+        header.putInt(stringOffset);
+        stringOffset += value.length;
+      }
+      header.putInt(stringOffset);
+
+      VarintOutputStream out = new VarintOutputStream();
+      out.write(header.array(), 0, header.capacity());
+      for (byte[] value : encodedStrings) {
+        out.write(value, 0, value.length);
+      }
+      out.write(index.toByteArray(), 0, index.size());
+      for (byte[] function : functions) {
+        out.write(function, 0, function.length);
+      }
+      return out.toByteArray();
+    }
+
+    private void writeFunction(Function function) {
+      writeString(function.getName());
+      writeString(function.getRettype());
+      body.writeSignedVarint(function.getInitloc());
+      body.writeSignedVarint(function.getEndloc());
+
+      List<Pair<String, String>> params = function.getParams();
+      writeSize(params);
+      if (params != null) {
+        for (Pair<String, String> param : params) {
+          writeString(param.getValue0());
+          writeString(param.getValue1());
+        }
+      }
+
+      Map<String, String> types = nonNull(function.getTypes());
+      body.writeVarint(types.size());
+      for (Map.Entry<String, String> type : types.entrySet()) {
+        writeString(type.getKey());
+        writeString(type.getValue());
+      }
+
+      // blocks of all locations which have an expression list, a description or transitions
+      Map<Integer, ArrayList<Pair<String, Expression>>> locexprs =
+          nonNull(function.getLocexprs());
+      Map<Integer, String> locdescs = nonNull(function.getLocdescs());
+      Map<Integer, HashMap<Boolean, Integer>> loctrans = nonNull(function.getLoctrans());
+      List<Integer> locations = new ArrayList<>(locexprs.keySet());
+      for (Integer location : locdescs.keySet()) {
+        if (!locexprs.containsKey(location)) {
+          locations.add(location);
+        }
+      }
+      for (Integer location : loctrans.keySet()) {
+        if (!locexprs.containsKey(location) && !locdescs.containsKey(location)) {
+          locations.add(location);
+        }
+      }
+      Collections.sort(locations);
+      body.writeVarint(locations.size());
+      int previous = 0;
+      for (int location : locations) {
+        body.writeSignedVarint(location - previous);
+        previous = location;
+        writeBlock(location, locexprs, locdescs, loctrans);
+      }
+    }
+
+    private void writeBlock(int location,
+        Map<Integer, ArrayList<Pair<String, Expression>>> locexprs,
+        Map<Integer, String> locdescs, Map<Integer, HashMap<Boolean, Integer>> loctrans) {
+      boolean hasExprs = locexprs.containsKey(location);
+      boolean hasDesc = locdescs.containsKey(location);
+      boolean hasTrans = loctrans.containsKey(location);
+      body.write((hasExprs ? 1 : 0) | (hasDesc ? 2 : 0) | (hasTrans ? 4 : 0));
+      if (hasDesc) {
+        writeString(locdescs.get(location));
+      }
+      if (hasTrans) {
+        writeTransitions(loctrans.get(location));
+      }
+      if (hasExprs) {
+        List<Pair<String, Expression>> block = locexprs.get(location);
+        writeSize(block);
+        if (block != null) {
+          for (Pair<String, Expression> assignment : block) {
+            writeString(assignment.getValue0());
+            writeExpression(assignment.getValue1());
+          }
+        }
+      }
+    }
+
+    private void writeTransitions(Map<Boolean, Integer> transitions) {
+      if (transitions == null) {
+        body.write(TRANS_NULL);
+        return;
+      }
+      Integer trueTarget = transitions.get(true);
+      Integer falseTarget = transitions.get(false);
+      int flags = 0;
+      if (transitions.containsKey(true)) {
+        flags |= trueTarget == null ? TRANS_TRUE : TRANS_TRUE | TRANS_TRUE_TARGET;
+      }
+      if (transitions.containsKey(false)) {
+        flags |= falseTarget == null ? TRANS_FALSE : TRANS_FALSE | TRANS_FALSE_TARGET;
+      }
+      body.write(flags);
+      if (trueTarget != null) {
+        body.writeSignedVarint(trueTarget);
+      }
+      if (falseTarget != null) {
+        body.writeSignedVarint(falseTarget);
+      }
+    }
+
+    private void writeExpression(Expression expression) {
+      if (expression == null) {
+        body.write(TAG_NULL);
+      } else if (expression instanceof Variable) {
+        Variable variable = (Variable) expression;
+        body.write(variable.isPrimed() ? TAG_PRIMED_VARIABLE : TAG_VARIABLE);
+        writeString(variable.getUnprimedName());
+        body.writeSignedVarint(variable.getLineNumber());
+      } else if (expression instanceof Constant) {
+        body.write(TAG_CONSTANT);
+        writeString(((Constant) expression).getValue());
+        body.writeSignedVarint(expression.getLineNumber());
+      } else if (expression instanceof Operation) {
+        Operation operation = (Operation) expression;
+        body.write(TAG_OPERATION);
+        writeString(operation.getName());
+        body.writeSignedVarint(operation.getLineNumber());
+        List<Expression> args = operation.getArgs();
+        writeSize(args);
+        if (args != null) {
+          for (Expression argument : args) {
+            writeExpression(argument);
+          }
+        }
+      } else {
+        throw new RuntimeException(
+            String.format("Unsupported expression: %s", expression.getClass().getName()));
+      }
+    }
+
+    private void writeSize(List<?> list) {
+      body.writeVarint(list == null ? 0 : list.size() + 1);
+    }
+
+    private void writeString(String value) {
+      if (value == null) {
+        body.writeVarint(0);
+        return;
+      }
+      Integer id = strings.get(value);
+      if (id == null) {
+        id = strings.size();
+        strings.put(value, id);
+      }
+      body.writeVarint(id + 1);
+    }
+
+    private static <K, V> Map<K, V> nonNull(Map<K, V> map) {
+      return map == null ? Collections.emptyMap() : map;
+    }
+  }
+
+  /**
+   * Strings of a model, which are decoded on first use.
+   */
+  private static class StringTable {
+
+    private final ByteBuffer buffer;
+    private final int offsetsPosition;
+    private final int dataPosition;
+    private final AtomicReferenceArray<String> strings;
+
+    StringTable(ByteBuffer buffer, int offsetsPosition, int dataPosition, int count) {
+      this.buffer = buffer;
+      this.offsetsPosition = offsetsPosition;
+      this.dataPosition = dataPosition;
+      this.strings = new AtomicReferenceArray<>(count);
+    }
+
+    String get(int index) throws IOException {
+      if (index < 0 || index >= strings.length()) {
+        throw new IOException(String.format("Invalid string index: %d", index));
+      }
+      String value = strings.get(index);
+      if (value == null) {
+        int start = buffer.getInt(offsetsPosition + 4 * index);
+        int end = buffer.getInt(offsetsPosition + 4 * index + 4);
+        if (start < 0 || end < start) {
+          throw new IOException(String.format("Invalid offset of string: %d", index));
+        }
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(dataPosition + start);
+        view.get(bytes);
+        value = new String(bytes, StandardCharsets.UTF_8);
+        strings.set(index, value);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Functions of an indexed model, which are decoded on first access. The map keeps a reference
+   * to the model until all functions are decoded. Functions that are replaced or removed before
+   * their first access are not decoded, in which case put and remove return null.
+   */
+  private static class LazyFunctionMap extends AbstractMap<String, Function> {
+
+    private ByteBuffer buffer;
+    private StringTable strings;
+    private final ExpressionPool expressions;
+    private final Map<String, Integer> offsets;
+    private final Map<String, Function> functions;
+
+    LazyFunctionMap(ByteBuffer buffer, StringTable strings, ExpressionPool expressions,
+        Map<String, Integer> offsets, Map<String, Function> functions) {
+      this.buffer = buffer;
+      this.strings = strings;
+      this.expressions = expressions;
+      this.offsets = offsets;
+      this.functions = functions;
+    }
+
+    @Override
+    public synchronized Function get(Object name) {
+      Function function = functions.get(name);
+      if (function == null && offsets.containsKey(name)) {
+        function = decode((String) name);
+      }
+      return function;
+    }
+
+    private Function decode(String name) {
+      ByteBuffer in = buffer.duplicate();
+      in.position(offsets.get(name));
+      Function function;
+      try {
+        function = new Decoder(in, strings, expressions).decodeFunction();
+      } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException
+          | IllegalArgumentException e) {
+        throw new RuntimeException(String.format("Cannot decode function: %s", name), e);
+      }
+      functions.put(name, function);
+      discard(name);
+      return function;
+    }
+
+    private void decodeAll() {
+      for (String name : new ArrayList<>(offsets.keySet())) {
+        decode(name);
+      }
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object name) {
+      return functions.containsKey(name) || offsets.containsKey(name);
+    }
+
+    @Override
+    public synchronized int size() {
+      return functions.size() + offsets.size();
+    }
+
+    @Override
+    public synchronized Function put(String name, Function function) {
+      discard(name);
+      return functions.put(name, function);
+    }
+
+    @Override
+    public synchronized Function remove(Object name) {
+      discard(name);
+      return functions.remove(name);
+    }
+
+    private void discard(Object name) {
+      if (offsets.remove(name) != null && offsets.isEmpty()) {
+        buffer = null;
+        strings = null;
+      }
+    }
+
+    @Override
+    public synchronized void clear() {
+      offsets.clear();
+      functions.clear();
+      buffer = null;
+      strings = null;
+    }
+
+    /**
+     * Returns the names of the functions without decoding them. The set does not support removal.
+     */
+    @Override
+    public Set<String> keySet() {
+      return new AbstractSet<String>() {
+        @Override
+        public Iterator<String> iterator() {
+          List<String> names;
+          synchronized (LazyFunctionMap.this) {
+            names = new ArrayList<>(functions.keySet());
+            names.addAll(offsets.keySet());
+          }
+          return Collections.unmodifiableList(names).iterator();
+        }
+
+        @Override
+        public int size() {
+          return LazyFunctionMap.this.size();
+        }
+
+        @Override
+        public boolean contains(Object name) {
+          return containsKey(name);
+        }
+      };
+    }
+
+    @Override
+    public synchronized Set<Map.Entry<String, Function>> entrySet() {
+      decodeAll();
+      return functions.entrySet();
+    }
+  }
+
+  /**
+   * Decodes a program or a function from a buffer, starting at the position of the buffer.
+   */
+  private static class Decoder {
+
+    private final ByteBuffer in;
+    private final StringTable strings;
+    private final ExpressionPool expressions;
+
+    Decoder(ByteBuffer in, StringTable strings, ExpressionPool expressions) {
+      this.in = in;
+      this.strings = strings;
+      this.expressions = expressions;
+    }
+
+    List<String> readImportStatements() throws IOException {
+      int importCount = readSize();
+      if (importCount < 0) {
+        return null;
+      }
+      List<String> importStatements = new ArrayList<>(importCount);
+      for (int i = 0; i < importCount; i++) {
+        importStatements.add(readString());
+      }
+      return importStatements;
+    }
+
+    Function decodeFunction() throws IOException {
+      String name = readString();
+      String rettype = readString();
+      int initloc = readSignedVarint(in);
+      int endloc = readSignedVarint(in);
+
+      ArrayList<Pair<String, String>> params = null;
+      int paramCount = readSize();
+      if (paramCount >= 0) {
+        params = new ArrayList<>(paramCount);
+        for (int i = 0; i < paramCount; i++) {
+          params.add(new Pair<>(readString(), readString()));
+        }
+      }
+      Function function = new Function(name, params, rettype);
+      function.setInitloc(initloc);
+      function.setEndloc(endloc);
+
+      int typeCount = readVarint(in);
+      for (int i = 0; i < typeCount; i++) {
+        function.getTypes().put(readString(), readString());
+      }
+
+      int locationCount = readVarint(in);
+      int location = 0;
+      for (int i = 0; i < locationCount; i++) {
+        location += readSignedVarint(in);
+        decodeBlock(function, location);
+      }
+      return function;
+    }
+
+    private void decodeBlock(Function function, int location) throws IOException {
+      int parts = in.get();
+      if ((parts & 2) != 0) {
+        function.getLocdescs().put(location, readString());
+      }
+      if ((parts & 4) != 0) {
+        function.getLoctrans().put(location, readTransitions());
+      }
+      if ((parts & 1) != 0) {
+        ArrayList<Pair<String, Expression>> block = null;
+        int size = readSize();
+        if (size >= 0) {
+          block = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            String variable = readString();
+            block.add(new Pair<>(variable, readExpression()));
+          }
+        }
+        function.getLocexprs().put(location, block);
+      }
+    }
+
+    private HashMap<Boolean, Integer> readTransitions() throws IOException {
+      int flags = in.get();
+      if ((flags & TRANS_NULL) != 0) {
+        return null;
+      }
+      HashMap<Boolean, Integer> transitions = new HashMap<>();
+      if ((flags & TRANS_TRUE) != 0) {
+        transitions.put(true, (flags & TRANS_TRUE_TARGET) != 0 ? readSignedVarint(in) : null);
+      }
+      if ((flags & TRANS_FALSE) != 0) {
+        transitions.put(false, (flags & TRANS_FALSE_TARGET) != 0 ? readSignedVarint(in) : null);
+      }
+      return transitions;
+    }
+
+    private Expression readExpression() throws IOException {
+      byte tag = in.get();
+      switch (tag) {
+        case TAG_NULL:
+          return null;
+        case TAG_VARIABLE:
+        case TAG_PRIMED_VARIABLE:
+          String variableName = readString();
+          int variableLine = readSignedVarint(in);
+          if (expressions != null) {
+            return expressions.variable(variableName, tag == TAG_PRIMED_VARIABLE,
+                variableLine);
+          }
+          return new Variable(variableName, variableLine, tag == TAG_PRIMED_VARIABLE);
+        case TAG_CONSTANT:
+          String value = readString();
+          int constantLine = readSignedVarint(in);
+          return expressions != null ? expressions.constant(value, constantLine)
+              : new Constant(value, constantLine);
+        case TAG_OPERATION:
+          String name = readString();
+          int line = readSignedVarint(in);
+          List<Expression> args = null;
+          int argCount = readSize();
+          if (argCount >= 0) {
+            args = new ArrayList<>(argCount);
+            for (int i = 0; i < argCount; i++) {
+              args.add(readExpression());
+            }
+          }
+          return expressions != null && args != null ? expressions.operation(name, args, line)
+              : new Operation(name, args, line);
+        default:
+          throw new IOException(String.format("Unknown expression tag: %d", tag));
+      }
+    }
+
+    /**
+     * Reads the size of a list that may be null, returning -1 for null.
+     */
+    private int readSize() throws IOException {
+      return readVarint(in) - 1;
+    }
+
+    String readString() throws IOException {
+      int id = readVarint(in);
+      return id == 0 ? null : strings.get(id - 1);
+    }
+  }
+}
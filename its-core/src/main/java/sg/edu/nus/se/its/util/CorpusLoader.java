@@ -0,0 +1,437 @@
+package sg.edu.nus.se.its.util;
+
+import com.google.gson.JsonParseException;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import sg.edu.nus.se.its.model.ExpressionPool;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+
+/**
+ * Loads a corpus of program models, e.g., the submissions of a cohort, in parallel on a bounded
+ * pool of threads.
+ *
+ * <p>A corpus is a list of {@link Entry} objects, which are listed from a model directory, see
+ * {@link #listDirectory(Path, Path)}, or read from a manifest, see {@link #readManifest(Path)}.
+ * Models are read with NIO and decoded by one shared codec: JSON models with the shared
+ * {@link TupleTypeAdapterFactory#GSON}, binary models with {@link BinaryProgramCodec}. Inputs are
+ * read like {@link TestUtils#loadInputsByProgramName(String)}, i.e., the whitespace-separated
+ * tokens of the input file form one Input. If the loader has an {@link ExpressionPool}, the
+ * expressions of all loaded models are interned by it, so that the common subexpressions of the
+ * corpus are shared.
+ *
+ * <p>The loader is thread-safe.
+ */
+public class CorpusLoader implements Closeable {
+
+  private static final String JSON_EXTENSION = ".json";
+  private static final String INPUT_EXTENSION = ".in";
+
+  private final int poolSize;
+  private final ExecutorService pool;
+  private final ExpressionPool expressions;
+
+  /**
+   * Creates a loader with as many threads as there are processors.
+   */
+  public CorpusLoader() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a loader.
+   *
+   * @param poolSize -- maximum number of models that are decoded in parallel
+   */
+  public CorpusLoader(int poolSize) {
+    this(poolSize, null);
+  }
+
+  /**
+   * Creates a loader that interns the expressions of the loaded models.
+   *
+   * @param poolSize -- maximum number of models that are decoded in parallel
+   * @param expressions -- pool for the expressions, or null to load mutable expressions
+   */
+  public CorpusLoader(int poolSize, ExpressionPool expressions) {
+    if (poolSize <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid pool size: %d", poolSize));
+    }
+    this.poolSize = poolSize;
+    this.pool = Executors.newFixedThreadPool(poolSize,
+        NativeExecutionService.daemonThreads("corpus-loader"));
+    this.expressions = expressions;
+  }
+
+  /**
+   * Lists the models in the given directory, i.e., the JSON and binary model files, sorted by
+   * name. The id of a model is its file name without the extension; its inputs are in the file
+   * with the id and the extension ".in" in the input directory.
+   *
+   * @param modelDirectory -- directory of the model files
+   * @param inputDirectory -- directory of the input files, or null if there are no inputs
+   * @return entries of the corpus
+   * @throws IOException if the directory cannot be listed
+   */
+  public static List<Entry> listDirectory(Path modelDirectory, Path inputDirectory)
+      throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(modelDirectory)) {
+      for (Path file : stream) {
+        if (modelId(file) != null && Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    }
+    Collections.sort(files);
+    List<Entry> entries = new ArrayList<>(files.size());
+    for (Path file : files) {
+      String id = modelId(file);
+      entries.add(new Entry(id, file,
+          inputDirectory == null ? null : inputDirectory.resolve(id + INPUT_EXTENSION)));
+    }
+    return entries;
+  }
+
+  /**
+   * Reads the entries of a manifest file. Every line describes one model by its id, the path of
+   * the model file and, optionally, the path of the input file, separated by tabs. Relative paths
+   * are resolved against the directory of the manifest. Empty lines and lines starting with '#'
+   * are ignored.
+   *
+   * @param manifest -- path of the manifest
+   * @return entries of the corpus
+   * @throws IOException if the manifest cannot be read or has an invalid line
+   */
+  public static List<Entry> readManifest(Path manifest) throws IOException {
+    Path directory = manifest.toAbsolutePath().getParent();
+    List<Entry> entries = new ArrayList<>();
+    List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\t");
+      if (fields.length < 2 || fields.length > 3) {
+        throw new IOException(String.format("Invalid manifest line %d: %s", i + 1, line));
+      }
+      entries.add(new Entry(fields[0], directory.resolve(fields[1]),
+          fields.length == 3 ? directory.resolve(fields[2]) : null));
+    }
+    return entries;
+  }
+
+  /**
+   * Loads the given entries in parallel and passes every loaded model to the consumer, in the
+   * order in which they are completed. The consumer is called on the calling thread, one model at
+   * a time. At most twice the pool size models are loaded ahead of the consumer, so that a slow
+   * consumer does not accumulate the whole corpus in memory. Models that cannot be loaded are
+   * passed to the consumer as well, see {@link LoadedModel#getError()}.
+   *
+   * @param entries -- entries of the corpus
+   * @param consumer -- consumer of the loaded models
+   * @return statistics of the loading
+   */
+  public Statistics load(List<Entry> entries, Consumer<LoadedModel> consumer) {
+    long start = System.nanoTime();
+    CompletionService<LoadedModel> completion = new ExecutorCompletionService<>(pool);
+    int maxPending = 2 * poolSize;
+    int submitted = 0;
+    int pending = 0;
+    int failures = 0;
+    long bytes = 0;
+    while (submitted < entries.size() || pending > 0) {
+      while (submitted < entries.size() && pending < maxPending) {
+        Entry entry = entries.get(submitted++);
+        completion.submit(() -> load(entry));
+        pending++;
+      }
+      LoadedModel model;
+      try {
+        model = completion.take().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while loading the corpus", e);
+      } catch (ExecutionException e) {
+        // load does not throw, but report unexpected errors of the pool
+        throw new RuntimeException(e.getCause());
+      }
+      pending--;
+      bytes += model.bytes;
+      if (model.getError() != null) {
+        failures++;
+      }
+      consumer.accept(model);
+    }
+    return new Statistics(entries.size(), failures, bytes,
+        Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  /**
+   * Loads the given entries in parallel.
+   *
+   * @param entries -- entries of the corpus
+   * @return loaded models in the order of the entries
+   */
+  public List<LoadedModel> loadAll(List<Entry> entries) {
+    List<LoadedModel> models = new ArrayList<>(Collections.nCopies(entries.size(), null));
+    List<Entry> indexed = new ArrayList<>(entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      indexed.add(new Entry(entry.id, entry.model, entry.inputs, i));
+    }
+    load(indexed, model -> models.set(model.index, model));
+    return models;
+  }
+
+  /**
+   * Reads and decodes one entry, catching all errors.
+   */
+  private LoadedModel load(Entry entry) {
+    long bytes = 0;
+    try {
+      byte[] model = Files.readAllBytes(entry.model);
+      bytes += model.length;
+      Program program = decode(entry.model, model);
+      List<Input> inputs = Collections.emptyList();
+      if (entry.inputs != null) {
+        byte[] input = readIfExists(entry.inputs);
+        if (input != null) {
+          bytes += input.length;
+          inputs = parseInputs(new String(input, StandardCharsets.UTF_8));
+        }
+      }
+      return new LoadedModel(entry, program, inputs, null, bytes);
+    } catch (IOException | RuntimeException e) {
+      return new LoadedModel(entry, null, Collections.emptyList(), e, bytes);
+    }
+  }
+
+  private Program decode(Path file, byte[] model) throws IOException {
+    if (file.getFileName().toString().endsWith(BinaryProgramCodec.FILE_EXTENSION)) {
+      return BinaryProgramCodec.decode(model, expressions);
+    }
+    Program program;
+    try (Reader reader =
+        new InputStreamReader(new ByteArrayInputStream(model), StandardCharsets.UTF_8)) {
+      program = TupleTypeAdapterFactory.GSON.fromJson(reader, Program.class);
+    } catch (JsonParseException e) {
+      throw new IOException(String.format("Invalid program model %s", file), e);
+    }
+    if (program == null) {
+      throw new IOException(String.format("Empty program model: %s", file));
+    }
+    if (expressions != null) {
+      expressions.intern(program);
+    }
+    return program;
+  }
+
+  private static byte[] readIfExists(Path file) throws IOException {
+    try {
+      return Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static List<Input> parseInputs(String content) {
+    String trimmed = content.trim();
+    String[] tokens = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    return Collections.singletonList(new Input(tokens, null));
+  }
+
+  private static String modelId(Path file) {
+    String name = file.getFileName().toString();
+    if (name.endsWith(JSON_EXTENSION)) {
+      return name.substring(0, name.length() - JSON_EXTENSION.length());
+    }
+    if (name.endsWith(BinaryProgramCodec.FILE_EXTENSION)) {
+      return name.substring(0, name.length() - BinaryProgramCodec.FILE_EXTENSION.length());
+    }
+    return null;
+  }
+
+  /**
+   * Stops the threads of the loader.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * One model of a corpus with its id and files.
+   */
+  public static class Entry {
+
+    private final String id;
+    private final Path model;
+    private final Path inputs;
+    private final int index;
+
+    /**
+     * Creates an entry.
+     *
+     * @param id -- id of the model, e.g., the submission id
+     * @param model -- path of the JSON or binary model file
+     * @param inputs -- path of the input file, or null if there are no inputs
+     */
+    public Entry(String id, Path model, Path inputs) {
+      this(id, model, inputs, -1);
+    }
+
+    private Entry(String id, Path model, Path inputs, int index) {
+      this.id = id;
+      this.model = model;
+      this.inputs = inputs;
+      this.index = index;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public Path getModel() {
+      return model;
+    }
+
+    public Path getInputs() {
+      return inputs;
+    }
+
+    @Override
+    public String toString() {
+      return id;
+    }
+  }
+
+  /**
+   * A loaded model: its id, the program and its inputs, or the error if it could not be loaded.
+   */
+  public static class LoadedModel {
+
+    private final Entry entry;
+    private final Program program;
+    private final List<Input> inputs;
+    private final Exception error;
+    private final long bytes;
+    private final int index;
+
+    private LoadedModel(Entry entry, Program program, List<Input> inputs, Exception error,
+        long bytes) {
+      this.entry = entry;
+      this.program = program;
+      this.inputs = inputs;
+      this.error = error;
+      this.bytes = bytes;
+      this.index = entry.index;
+    }
+
+    public String getId() {
+      return entry.id;
+    }
+
+    public Entry getEntry() {
+      return entry;
+    }
+
+    /**
+     * Returns the program, or null if it could not be loaded.
+     */
+    public Program getProgram() {
+      return program;
+    }
+
+    /**
+     * Returns the inputs, which are empty if the entry has no input file or the file does not
+     * exist.
+     */
+    public List<Input> getInputs() {
+      return inputs;
+    }
+
+    /**
+     * Returns the error if the model or its inputs could not be loaded, or null.
+     */
+    public Exception getError() {
+      return error;
+    }
+  }
+
+  /**
+   * Throughput of one call of {@link CorpusLoader#load(List, Consumer)}, including the time spent
+   * in the consumer.
+   */
+  public static class Statistics {
+
+    private final int models;
+    private final int failures;
+    private final long bytes;
+    private final Duration elapsed;
+
+    Statistics(int models, int failures, long bytes, Duration elapsed) {
+      this.models = models;
+      this.failures = failures;
+      this.bytes = bytes;
+      this.elapsed = elapsed;
+    }
+
+    public int getModels() {
+      return models;
+    }
+
+    public int getFailures() {
+      return failures;
+    }
+
+    /**
+     * Returns the number of bytes read from the model and input files.
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    public Duration getElapsed() {
+      return elapsed;
+    }
+
+    public double getModelsPerSecond() {
+      return models / seconds();
+    }
+
+    public double getMegabytesPerSecond() {
+      return bytes / 1e6 / seconds();
+    }
+
+    private double seconds() {
+      return Math.max(elapsed.toNanos(), 1) / 1e9;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d models (%d failed), %.1f MB in %d ms: %.0f models/s, %.1f MB/s",
+          models, failures, bytes / 1e6, elapsed.toMillis(), getModelsPerSecond(),
+          getMegabytesPerSecond());
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package sg.edu.nus.se.its.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Streaming JSON de-/serialization of the {@link Expression} hierarchy, which reads and writes the
+ * tokens of an expression tree in a single pass.
+ *
+ * <p>The format is the one of {@link JsonSerializerWithInheritance}: the fields of the expression
+ * in declaration order, subclass fields first, followed by the {@code tokentype} property with the
+ * simple class name, e.g., {@code {"name":"x","primed":false,"line":3,"tokentype":"Variable"}}.
+ * When reading, the properties may appear in any order and unknown properties are skipped.
+ *
+ * <p>Like the registration of {@link JsonSerializerWithInheritance} for {@code Expression.class},
+ * the factory applies to values declared as Expression; values declared as a subclass, e.g., the
+ * keys of a variable mapping, keep the reflective format without tokentype.
+ */
+public class ExpressionTypeAdapterFactory implements TypeAdapterFactory {
+
+  static final String TYPE_PROPERTY_NAME = JsonSerializerWithInheritance.TYPE_PROPERTY_NAME;
+
+  private static final String CONSTANT = "Constant";
+  private static final String VARIABLE = "Variable";
+  private static final String OPERATION = "Operation";
+
+  private static final ExpressionAdapter ADAPTER = new ExpressionAdapter();
+
+  /**
+   * Returns a GsonBuilder with this factory registered.
+   */
+  public static GsonBuilder newGsonBuilder() {
+    return new GsonBuilder().registerTypeAdapterFactory(new ExpressionTypeAdapterFactory());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+    if (type.getRawType() != Expression.class) {
+      return null;
+    }
+    return (TypeAdapter<T>) ADAPTER;
+  }
+
+  /**
+   * Adapter for values declared as Expression.
+   */
+  private static class ExpressionAdapter extends TypeAdapter<Expression> {
+
+    @Override
+    public void write(JsonWriter out, Expression expression) throws IOException {
+      if (expression == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      if (expression instanceof Variable) {
+        Variable variable = (Variable) expression;
+        out.name("name").value(variable.getUnprimedName());
+        out.name("primed").value(variable.isPrimed());
+      } else if (expression instanceof Constant) {
+        out.name("value").value(((Constant) expression).getValue());
+      } else if (expression instanceof Operation) {
+        Operation operation = (Operation) expression;
+        out.name("name").value(operation.getName());
+        if (operation.getArgs() != null) {
+          out.name("args").beginArray();
+          for (Expression argument : operation.getArgs()) {
+            write(out, argument);
+          }
+          out.endArray();
+        }
+      } else {
+        throw new JsonParseException(
+            String.format("Unsupported expression: %s", expression.getClass().getName()));
+      }
+      out.name("line").value(expression.getLineNumber());
+      out.name(TYPE_PROPERTY_NAME).value(expression.getType());
+      out.endObject();
+    }
+
+    @Override
+    public Expression read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      String type = null;
+      String name = null;
+      String value = null;
+      boolean primed = false;
+      int line = 0;
+      List<Expression> args = null;
+      in.beginObject();
+      while (in.hasNext()) {
+        String property = in.nextName();
+        if (in.peek() == JsonToken.NULL) {
+          in.nextNull();
+          continue;
+        }
+        switch (property) {
+          case TYPE_PROPERTY_NAME:
+            type = in.nextString();
+            break;
+          case "name":
+            name = in.nextString();
+            break;
+          case "value":
+            value = in.nextString();
+            break;
+          case "primed":
+            primed = in.nextBoolean();
+            break;
+          case "line":
+            line = in.nextInt();
+            break;
+          case "args":
+            args = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+              args.add(read(in));
+            }
+            in.endArray();
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+
+      if (type == null) {
+        throw new JsonParseException(
+            String.format("Missing %s at %s", TYPE_PROPERTY_NAME, in.getPath()));
+      }
+      switch (type) {
+        case VARIABLE:
+          return new Variable(name, line, primed);
+        case CONSTANT:
+          return new Constant(value, line);
+        case OPERATION:
+          return new Operation(name, args, line);
+        default:
+          throw new JsonParseException(String.format("Unknown %s: %s", TYPE_PROPERTY_NAME, type));
+      }
+    }
+  }
+}
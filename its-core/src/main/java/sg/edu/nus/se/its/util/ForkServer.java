@@ -0,0 +1,169 @@
+package sg.edu.nus.se.its.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Connection to a binary that runs as fork server, see {@code native/forkserver.c}. The binary is
+ * started once and forks a child for every execution, which saves the exec and the dynamic
+ * linking of a new process. A fork server runs one execution at a time.
+ */
+class ForkServer implements Closeable {
+
+  /**
+   * Environment variable that turns the shim of a binary into a fork server.
+   */
+  static final String CONTROL_VARIABLE = "ITS_FORKSERVER_CONTROL";
+
+  /**
+   * Signal that the shim uses to kill a child after the timeout.
+   */
+  private static final int SIGALRM = 14;
+
+  /**
+   * Signal that a child receives when its output exceeds the file size limit.
+   */
+  private static final int SIGXFSZ = 25;
+
+  /**
+   * Additional time to wait for the response of the server, after which the server is killed.
+   */
+  private static final long GRACE_MILLIS = 1000;
+
+  private final Process process;
+  private final OutputStream requests;
+  private final BufferedReader responses;
+  private final Path workDirectory;
+  private final Executor executor;
+
+  private ForkServer(Process process, Path workDirectory, Executor executor) {
+    this.process = process;
+    this.requests = process.getOutputStream();
+    this.responses = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    this.workDirectory = workDirectory;
+    this.executor = executor;
+  }
+
+  /**
+   * Starts the binary as fork server.
+   *
+   * @param binary -- binary that was linked with the shim
+   * @param workDirectory -- directory for the input and output files of the executions
+   * @param executor -- executor for reading the responses with a timeout
+   * @return ForkServer object, or null if the binary does not respond as fork server
+   */
+  static ForkServer start(Path binary, Path workDirectory, Executor executor) {
+    ProcessBuilder builder = new ProcessBuilder(binary.toString())
+        .redirectError(ProcessBuilder.Redirect.DISCARD);
+    builder.environment().put(CONTROL_VARIABLE, "1");
+    ForkServer server = null;
+    try {
+      server = new ForkServer(builder.start(), workDirectory, executor);
+      if ("ready".equals(server.readResponse(Duration.ofSeconds(5)))) {
+        return server;
+      }
+    } catch (IOException e) {
+      // fall back to plain executions
+    }
+    if (server != null) {
+      server.close();
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the server can take another execution.
+   */
+  boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /**
+   * Executes the binary on the input in a forked child.
+   *
+   * @param stdin -- standard input of the execution
+   * @param timeout -- time after which the child is killed
+   * @param outputLimit -- maximum size of each output file, after which the child is killed
+   * @return NativeExecutionResult object
+   * @throws IOException if the server does not respond, in which case it is closed
+   */
+  NativeExecutionResult run(String stdin, Duration timeout, int outputLimit) throws IOException {
+    Path input = Files.createTempFile(workDirectory, "run", ".in");
+    Path output = Files.createTempFile(workDirectory, "run", ".out");
+    Path error = Files.createTempFile(workDirectory, "run", ".err");
+    try {
+      Files.write(input, stdin == null ? new byte[0] : stdin.getBytes(StandardCharsets.UTF_8));
+      long start = System.nanoTime();
+      String request = String.format("%s\t%s\t%s\t%d\t%d\n", input, output, error,
+          Math.max(1, timeout.toMillis()), outputLimit);
+      requests.write(request.getBytes(StandardCharsets.UTF_8));
+      requests.flush();
+      String response = readResponse(timeout.plusMillis(GRACE_MILLIS));
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+      if (response == null || response.length() < 3 || response.charAt(0) == 'F') {
+        throw new IOException(String.format("Invalid fork server response: %s", response));
+      }
+      int value = Integer.parseInt(response.substring(2));
+      boolean signaled = response.charAt(0) == 'S';
+      boolean timedOut = signaled && value == SIGALRM;
+      boolean outputLimitExceeded = signaled && value == SIGXFSZ;
+      int exitCode = timedOut || outputLimitExceeded ? -1 : signaled ? 128 + value : value;
+      return new NativeExecutionResult(exitCode, timedOut, outputLimitExceeded,
+          read(output, outputLimit), read(error, outputLimit), elapsed);
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e instanceof IOException ? (IOException) e : new IOException(e);
+    } finally {
+      Files.deleteIfExists(input);
+      Files.deleteIfExists(output);
+      Files.deleteIfExists(error);
+    }
+  }
+
+  private static String read(Path file, int limit) throws IOException {
+    try (InputStream input = Files.newInputStream(file)) {
+      return new String(input.readNBytes(limit), StandardCharsets.UTF_8);
+    }
+  }
+
+  private String readResponse(Duration timeout) throws IOException {
+    CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> {
+      try {
+        return responses.readLine();
+      } catch (IOException e) {
+        return null;
+      }
+    }, executor);
+    try {
+      return response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      throw new IOException("Fork server does not respond", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the fork server", e);
+    }
+  }
+
+  /**
+   * Kills the server and its running child, if any.
+   */
+  @Override
+  public void close() {
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
+  }
+}
@@ -18,7 +18,8 @@ import sg.edu.nus.se.its.model.Operation;
 import sg.edu.nus.se.its.model.Variable;
 
 /**
- * Custom JSON De-/serializer to incorporate class inheritance.
+ * Custom JSON De-/serializer to incorporate class inheritance. Expressions are read and written
+ * faster by {@link ExpressionTypeAdapterFactory}, which uses the same format.
  */
 public class JsonSerializerWithInheritance<T>
     implements JsonSerializer<sg.edu.nus.se.its.util.JsonSerializable>,
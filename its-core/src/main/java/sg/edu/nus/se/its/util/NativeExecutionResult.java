@@ -0,0 +1,90 @@
+package sg.edu.nus.se.its.util;
+
+import java.time.Duration;
+
+/**
+ * Outcome of one execution of a native binary, see {@link NativeExecutionService}, or of a Python
+ * program, see {@link PythonWorkerPool}.
+ */
+public class NativeExecutionResult {
+
+  private final int exitCode;
+  private final boolean timedOut;
+  private final boolean outputLimitExceeded;
+  private final String stdout;
+  private final String stderr;
+  private final Duration elapsed;
+
+  /**
+   * Creates the result of an execution.
+   *
+   * @param exitCode -- exit code of the process, or -1 if it was killed after the timeout
+   * @param timedOut -- whether the process was killed after the timeout
+   * @param stdout -- complete standard output
+   * @param stderr -- complete standard error
+   * @param elapsed -- wall-clock time from the start to the end of the process
+   */
+  public NativeExecutionResult(int exitCode, boolean timedOut, String stdout, String stderr,
+      Duration elapsed) {
+    this(exitCode, timedOut, false, stdout, stderr, elapsed);
+  }
+
+  /**
+   * Creates the result of an execution that may have been killed for its output.
+   *
+   * @param exitCode -- exit code of the process, or -1 if it was killed
+   * @param timedOut -- whether the process was killed after the timeout
+   * @param outputLimitExceeded -- whether the process was killed for writing more output than
+   *     allowed, in which case the output is truncated
+   * @param stdout -- standard output
+   * @param stderr -- standard error
+   * @param elapsed -- wall-clock time from the start to the end of the process
+   */
+  public NativeExecutionResult(int exitCode, boolean timedOut, boolean outputLimitExceeded,
+      String stdout, String stderr, Duration elapsed) {
+    this.exitCode = exitCode;
+    this.timedOut = timedOut;
+    this.outputLimitExceeded = outputLimitExceeded;
+    this.stdout = stdout;
+    this.stderr = stderr;
+    this.elapsed = elapsed;
+  }
+
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
+  public boolean isOutputLimitExceeded() {
+    return outputLimitExceeded;
+  }
+
+  /**
+   * Returns whether the process terminated within the timeout and the output limit with exit
+   * code 0.
+   */
+  public boolean isSuccess() {
+    return !timedOut && !outputLimitExceeded && exitCode == 0;
+  }
+
+  public String getStdout() {
+    return stdout;
+  }
+
+  public String getStderr() {
+    return stderr;
+  }
+
+  public Duration getElapsed() {
+    return elapsed;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("exit code %d%s%s after %d ms", exitCode, timedOut ? " (timeout)" : "",
+        outputLimitExceeded ? " (output limit)" : "", elapsed.toMillis());
+  }
+}
@@ -0,0 +1,734 @@
+package sg.edu.nus.se.its.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compiles C programs with gcc and executes the binaries on a bounded pool of worker threads.
+ *
+ * <p>Binaries are cached by the SHA-256 hash of the source code, so that a program is compiled
+ * once no matter how often it is executed; concurrent requests for the same source wait for the
+ * same compilation. At most {@link #setMaxCachedBinaries(int)} binaries are kept, the least
+ * recently used ones are deleted first. The standard output and standard error of every process
+ * are drained concurrently while the process runs, so that a process with a large output does not
+ * block on a full pipe; at most {@link #setOutputLimit(int)} bytes are captured per stream, and a process
+ * that writes more is killed. The cached binaries are deleted when the service is closed.
+ *
+ * <p>On Linux, the service can run binaries as fork servers, similar to AFL: the program is linked
+ * with a shim ({@code native/forkserver.c}) that stops before main and forks a child for every
+ * execution, so that repeated executions of one program save the exec and the dynamic linking.
+ * The fork-server mode is enabled with {@link #setForkServer(boolean)} or the environment variable
+ * {@value #FORKSERVER_VARIABLE}. If the shim cannot be linked or the fork server fails, the
+ * service falls back to a plain execution of the binary. Idle fork servers are kept for later
+ * executions of their binary, at most {@link #setMaxIdleForkServers(int)} over all binaries.
+ *
+ * <p>The service is thread-safe. {@link #getDefault()} returns a shared instance, which is closed
+ * when the JVM exits.
+ */
+public class NativeExecutionService implements Closeable {
+
+  public static final Duration DEFAULT_EXECUTION_TIMEOUT = Duration.ofMillis(1000);
+
+  public static final Duration DEFAULT_COMPILE_TIMEOUT = Duration.ofSeconds(30);
+
+  /**
+   * Default maximum number of bytes that are captured per output stream of an execution.
+   */
+  public static final int DEFAULT_OUTPUT_LIMIT = 4 << 20;
+
+  /**
+   * Default maximum number of cached binaries.
+   */
+  public static final int DEFAULT_MAX_CACHED_BINARIES = 1024;
+
+  /**
+   * Environment variable that enables the fork-server mode if set to "true" or "1".
+   */
+  public static final String FORKSERVER_VARIABLE = "ITS_FORKSERVER";
+
+  private static final String SHIM_RESOURCE = "/native/forkserver.c";
+
+  private final Duration executionTimeout;
+  private final Duration compileTimeout;
+  private final ExecutorService pool;
+  private final ExecutorService streams;
+  private final Path cacheDirectory;
+  private final ConcurrentHashMap<String, CompletableFuture<Binary>> binaries =
+      new ConcurrentHashMap<>();
+  private final AtomicLong compilations = new AtomicLong();
+  private final AtomicLong clock = new AtomicLong();
+  private volatile int maxCachedBinaries = DEFAULT_MAX_CACHED_BINARIES;
+  private final AtomicLong forks = new AtomicLong();
+
+  /**
+   * Idle fork servers by binary, in the order in which the binaries were last used. Guarded by
+   * itself.
+   */
+  private final LinkedHashMap<Path, Queue<ForkServer>> forkServers =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private int idleForkServers;
+  private volatile int maxIdleForkServers;
+  private volatile boolean forkServer = isForkServerRequested();
+  private volatile int outputLimit = DEFAULT_OUTPUT_LIMIT;
+  private volatile Path shim;
+
+  /**
+   * Creates a service that runs as many executions in parallel as there are processors.
+   */
+  public NativeExecutionService() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_EXECUTION_TIMEOUT,
+        DEFAULT_COMPILE_TIMEOUT);
+  }
+
+  /**
+   * Creates a service.
+   *
+   * @param poolSize -- maximum number of processes that are executed in parallel
+   * @param executionTimeout -- time after which an execution is killed
+   * @param compileTimeout -- time after which a compilation is killed
+   */
+  public NativeExecutionService(int poolSize, Duration executionTimeout,
+      Duration compileTimeout) {
+    if (poolSize <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid pool size: %d", poolSize));
+    }
+    this.executionTimeout = executionTimeout;
+    this.compileTimeout = compileTimeout;
+    this.maxIdleForkServers = poolSize;
+    this.pool = Executors.newFixedThreadPool(poolSize, daemonThreads("native-execution"));
+    this.streams = Executors.newCachedThreadPool(daemonThreads("native-streams"));
+    try {
+      this.cacheDirectory = Files.createTempDirectory("its-native");
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot create the directory for compiled binaries", e);
+    }
+  }
+
+  /**
+   * Returns the shared service, which is created on first use.
+   */
+  public static NativeExecutionService getDefault() {
+    return DefaultService.INSTANCE;
+  }
+
+  public int getOutputLimit() {
+    return outputLimit;
+  }
+
+  /**
+   * Sets the maximum number of bytes that are captured from the standard output and from the
+   * standard error of an execution. A process that writes more is killed, and its result is
+   * marked with {@link NativeExecutionResult#isOutputLimitExceeded()}.
+   *
+   * @param outputLimit -- maximum number of bytes per output stream
+   */
+  public void setOutputLimit(int outputLimit) {
+    if (outputLimit <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid output limit: %d", outputLimit));
+    }
+    this.outputLimit = outputLimit;
+  }
+
+  public int getMaxCachedBinaries() {
+    return maxCachedBinaries;
+  }
+
+  /**
+   * Sets the maximum number of cached binaries. If a compilation exceeds the limit, the least
+   * recently used binaries that are not being executed are deleted.
+   *
+   * @param maxCachedBinaries -- maximum number of cached binaries, at least 1
+   */
+  public void setMaxCachedBinaries(int maxCachedBinaries) {
+    if (maxCachedBinaries <= 0) {
+      throw new IllegalArgumentException(
+          String.format("Invalid number of cached binaries: %d", maxCachedBinaries));
+    }
+    this.maxCachedBinaries = maxCachedBinaries;
+    evictBinaries();
+  }
+
+  /**
+   * Returns the number of cached binaries, including running compilations.
+   */
+  public int getCachedBinaries() {
+    return binaries.size();
+  }
+
+  public boolean isForkServer() {
+    return forkServer;
+  }
+
+  /**
+   * Enables or disables the fork-server mode for the programs compiled from now on. The mode is
+   * only available on Linux.
+   *
+   * @param forkServer -- whether binaries are executed by fork servers
+   */
+  public void setForkServer(boolean forkServer) {
+    this.forkServer = forkServer && isLinux();
+  }
+
+  public int getMaxIdleForkServers() {
+    return maxIdleForkServers;
+  }
+
+  /**
+   * Sets the maximum number of idle fork servers over all binaries, by default the pool size. If
+   * a server becomes idle beyond this limit, the idle servers of the least recently used binaries
+   * are closed first.
+   *
+   * @param maxIdleForkServers -- maximum number of idle fork servers, 0 to close every server
+   *     after its execution
+   */
+  public void setMaxIdleForkServers(int maxIdleForkServers) {
+    if (maxIdleForkServers < 0) {
+      throw new IllegalArgumentException(
+          String.format("Invalid number of idle fork servers: %d", maxIdleForkServers));
+    }
+    this.maxIdleForkServers = maxIdleForkServers;
+    closeIdleForkServers(evictIdleForkServers());
+  }
+
+  /**
+   * Returns the number of fork servers that are waiting for an execution.
+   */
+  public int getIdleForkServers() {
+    synchronized (forkServers) {
+      return idleForkServers;
+    }
+  }
+
+  /**
+   * Compiles the given source code, unless a binary of the same source is cached.
+   *
+   * @param source -- C source code
+   * @return path of the binary, which is deleted when the binary is evicted from the cache
+   * @throws RuntimeException if the compilation fails
+   */
+  public Path compile(String source) {
+    Binary binary = acquireBinary(source);
+    binary.release();
+    return binary.path;
+  }
+
+  /**
+   * Returns the binary of the source, compiling it unless it is cached. The binary is not evicted
+   * until it is released.
+   */
+  private Binary acquireBinary(String source) {
+    boolean withShim = forkServer;
+    String hash = sha256(source) + (withShim ? ".fs" : "");
+    while (true) {
+      CompletableFuture<Binary> cached = binaries.get(hash);
+      if (cached == null) {
+        CompletableFuture<Binary> compilation = new CompletableFuture<>();
+        cached = binaries.putIfAbsent(hash, compilation);
+        if (cached == null) {
+          Binary binary;
+          try {
+            binary = compile(hash, source, withShim);
+          } catch (Throwable e) {
+            // do not cache failures, e.g., a compilation that timed out under load, and never
+            // leave the future incomplete for the threads waiting for it
+            binaries.remove(hash, compilation);
+            compilation.completeExceptionally(e);
+            throw e;
+          }
+          binary.acquire(clock.incrementAndGet());
+          compilation.complete(binary);
+          evictBinaries();
+          return binary;
+        }
+      }
+      Binary binary = join(cached);
+      if (binary.acquire(clock.incrementAndGet())) {
+        return binary;
+      }
+      // the binary was evicted in the meantime, compile it again
+    }
+  }
+
+  private Binary compile(String hash, String source, boolean withShim) {
+    // every compilation has its own files, so that an evicted binary can be deleted while the
+    // same source is compiled again
+    String name = hash + "-" + compilations.incrementAndGet();
+    Path sourceFile = cacheDirectory.resolve(name + ".c");
+    Path binary = cacheDirectory.resolve(name + ".out");
+    try {
+      Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new RuntimeException("Compilation Error: cannot write the source code", e);
+    }
+    try {
+      if (withShim) {
+        Path shimFile = getShim();
+        if (shimFile != null && run(List.of("gcc", sourceFile.toString(), shimFile.toString(),
+            "-o", binary.toString()), null, compileTimeout).isSuccess()) {
+          return new Binary(sourceFile, binary, true);
+        }
+      }
+      NativeExecutionResult result = run(
+          List.of("gcc", sourceFile.toString(), "-o", binary.toString()), null, compileTimeout);
+      if (result.isTimedOut()) {
+        throw new RuntimeException(
+            String.format("Compilation Error: timeout after %d ms", compileTimeout.toMillis()));
+      }
+      if (result.getExitCode() != 0) {
+        throw new RuntimeException(String.format("Compilation Error: unexpected c script exit "
+            + "code %d%n%s", result.getExitCode(), result.getStderr()));
+      }
+      return new Binary(sourceFile, binary, false);
+    } catch (RuntimeException e) {
+      FileUtils.deleteQuietly(sourceFile.toFile());
+      FileUtils.deleteQuietly(binary.toFile());
+      throw e;
+    }
+  }
+
+  /**
+   * Deletes the least recently used binaries that are not being executed, until the cache keeps
+   * its limit.
+   */
+  private synchronized void evictBinaries() {
+    int excess = binaries.size() - maxCachedBinaries;
+    if (excess <= 0) {
+      return;
+    }
+    List<Map.Entry<String, CompletableFuture<Binary>>> candidates = new ArrayList<>();
+    for (Map.Entry<String, CompletableFuture<Binary>> entry : binaries.entrySet()) {
+      if (entry.getValue().isDone() && !entry.getValue().isCompletedExceptionally()) {
+        candidates.add(entry);
+      }
+    }
+    candidates.sort(Comparator.comparingLong(entry -> entry.getValue().join().lastUse));
+    for (Map.Entry<String, CompletableFuture<Binary>> entry : candidates) {
+      if (excess <= 0) {
+        return;
+      }
+      Binary binary = entry.getValue().join();
+      if (binary.evict()) {
+        binaries.remove(entry.getKey(), entry.getValue());
+        closeIdleForkServers(removeIdleForkServers(binary.path));
+        FileUtils.deleteQuietly(binary.source.toFile());
+        FileUtils.deleteQuietly(binary.path.toFile());
+        excess--;
+      }
+    }
+  }
+
+  /**
+   * Returns the source file of the fork-server shim, or null if it is not available.
+   */
+  private synchronized Path getShim() {
+    if (shim == null) {
+      try (InputStream resource = NativeExecutionService.class.getResourceAsStream(SHIM_RESOURCE)) {
+        if (resource == null) {
+          return null;
+        }
+        Path file = cacheDirectory.resolve("forkserver.c");
+        Files.write(file, IOUtils.toByteArray(resource));
+        shim = file;
+      } catch (IOException e) {
+        return null;
+      }
+    }
+    return shim;
+  }
+
+  /**
+   * Compiles the program in the given file and executes it on the input.
+   *
+   * @param file -- C source file
+   * @param stdin -- standard input of the execution
+   * @return NativeExecutionResult object
+   */
+  public NativeExecutionResult execute(File file, String stdin) {
+    return execute(readSource(file), stdin);
+  }
+
+  /**
+   * Compiles the given source code and executes it on the input.
+   *
+   * @param source -- C source code
+   * @param stdin -- standard input of the execution
+   * @return NativeExecutionResult object
+   */
+  public NativeExecutionResult execute(String source, String stdin) {
+    Binary binary = acquireBinary(source);
+    try {
+      return join(CompletableFuture.supplyAsync(() -> execute(binary, stdin), pool));
+    } finally {
+      binary.release();
+    }
+  }
+
+  /**
+   * Compiles the given source code once and executes it on every input in parallel.
+   *
+   * @param source -- C source code
+   * @param stdins -- standard inputs of the executions
+   * @return results in the order of the inputs
+   */
+  public List<NativeExecutionResult> executeAll(String source, List<String> stdins) {
+    Binary binary = acquireBinary(source);
+    try {
+      List<CompletableFuture<NativeExecutionResult>> executions =
+          new ArrayList<>(stdins.size());
+      for (String stdin : stdins) {
+        executions.add(CompletableFuture.supplyAsync(() -> execute(binary, stdin), pool));
+      }
+      List<NativeExecutionResult> results = new ArrayList<>(executions.size());
+      for (CompletableFuture<NativeExecutionResult> execution : executions) {
+        results.add(join(execution));
+      }
+      return results;
+    } finally {
+      binary.release();
+    }
+  }
+
+  /**
+   * Returns the number of compilations, i.e., the number of requests not served by the cache.
+   */
+  public long getCompilations() {
+    return compilations.get();
+  }
+
+  /**
+   * Returns the number of executions that were run by fork servers.
+   */
+  public long getForkedExecutions() {
+    return forks.get();
+  }
+
+  /**
+   * Executes the binary, with an idle or new fork server if the binary has the shim.
+   */
+  private NativeExecutionResult execute(Binary binary, String stdin) {
+    if (binary.withShim) {
+      ForkServer server = pollIdleForkServer(binary.path);
+      if (server == null) {
+        server = ForkServer.start(binary.path, cacheDirectory, streams);
+      }
+      if (server != null) {
+        try {
+          NativeExecutionResult result = server.run(stdin, executionTimeout, outputLimit);
+          forks.incrementAndGet();
+          if (server.isAlive()) {
+            offerIdleForkServer(binary.path, server);
+          }
+          return result;
+        } catch (IOException e) {
+          // the server was closed, execute the binary directly
+        }
+      }
+    }
+    return run(List.of(binary.path.toString()), stdin, executionTimeout);
+  }
+
+  private ForkServer pollIdleForkServer(Path binary) {
+    synchronized (forkServers) {
+      Queue<ForkServer> idle = forkServers.get(binary);
+      if (idle == null) {
+        return null;
+      }
+      ForkServer server = idle.poll();
+      if (idle.isEmpty()) {
+        forkServers.remove(binary);
+      }
+      if (server != null) {
+        idleForkServers--;
+      }
+      return server;
+    }
+  }
+
+  private List<ForkServer> removeIdleForkServers(Path binary) {
+    synchronized (forkServers) {
+      Queue<ForkServer> idle = forkServers.remove(binary);
+      if (idle == null) {
+        return List.of();
+      }
+      idleForkServers -= idle.size();
+      return new ArrayList<>(idle);
+    }
+  }
+
+  private void offerIdleForkServer(Path binary, ForkServer server) {
+    List<ForkServer> evicted;
+    synchronized (forkServers) {
+      forkServers.computeIfAbsent(binary, path -> new ArrayDeque<>()).offer(server);
+      idleForkServers++;
+      evicted = evictIdleForkServers();
+    }
+    closeIdleForkServers(evicted);
+  }
+
+  /**
+   * Removes idle fork servers of the least recently used binaries until the limit is kept.
+   *
+   * @return the removed servers, which are to be closed
+   */
+  private List<ForkServer> evictIdleForkServers() {
+    List<ForkServer> evicted = new ArrayList<>();
+    synchronized (forkServers) {
+      Iterator<Queue<ForkServer>> lru = forkServers.values().iterator();
+      while (idleForkServers > maxIdleForkServers && lru.hasNext()) {
+        Queue<ForkServer> idle = lru.next();
+        while (idleForkServers > maxIdleForkServers && !idle.isEmpty()) {
+          evicted.add(idle.poll());
+          idleForkServers--;
+        }
+        if (idle.isEmpty()) {
+          lru.remove();
+        }
+      }
+    }
+    return evicted;
+  }
+
+  private static void closeIdleForkServers(List<ForkServer> servers) {
+    for (ForkServer server : servers) {
+      server.close();
+    }
+  }
+
+  /**
+   * Runs the command to completion, killing it after the timeout.
+   */
+  private NativeExecutionResult run(List<String> command, String stdin, Duration timeout) {
+    long start = System.nanoTime();
+    Process process;
+    try {
+      process = new ProcessBuilder(command).start();
+    } catch (IOException e) {
+      throw new RuntimeException(String.format("Cannot start %s", command.get(0)), e);
+    }
+    AtomicBoolean outputLimitExceeded = new AtomicBoolean();
+    CompletableFuture<String> stdout =
+        drain(process.getInputStream(), process, outputLimitExceeded);
+    CompletableFuture<String> stderr =
+        drain(process.getErrorStream(), process, outputLimitExceeded);
+    CompletableFuture.runAsync(() -> {
+      try (OutputStream input = process.getOutputStream()) {
+        if (stdin != null) {
+          input.write(stdin.getBytes(StandardCharsets.UTF_8));
+        }
+      } catch (IOException e) {
+        // the process terminated without reading its input
+      }
+    }, streams);
+
+    boolean finished;
+    try {
+      finished = process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Execution was interrupted", e);
+    }
+    if (!finished) {
+      process.destroyForcibly();
+    }
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+    String output = stdout.join();
+    String error = stderr.join();
+    boolean killed = !finished || outputLimitExceeded.get();
+    return new NativeExecutionResult(killed ? -1 : process.exitValue(), !finished,
+        outputLimitExceeded.get(), output, error, elapsed);
+  }
+
+  /**
+   * Reads the stream up to the output limit, and kills the process if it writes more.
+   */
+  private CompletableFuture<String> drain(InputStream stream, Process process,
+      AtomicBoolean outputLimitExceeded) {
+    int limit = outputLimit;
+    return CompletableFuture.supplyAsync(() -> {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (InputStream input = stream) {
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = input.read(buffer)) >= 0) {
+          if (output.size() + length > limit) {
+            output.write(buffer, 0, limit - output.size());
+            outputLimitExceeded.set(true);
+            process.destroyForcibly();
+            break;
+          }
+          output.write(buffer, 0, length);
+        }
+      } catch (IOException e) {
+        // the stream is closed when the process is killed
+      }
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }, streams);
+  }
+
+  /**
+   * Stops the worker threads and deletes the cached binaries.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+    List<ForkServer> idle = new ArrayList<>();
+    synchronized (forkServers) {
+      for (Queue<ForkServer> servers : forkServers.values()) {
+        idle.addAll(servers);
+      }
+      forkServers.clear();
+      idleForkServers = 0;
+    }
+    closeIdleForkServers(idle);
+    streams.shutdownNow();
+    binaries.clear();
+    FileUtils.deleteQuietly(cacheDirectory.toFile());
+  }
+
+  static String readSource(File file) {
+    if (file == null || !file.exists()) {
+      throw new RuntimeException("Parsing Error: Provided file does not exist!");
+    }
+    try {
+      return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new RuntimeException(String.format("Cannot read %s", file), e);
+    }
+  }
+
+  private static boolean isForkServerRequested() {
+    String value = System.getenv(FORKSERVER_VARIABLE);
+    return ("true".equalsIgnoreCase(value) || "1".equals(value)) && isLinux();
+  }
+
+  private static boolean isLinux() {
+    return System.getProperty("os.name", "").toLowerCase().contains("linux");
+  }
+
+  private static String sha256(String source) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      StringBuilder hash = new StringBuilder();
+      for (byte b : digest.digest(source.getBytes(StandardCharsets.UTF_8))) {
+        hash.append(String.format("%02x", b));
+      }
+      return hash.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  static ThreadFactory daemonThreads(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Compiled binary of a source, with the executions that use it.
+   */
+  private static class Binary {
+
+    private final Path source;
+    private final Path path;
+    private final boolean withShim;
+    private volatile long lastUse;
+    private int users;
+    private boolean evicted;
+
+    Binary(Path source, Path path, boolean withShim) {
+      this.source = source;
+      this.path = path;
+      this.withShim = withShim;
+    }
+
+    /**
+     * Registers a user of the binary, unless it was evicted.
+     */
+    synchronized boolean acquire(long time) {
+      if (evicted) {
+        return false;
+      }
+      users++;
+      lastUse = time;
+      return true;
+    }
+
+    synchronized void release() {
+      users--;
+    }
+
+    /**
+     * Marks the binary as evicted, unless it is in use.
+     */
+    synchronized boolean evict() {
+      if (users > 0) {
+        return false;
+      }
+      evicted = true;
+      return true;
+    }
+  }
+
+  /**
+   * Holder of the shared service.
+   */
+  private static class DefaultService {
+
+    private static final NativeExecutionService INSTANCE = create();
+
+    private static NativeExecutionService create() {
+      NativeExecutionService service = new NativeExecutionService();
+      Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+      return service;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package sg.edu.nus.se.its.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Connection to a long-lived python3 process that executes programs on request, see
+ * {@code python/worker.py}. A worker runs one program at a time.
+ */
+class PythonWorker implements Closeable {
+
+  /**
+   * Additional time to wait for the response of the worker, after which the worker is killed.
+   */
+  private static final long GRACE_MILLIS = 1000;
+
+  private final Process process;
+  private final OutputStream requests;
+  private final BufferedReader responses;
+  private final Executor executor;
+
+  private PythonWorker(Process process, Executor executor) {
+    this.process = process;
+    this.requests = process.getOutputStream();
+    this.responses = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    this.executor = executor;
+  }
+
+  /**
+   * Starts a worker process.
+   *
+   * @param script -- source of the worker script
+   * @param executor -- executor for reading the responses with a timeout
+   * @return PythonWorker object
+   * @throws IOException if the worker cannot be started
+   */
+  static PythonWorker start(String script, Executor executor) throws IOException {
+    Process process = new ProcessBuilder("python3", "-u", "-c", script)
+        .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+    PythonWorker worker = new PythonWorker(process, executor);
+    try {
+      JsonObject ready = worker.readResponse(Duration.ofSeconds(10));
+      if (ready.has("ready")) {
+        return worker;
+      }
+    } catch (IOException e) {
+      worker.close();
+      throw e;
+    }
+    worker.close();
+    throw new IOException("Python worker did not start");
+  }
+
+  boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /**
+   * Executes the source code in a fresh namespace of the worker.
+   *
+   * @param source -- Python source code
+   * @param timeout -- time after which the execution is interrupted
+   * @return NativeExecutionResult object
+   * @throws IOException if the worker does not respond, in which case it is closed
+   */
+  NativeExecutionResult run(String source, Duration timeout) throws IOException {
+    JsonObject request = new JsonObject();
+    request.addProperty("source", source);
+    request.addProperty("timeout", Math.max(1, timeout.toMillis()) / 1000.0);
+    long start = System.nanoTime();
+    try {
+      requests.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+      requests.flush();
+      JsonObject response = readResponse(timeout.plusMillis(GRACE_MILLIS));
+      return new NativeExecutionResult(response.get("exit").getAsInt(),
+          response.get("timeout").getAsBoolean(), response.get("stdout").getAsString(),
+          response.get("stderr").getAsString(), Duration.ofNanos(System.nanoTime() - start));
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+  }
+
+  private JsonObject readResponse(Duration timeout) throws IOException {
+    CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> {
+      try {
+        return responses.readLine();
+      } catch (IOException e) {
+        return null;
+      }
+    }, executor);
+    String line;
+    try {
+      line = response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      throw new IOException("Python worker does not respond", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the python worker", e);
+    }
+    if (line == null) {
+      throw new IOException("Python worker terminated");
+    }
+    try {
+      return JsonParser.parseString(line).getAsJsonObject();
+    } catch (JsonParseException | IllegalStateException e) {
+      throw new IOException(String.format("Invalid python worker response: %s", line), e);
+    }
+  }
+
+  @Override
+  public void close() {
+    process.destroyForcibly();
+  }
+}
@@ -0,0 +1,191 @@
+package sg.edu.nus.se.its.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Executes Python programs on a pool of long-lived python3 worker processes, so that the start-up
+ * of the interpreter is paid once per worker instead of once per execution.
+ *
+ * <p>The workers receive the source code over a pipe, one JSON request per line, and execute it
+ * in a fresh namespace with a timeout (see {@code python/worker.py}). Modules imported by one
+ * program stay loaded for the next programs of the same worker. A worker that does not respond
+ * is killed and replaced.
+ *
+ * <p>The pool is thread-safe. {@link #getDefault()} returns a shared instance, which is closed
+ * when the JVM exits.
+ */
+public class PythonWorkerPool implements Closeable {
+
+  public static final Duration DEFAULT_EXECUTION_TIMEOUT = Duration.ofMillis(1000);
+
+  private static final String WORKER_RESOURCE = "/python/worker.py";
+
+  private final Duration executionTimeout;
+  private final ExecutorService pool;
+  private final ExecutorService streams;
+  private final Queue<PythonWorker> workers = new ConcurrentLinkedQueue<>();
+  private final AtomicLong startedWorkers = new AtomicLong();
+  private final String script;
+
+  /**
+   * Creates a pool with as many workers as there are processors.
+   */
+  public PythonWorkerPool() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_EXECUTION_TIMEOUT);
+  }
+
+  /**
+   * Creates a pool. The workers are started on demand.
+   *
+   * @param poolSize -- maximum number of programs that are executed in parallel
+   * @param executionTimeout -- time after which an execution is interrupted
+   */
+  public PythonWorkerPool(int poolSize, Duration executionTimeout) {
+    if (poolSize <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid pool size: %d", poolSize));
+    }
+    this.executionTimeout = executionTimeout;
+    this.pool = Executors.newFixedThreadPool(poolSize,
+        NativeExecutionService.daemonThreads("python-execution"));
+    this.streams =
+        Executors.newCachedThreadPool(NativeExecutionService.daemonThreads("python-streams"));
+    try (InputStream resource = PythonWorkerPool.class.getResourceAsStream(WORKER_RESOURCE)) {
+      if (resource == null) {
+        throw new RuntimeException(String.format("Missing resource: %s", WORKER_RESOURCE));
+      }
+      this.script = IOUtils.toString(resource, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new RuntimeException(String.format("Cannot read %s", WORKER_RESOURCE), e);
+    }
+  }
+
+  /**
+   * Returns the shared pool, which is created on first use.
+   */
+  public static PythonWorkerPool getDefault() {
+    return DefaultPool.INSTANCE;
+  }
+
+  /**
+   * Executes the given source code.
+   *
+   * @param source -- Python source code
+   * @return NativeExecutionResult object
+   */
+  public NativeExecutionResult execute(String source) {
+    return NativeExecutionService.join(CompletableFuture.supplyAsync(() -> run(source), pool));
+  }
+
+  /**
+   * Executes the given source codes in parallel.
+   *
+   * @param sources -- Python source codes
+   * @return results in the order of the sources
+   */
+  public List<NativeExecutionResult> executeAll(List<String> sources) {
+    List<CompletableFuture<NativeExecutionResult>> executions = new ArrayList<>(sources.size());
+    for (String source : sources) {
+      executions.add(CompletableFuture.supplyAsync(() -> run(source), pool));
+    }
+    List<NativeExecutionResult> results = new ArrayList<>(executions.size());
+    for (CompletableFuture<NativeExecutionResult> execution : executions) {
+      results.add(NativeExecutionService.join(execution));
+    }
+    return results;
+  }
+
+  /**
+   * Executes the programs in the given files, e.g., the programs of a task loaded by
+   * {@link TestUtils#loadProgramsByPythonTaskName(String)}, with the same inputs appended.
+   *
+   * @param files -- Python source files
+   * @param inputs -- code that is appended to every program, e.g., calls of its functions
+   * @return results in the order of the files
+   */
+  public List<NativeExecutionResult> executeAll(File[] files, String inputs) {
+    List<String> sources = new ArrayList<>(files.length);
+    for (File file : files) {
+      sources.add(NativeExecutionService.readSource(file) + inputs);
+    }
+    return executeAll(sources);
+  }
+
+  /**
+   * Returns the number of worker processes started so far.
+   */
+  public long getStartedWorkers() {
+    return startedWorkers.get();
+  }
+
+  /**
+   * Runs the source code on an idle or new worker. A worker that fails is replaced once; a worker
+   * that does not respond within the timeout is killed and the execution is reported as timed
+   * out.
+   */
+  private NativeExecutionResult run(String source) {
+    for (int attempt = 0; ; attempt++) {
+      PythonWorker worker = workers.poll();
+      long start = System.nanoTime();
+      try {
+        if (worker == null) {
+          worker = PythonWorker.start(script, streams);
+          startedWorkers.incrementAndGet();
+        }
+        NativeExecutionResult result = worker.run(source, executionTimeout);
+        if (worker.isAlive()) {
+          workers.offer(worker);
+        }
+        return result;
+      } catch (IOException e) {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (elapsed.compareTo(executionTimeout) >= 0) {
+          return new NativeExecutionResult(-1, true, "", "", elapsed);
+        }
+        if (attempt > 0) {
+          throw new RuntimeException("Executing Error: python worker failed", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops the worker processes.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+    PythonWorker worker;
+    while ((worker = workers.poll()) != null) {
+      worker.close();
+    }
+    streams.shutdownNow();
+  }
+
+  /**
+   * Holder of the shared pool.
+   */
+  private static class DefaultPool {
+
+    private static final PythonWorkerPool INSTANCE = create();
+
+    private static PythonWorkerPool create() {
+      PythonWorkerPool pool = new PythonWorkerPool();
+      Runtime.getRuntime().addShutdownHook(new Thread(pool::close));
+      return pool;
+    }
+  }
+}
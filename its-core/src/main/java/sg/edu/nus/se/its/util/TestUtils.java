@@ -3,14 +3,13 @@ package sg.edu.nus.se.its.util;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -22,7 +21,6 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.Stack;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.javatuples.Pair;
@@ -40,6 +38,8 @@ import sg.edu.nus.se.its.model.Variable;
  */
 public class TestUtils {
 
+  private static final Pattern OPERATOR_PATTERN = Pattern.compile("[^A-Za-z0-9]");
+
   /**
    * Stores given program in the JSON format.
    *
@@ -48,11 +48,7 @@ public class TestUtils {
    * @return success
    */
   public static boolean storeProgramAsJsonFile(Program program, String filePath) {
-    GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    builder.setPrettyPrinting();
-    Gson gson = builder.create();
-    String value = gson.toJson(program);
+    String value = TupleTypeAdapterFactory.toPrettyJson(program);
 
     try {
       FileWriter myWriter = new FileWriter(filePath);
@@ -66,19 +62,43 @@ public class TestUtils {
   }
 
   /**
-   * Loads the Program model from the JSON format into the Program object.
+   * Stores given program in the binary model format, see {@link BinaryProgramCodec}.
+   *
+   * @param program - Program
+   * @param filePath - String
+   * @return success
+   */
+  public static boolean storeProgramAsBinaryFile(Program program, String filePath) {
+    try {
+      BinaryProgramCodec.write(program, Paths.get(filePath));
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  /**
+   * Loads the Program model from the JSON format into the Program object. Files with the extension
+   * {@link BinaryProgramCodec#FILE_EXTENSION} are loaded from the binary model format, where the
+   * functions are decoded on first access.
    *
    * @param filePath - String
    * @return Program object
    */
   public static Program loadProgramByFilePath(String filePath) {
-    GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    Gson gson = builder.create();
+    if (filePath.endsWith(BinaryProgramCodec.FILE_EXTENSION)) {
+      try {
+        return BinaryProgramCodec.read(Paths.get(filePath));
+      } catch (IOException e) {
+        e.printStackTrace();
+        return null;
+      }
+    }
     File modelFile = new File(filePath);
-    try {
-      return gson.fromJson(new FileReader(modelFile), Program.class);
-    } catch (FileNotFoundException e) {
+    try (FileReader reader = new FileReader(modelFile)) {
+      return TupleTypeAdapterFactory.GSON.fromJson(reader, Program.class);
+    } catch (IOException e) {
       e.printStackTrace();
       return null;
     }
@@ -91,15 +111,11 @@ public class TestUtils {
    * @return Program object
    */
   public static Program loadProgramByName(String name) {
-    GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    Gson gson = builder.create();
-
     File modelFile = new File("../its-core/src/test/resources/model/" + name + ".json");
 
-    try {
-      return gson.fromJson(new FileReader(modelFile), Program.class);
-    } catch (FileNotFoundException e) {
+    try (FileReader reader = new FileReader(modelFile)) {
+      return TupleTypeAdapterFactory.GSON.fromJson(reader, Program.class);
+    } catch (IOException e) {
       e.printStackTrace();
       return null;
     }
@@ -231,12 +247,10 @@ public class TestUtils {
    * @return the structural mapping
    */
   public static StructuralMapping loadStructuralMappingFromFile(String filePath) {
-    GsonBuilder builder = new GsonBuilder();
-    Gson gson = builder.create();
     File modelFile = new File(filePath);
-    try {
-      return gson.fromJson(new FileReader(modelFile), StructuralMapping.class);
-    } catch (FileNotFoundException e) {
+    try (FileReader reader = new FileReader(modelFile)) {
+      return TupleTypeAdapterFactory.GSON.fromJson(reader, StructuralMapping.class);
+    } catch (IOException e) {
       e.printStackTrace();
       return null;
     }
@@ -249,13 +263,10 @@ public class TestUtils {
    * @return the variable mapping
    */
   public static VariableMapping loadVariableMappingFromFile(String filePath) {
-    GsonBuilder builder = new GsonBuilder().enableComplexMapKeySerialization();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    Gson gson = builder.create();
     File modelFile = new File(filePath);
-    try {
-      return gson.fromJson(new FileReader(modelFile), VariableMapping.class);
-    } catch (FileNotFoundException e) {
+    try (FileReader reader = new FileReader(modelFile)) {
+      return TupleTypeAdapterFactory.GSON.fromJson(reader, VariableMapping.class);
+    } catch (IOException e) {
       e.printStackTrace();
       return null;
     }
@@ -270,11 +281,7 @@ public class TestUtils {
    */
   public static boolean storeStructuralMappingAsJsonFile(StructuralMapping mapping,
       String filePath) {
-    GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    builder.setPrettyPrinting();
-    Gson gson = builder.create();
-    String value = gson.toJson(mapping);
+    String value = TupleTypeAdapterFactory.toPrettyJson(mapping);
 
     try {
       FileWriter myWriter = new FileWriter(filePath);
@@ -295,12 +302,7 @@ public class TestUtils {
    * @return success
    */
   public static boolean storeVariableMappingAsJsonFile(VariableMapping mapping, String filePath) {
-    // Enable complex map-key serialization as VariableMapping contains Map<Variable, Variable>
-    GsonBuilder builder = new GsonBuilder().enableComplexMapKeySerialization();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    builder.setPrettyPrinting();
-    Gson gson = builder.create();
-    String value = gson.toJson(mapping);
+    String value = TupleTypeAdapterFactory.toPrettyJson(mapping);
 
     try {
       FileWriter myWriter = new FileWriter(filePath);
@@ -645,9 +647,7 @@ public class TestUtils {
     if (s == null || s.trim().isEmpty()) {
       return false;
     }
-    Pattern p = Pattern.compile("[^A-Za-z0-9]");
-    Matcher m = p.matcher(s);
-    return m.find();
+    return OPERATOR_PATTERN.matcher(s).find();
   }
 
 
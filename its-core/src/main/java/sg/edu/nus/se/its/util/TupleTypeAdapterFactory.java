@@ -0,0 +1,171 @@
+package sg.edu.nus.se.its.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import org.javatuples.Pair;
+import org.javatuples.Triplet;
+import org.javatuples.Tuple;
+
+/**
+ * Compact JSON de-/serialization of the javatuples {@link Pair} and {@link Triplet}, e.g., the
+ * assignments in {@code Function.locexprs}, the parameters in {@code Function.params} and the
+ * repaired variable of a {@code LocalRepair}.
+ *
+ * <p>A tuple is written as a JSON array of its values, e.g., {@code ["x",{"name":"x",...}]}, where
+ * each value is written with the adapter for the declared type argument, so that expressions keep
+ * their tokentype. Reflective serialization writes every value three times instead, as the fields
+ * {@code val0}, {@code val1}, ..., and in the untyped {@code valueArray} and {@code valueList}.
+ * This legacy layout is still read: the values are taken from the {@code val} fields, while the
+ * untyped copies are skipped.
+ */
+public class TupleTypeAdapterFactory implements TypeAdapterFactory {
+
+  private static final String VALUE_PROPERTY_PREFIX = "val";
+
+  /**
+   * Shared Gson for program models and mappings. Map keys that are not written as JSON
+   * primitives, e.g., the variables of a {@code VariableMapping}, are written as arrays of
+   * entries; all other maps are written as JSON objects.
+   */
+  public static final Gson GSON = newGsonBuilder().enableComplexMapKeySerialization().create();
+
+  /**
+   * Returns a GsonBuilder with this factory and the {@link ExpressionTypeAdapterFactory}
+   * registered, which is the configuration for program models and mappings.
+   */
+  public static GsonBuilder newGsonBuilder() {
+    return ExpressionTypeAdapterFactory.newGsonBuilder()
+        .registerTypeAdapterFactory(new TupleTypeAdapterFactory());
+  }
+
+  /**
+   * Serializes the value into indented JSON with the shared {@link #GSON}.
+   *
+   * @param value -- program model or mapping
+   * @return JSON string
+   */
+  public static String toPrettyJson(Object value) {
+    StringWriter writer = new StringWriter();
+    try {
+      JsonWriter json = GSON.newJsonWriter(writer);
+      json.setIndent("  ");
+      GSON.toJson(value, value.getClass(), json);
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+    return writer.toString();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+    int size;
+    if (type.getRawType() == Pair.class) {
+      size = 2;
+    } else if (type.getRawType() == Triplet.class) {
+      size = 3;
+    } else {
+      return null;
+    }
+    Type tupleType = type.getType();
+    List<TypeAdapter<Object>> adapters = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Type valueType = tupleType instanceof ParameterizedType
+          ? ((ParameterizedType) tupleType).getActualTypeArguments()[i] : Object.class;
+      adapters.add((TypeAdapter<Object>) gson.getAdapter(TypeToken.get(valueType)));
+    }
+    return (TypeAdapter<T>) new TupleAdapter(adapters);
+  }
+
+  /**
+   * Adapter for tuples with the given adapters for their values.
+   */
+  private static class TupleAdapter extends TypeAdapter<Tuple> {
+
+    private final List<TypeAdapter<Object>> adapters;
+
+    TupleAdapter(List<TypeAdapter<Object>> adapters) {
+      this.adapters = adapters;
+    }
+
+    @Override
+    public void write(JsonWriter out, Tuple tuple) throws IOException {
+      if (tuple == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (int i = 0; i < adapters.size(); i++) {
+        adapters.get(i).write(out, tuple.getValue(i));
+      }
+      out.endArray();
+    }
+
+    @Override
+    public Tuple read(JsonReader in) throws IOException {
+      JsonToken token = in.peek();
+      if (token == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Object[] values = new Object[adapters.size()];
+      if (token == JsonToken.BEGIN_ARRAY) {
+        in.beginArray();
+        for (int i = 0; i < adapters.size(); i++) {
+          if (!in.hasNext()) {
+            throw new JsonParseException(
+                String.format("Expected %d tuple values at %s", adapters.size(), in.getPath()));
+          }
+          values[i] = adapters.get(i).read(in);
+        }
+        if (in.hasNext()) {
+          throw new JsonParseException(
+              String.format("Expected %d tuple values at %s", adapters.size(), in.getPath()));
+        }
+        in.endArray();
+      } else {
+        // legacy layout of the reflective serialization
+        in.beginObject();
+        while (in.hasNext()) {
+          int index = valueIndex(in.nextName());
+          if (index < 0) {
+            in.skipValue();
+          } else {
+            values[index] = adapters.get(index).read(in);
+          }
+        }
+        in.endObject();
+      }
+      return adapters.size() == 2 ? new Pair<>(values[0], values[1])
+          : new Triplet<>(values[0], values[1], values[2]);
+    }
+
+    /**
+     * Returns the index of the value in a property like val0, or -1 for other properties.
+     */
+    private int valueIndex(String property) {
+      if (property.length() == VALUE_PROPERTY_PREFIX.length() + 1
+          && property.startsWith(VALUE_PROPERTY_PREFIX)) {
+        int index = property.charAt(VALUE_PROPERTY_PREFIX.length()) - '0';
+        if (index >= 0 && index < adapters.size()) {
+          return index;
+        }
+      }
+      return -1;
+    }
+  }
+}
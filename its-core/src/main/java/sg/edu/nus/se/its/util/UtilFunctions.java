@@ -1,21 +1,9 @@
 package sg.edu.nus.se.its.util;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
-import org.apache.commons.io.FileUtils;
-import sg.edu.nus.se.its.model.Expression;
 import sg.edu.nus.se.its.model.Program;
 
 /**
@@ -91,121 +79,50 @@ public class UtilFunctions {
     }
   }
 
-  private static final int EXECUTE_TIMEOUT = 1000; // milliseconds
-
   /**
-   * Execute a program with given path.
+   * Execute a program with given path. The program is compiled and executed by the shared
+   * {@link NativeExecutionService}, which caches the binary of the program for later calls.
    *
    * @param filePath -- the path of source code
    * @param fileInputs -- the input for source code in filePath
-   * @throws AssertionError for exceed size limits.
+   * @return the output of the program without line breaks
+   * @throws RuntimeException if the program cannot be compiled or does not terminate normally
    */
-
   public static String executeProgramForC(File filePath, String fileInputs) {
-
-    if (filePath == null || !filePath.exists()) {
-      throw new RuntimeException("Parsing Error: Provided file does not exist!");
+    NativeExecutionResult result =
+        NativeExecutionService.getDefault().execute(filePath, fileInputs + "\n");
+    if (result.isTimedOut()) {
+      throw new RuntimeException(String.format("Executing Error: timeout after %d ms",
+          result.getElapsed().toMillis()));
     }
-
-    StringBuilder outputs = new StringBuilder();
-    try {
-
-      Path tmpFilePath = Files.createTempFile("program", ".c");
-      Files.write(tmpFilePath, FileUtils.readFileToString(filePath, StandardCharsets.UTF_8)
-          .getBytes(StandardCharsets.UTF_8));
-
-      File tmpFile = tmpFilePath.toFile();
-      File tmpFileOutput = new File(tmpFile.getAbsolutePath().replace(".c", ".out"));
-
-      String[] compileCommand = {"gcc", tmpFile.toString(), "-o", tmpFileOutput.toString()};
-      final String[] executeCommand = {tmpFileOutput.toString()};
-
-      System.out.println(Arrays.toString(compileCommand));
-
-      ProcessBuilder compileProcBuilder = new ProcessBuilder(compileCommand);
-      Process compileProc = compileProcBuilder.start();
-
-      compileProc.waitFor(EXECUTE_TIMEOUT, TimeUnit.MILLISECONDS);
-      int exitCode = compileProc.exitValue();
-      if (exitCode != 0) {
-        throw new RuntimeException("Compilation Error: unexpected c script exit code " + exitCode);
-      }
-
-      ProcessBuilder executeProcBuilder = new ProcessBuilder(executeCommand);
-      Process executeProc = executeProcBuilder.start();
-      OutputStream stdin = executeProc.getOutputStream();
-
-      stdin.write((fileInputs + "\n").getBytes());
-      stdin.flush();
-      executeProc.waitFor(EXECUTE_TIMEOUT, TimeUnit.MILLISECONDS);
-      exitCode = executeProc.exitValue();
-      if (exitCode != 0) {
-        throw new RuntimeException("Executing Error: unexpected c script exit code " + exitCode);
-      }
-
-      tmpFile.deleteOnExit();
-      tmpFileOutput.deleteOnExit();
-      BufferedReader reader =
-          new BufferedReader(new InputStreamReader(executeProc.getInputStream()));
-
-      String line;
-      while ((line = reader.readLine()) != null) {
-        outputs.append(line);
-      }
-
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
+    if (result.getExitCode() != 0) {
+      throw new RuntimeException(
+          "Executing Error: unexpected c script exit code " + result.getExitCode());
     }
-
-    return outputs.toString();
+    return result.getStdout().replaceAll("\r\n|\r|\n", "");
   }
 
   /**
-   * Execute a program with given path.
+   * Execute a program with given path. The program is executed by a worker of the shared
+   * {@link PythonWorkerPool}, so that no python3 process is started per call.
    *
    * @param filePath -- the path of source code
-   * @param fileInputs -- the input for source code in filePath
-   * @throws AssertionError for exceed size limits.
+   * @param fileInputs -- the code appended to the source code in filePath, e.g., function calls
+   * @return the output of the program without line breaks
+   * @throws RuntimeException if the program does not terminate normally
    */
   public static String executeProgramForPython(File filePath, String fileInputs) {
-
-    if (filePath == null || !filePath.exists()) {
-      throw new RuntimeException("Parsing Error: Provided file does not exist!");
+    NativeExecutionResult result = PythonWorkerPool.getDefault()
+        .execute(NativeExecutionService.readSource(filePath) + fileInputs);
+    if (result.isTimedOut()) {
+      throw new RuntimeException(String.format("Executing Error: timeout after %d ms",
+          result.getElapsed().toMillis()));
     }
-
-    StringBuilder outputs = new StringBuilder();
-    try {
-
-      Path tmpFilePath = Files.createTempFile("program", ".py");
-      Files.write(tmpFilePath,
-          (FileUtils.readFileToString(filePath, StandardCharsets.UTF_8) + fileInputs)
-              .getBytes(StandardCharsets.UTF_8));
-      File tmpFile = tmpFilePath.toFile();
-      String command = "python3 " + tmpFile;
-
-      Process proc = Runtime.getRuntime().exec(command);
-      proc.waitFor(EXECUTE_TIMEOUT, TimeUnit.MILLISECONDS);
-
-      int exitCode = proc.exitValue();
-      if (exitCode != 0) {
-        throw new RuntimeException(
-            "Executing Error: unexpected python script exit code " + exitCode);
-      }
-
-      tmpFile.deleteOnExit();
-
-      BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream()));
-
-      String line;
-      while ((line = reader.readLine()) != null) {
-        outputs.append(line);
-      }
-
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
+    if (result.getExitCode() != 0) {
+      throw new RuntimeException(
+          "Executing Error: unexpected python script exit code " + result.getExitCode());
     }
-
-    return outputs.toString();
+    return result.getStdout().replaceAll("\r\n|\r|\n", "");
   }
 
   /**
@@ -251,12 +168,7 @@ public class UtilFunctions {
    * @return a deep copy of the program
    */
   public static Program deepCopyProgram(Program program) {
-    GsonBuilder builder = new GsonBuilder();
-    builder.registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>());
-    builder.setPrettyPrinting();
-
-    Gson gson = builder.create();
-    return gson.fromJson(gson.toJson(program), Program.class);
+    return program.deepCopy();
   }
 
 }
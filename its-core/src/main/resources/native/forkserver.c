@@ -0,0 +1,141 @@
+/*
+ * Fork server shim for sg.edu.nus.se.its.util.NativeExecutionService.
+ *
+ * The shim is linked into the compiled program and runs before main. Unless the environment
+ * variable ITS_FORKSERVER_CONTROL is set, it returns immediately and the program runs as usual.
+ * Otherwise the process becomes a fork server: it reads one request per line from stdin,
+ *
+ *   <input file> TAB <output file> TAB <error file> TAB <timeout in ms> TAB <output limit>
+ *
+ * forks a child that continues with main on the given files, waits for the child and writes
+ * "E <exit code>" or "S <signal>" as one line to stdout. The child is killed with SIGALRM after
+ * the timeout, and with SIGXFSZ if it writes more than the output limit in bytes to a file. The
+ * server exits at the end of its input.
+ *
+ * Only system calls are used before the fork, so that no stdio buffers are inherited.
+ */
+#define _GNU_SOURCE
+#include <errno.h>
+#include <fcntl.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/resource.h>
+#include <sys/time.h>
+#include <sys/types.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+static int its_read_line(char *buffer, size_t size) {
+  size_t length = 0;
+  while (length + 1 < size) {
+    ssize_t n = read(STDIN_FILENO, buffer + length, 1);
+    if (n < 0 && errno == EINTR) {
+      continue;
+    }
+    if (n <= 0) {
+      return -1;
+    }
+    if (buffer[length] == '\n') {
+      buffer[length] = '\0';
+      return (int) length;
+    }
+    length++;
+  }
+  return -1;
+}
+
+static int its_write_all(const char *data, size_t size) {
+  while (size > 0) {
+    ssize_t n = write(STDOUT_FILENO, data, size);
+    if (n < 0 && errno == EINTR) {
+      continue;
+    }
+    if (n <= 0) {
+      return -1;
+    }
+    data += n;
+    size -= (size_t) n;
+  }
+  return 0;
+}
+
+static int its_redirect(const char *path, int fd, int flags) {
+  int file = open(path, flags, 0600);
+  if (file < 0) {
+    return -1;
+  }
+  if (file != fd) {
+    if (dup2(file, fd) < 0) {
+      return -1;
+    }
+    close(file);
+  }
+  return 0;
+}
+
+__attribute__((constructor)) static void its_fork_server(void) {
+  char request[8192];
+  char response[32];
+
+  if (getenv("ITS_FORKSERVER_CONTROL") == NULL) {
+    return;
+  }
+  if (its_write_all("ready\n", 6) != 0) {
+    _exit(1);
+  }
+  while (its_read_line(request, sizeof request) >= 0) {
+    char *input = strtok(request, "\t");
+    char *output = strtok(NULL, "\t");
+    char *error = strtok(NULL, "\t");
+    char *timeout = strtok(NULL, "\t");
+    char *limit = strtok(NULL, "\t");
+    pid_t pid;
+    int status;
+
+    if (limit == NULL) {
+      break;
+    }
+    pid = fork();
+    if (pid < 0) {
+      if (its_write_all("F 0\n", 4) != 0) {
+        break;
+      }
+      continue;
+    }
+    if (pid == 0) {
+      long millis = atol(timeout);
+      struct itimerval timer;
+      struct rlimit size;
+
+      if (its_redirect(input, STDIN_FILENO, O_RDONLY) != 0
+          || its_redirect(output, STDOUT_FILENO, O_WRONLY | O_CREAT | O_TRUNC) != 0
+          || its_redirect(error, STDERR_FILENO, O_WRONLY | O_CREAT | O_TRUNC) != 0) {
+        _exit(127);
+      }
+      unsetenv("ITS_FORKSERVER_CONTROL");
+      size.rlim_cur = size.rlim_max = (rlim_t) atol(limit);
+      setrlimit(RLIMIT_FSIZE, &size);
+      memset(&timer, 0, sizeof timer);
+      timer.it_value.tv_sec = millis / 1000;
+      timer.it_value.tv_usec = (millis % 1000) * 1000;
+      setitimer(ITIMER_REAL, &timer, NULL);
+      return;
+    }
+    while (waitpid(pid, &status, 0) < 0) {
+      if (errno != EINTR) {
+        status = -1;
+        break;
+      }
+    }
+    if (status != -1 && WIFSIGNALED(status)) {
+      snprintf(response, sizeof response, "S %d\n", WTERMSIG(status));
+    } else {
+      snprintf(response, sizeof response, "E %d\n", status == -1 ? -1 : WEXITSTATUS(status));
+    }
+    if (its_write_all(response, strlen(response)) != 0) {
+      break;
+    }
+  }
+  _exit(0);
+}
@@ -0,0 +1,72 @@
+# Python worker for sg.edu.nus.se.its.util.PythonWorkerPool.
+#
+# Reads one JSON request per line from stdin, {"source": ..., "timeout": <seconds>}, executes the
+# source in a fresh namespace and writes one JSON response per line,
+# {"stdout": ..., "stderr": ..., "exit": <exit code>, "timeout": <bool>}. The first line written is
+# {"ready": true}. The protocol uses a duplicate of the original stdout, so that writes of the
+# executed programs to the file descriptor 1 cannot corrupt it.
+import io
+import json
+import os
+import signal
+import sys
+import traceback
+
+
+class Timeout(BaseException):
+    pass
+
+
+def on_alarm(signum, frame):
+    raise Timeout()
+
+
+def execute(source, timeout):
+    stdout = io.StringIO()
+    stderr = io.StringIO()
+    exit_code = 0
+    timed_out = False
+    sys.stdin = io.StringIO("")
+    sys.stdout = stdout
+    sys.stderr = stderr
+    signal.setitimer(signal.ITIMER_REAL, timeout)
+    try:
+        exec(compile(source, "<program>", "exec"), {"__name__": "__main__"})
+    except Timeout:
+        timed_out = True
+        exit_code = -1
+    except SystemExit as e:
+        if e.code is None:
+            exit_code = 0
+        elif isinstance(e.code, int):
+            exit_code = e.code
+        else:
+            stderr.write(str(e.code) + "\n")
+            exit_code = 1
+    except BaseException:
+        traceback.print_exc(file=stderr)
+        exit_code = 1
+    finally:
+        signal.setitimer(signal.ITIMER_REAL, 0)
+        sys.stdin = sys.__stdin__
+        sys.stdout = sys.__stdout__
+        sys.stderr = sys.__stderr__
+    return {"stdout": stdout.getvalue(), "stderr": stderr.getvalue(), "exit": exit_code,
+            "timeout": timed_out}
+
+
+def main():
+    channel = os.fdopen(os.dup(1), "w", encoding="utf-8")
+    null = os.open(os.devnull, os.O_WRONLY)
+    os.dup2(null, 1)
+    signal.signal(signal.SIGALRM, on_alarm)
+    channel.write(json.dumps({"ready": True}) + "\n")
+    channel.flush()
+    for line in sys.stdin:
+        request = json.loads(line)
+        response = execute(request["source"], request["timeout"])
+        channel.write(json.dumps(response) + "\n")
+        channel.flush()
+
+
+main()
@@ -0,0 +1,112 @@
+package sg.edu.nus.se.its.errorlocalizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sg.edu.nus.se.its.util.ProgramFixtures.sumProgram;
+import static sg.edu.nus.se.its.util.ProgramFixtures.var;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.alignment.StructuralMapping;
+import sg.edu.nus.se.its.alignment.VariableMapping;
+import sg.edu.nus.se.its.interpreter.TraceListener;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+import sg.edu.nus.se.its.util.Constants;
+import sg.edu.nus.se.its.util.ProgramFixtures.IntegerInterpreter;
+
+/**
+ * Tests the lock-step comparison of reference and submission.
+ */
+public class LockStepErrorLocalizerTest {
+
+  /**
+   * Integer interpreter that counts the streamed entries of the submission.
+   */
+  private static class CountingInterpreter extends IntegerInterpreter {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger streamed = new AtomicInteger();
+
+    @Override
+    public boolean executeProgram(Program program, Input input, TraceListener listener) {
+      executions.incrementAndGet();
+      return super.executeProgram(program, input, entry -> {
+        streamed.incrementAndGet();
+        return listener.onEntry(entry);
+      });
+    }
+  }
+
+  @Test
+  void test_StopsAtDivergence() {
+    Program reference = sumProgram(var("i"));
+    Program submission = sumProgram(new Constant("1", 3));
+    StructuralMapping structuralMapping = new StructuralMapping();
+    Map<Integer, Integer> locations = new HashMap<>();
+    for (int location = 1; location <= 4; location++) {
+      locations.put(location, location);
+    }
+    structuralMapping.put(Constants.DEFAULT_ENTRY_FUNCTION_NAME, locations);
+    Map<Variable, Variable> mapping = new HashMap<>();
+    for (String name : List.of("i", "s", "n", Constants.VAR_RET)) {
+      mapping.put(var(name), var(name));
+    }
+    VariableMapping variableMapping = new VariableMapping();
+    variableMapping.add(Constants.DEFAULT_ENTRY_FUNCTION_NAME, mapping);
+    Input input = new Input(null, new String[] {"4"});
+
+    CountingInterpreter interpreter = new CountingInterpreter();
+    ErrorLocalisation first = new LockStepErrorLocalizer().localizeErrors(submission, reference,
+        List.of(input), Constants.DEFAULT_ENTRY_FUNCTION_NAME, structuralMapping,
+        variableMapping, interpreter);
+    List<ErrorLocation> errors =
+        first.getErrorLocations(Constants.DEFAULT_ENTRY_FUNCTION_NAME, mapping);
+    assertEquals(1, errors.size());
+    assertEquals(3, errors.get(0).getLocationInSubmission());
+    assertEquals(List.of(var("s")), errors.get(0).getErroneousVariablesInSubmission());
+    assertEquals(input, errors.get(0).getTriggeringInput());
+    assertEquals(3, interpreter.streamed.get());
+
+    ErrorLocalisation all = new LockStepErrorLocalizer(5).localizeErrors(submission, reference,
+        List.of(input), Constants.DEFAULT_ENTRY_FUNCTION_NAME, structuralMapping,
+        variableMapping, new CountingInterpreter());
+    errors = all.getErrorLocations(Constants.DEFAULT_ENTRY_FUNCTION_NAME, mapping);
+    // s also diverges at the loop condition, $ret at the return
+    assertEquals(3, errors.size());
+    assertEquals(2, errors.get(1).getLocationInReference());
+    assertEquals(4, errors.get(2).getLocationInReference());
+    assertTrue(errors.get(2).getErroneousVariablesInSubmission().contains(var(Constants.VAR_RET)));
+
+    // all mappings are compared in one execution, which stops once every mapping diverged
+    Map<Variable, Variable> counter = Map.of(var("i"), var("i"));
+    Map<Variable, Variable> sum = Map.of(var("s"), var("s"));
+    VariableMapping mappings = new VariableMapping();
+    mappings.add(Constants.DEFAULT_ENTRY_FUNCTION_NAME, mapping);
+    mappings.add(Constants.DEFAULT_ENTRY_FUNCTION_NAME, sum);
+    interpreter = new CountingInterpreter();
+    ErrorLocalisation both = new LockStepErrorLocalizer().localizeErrors(submission, reference,
+        List.of(input), Constants.DEFAULT_ENTRY_FUNCTION_NAME, structuralMapping, mappings,
+        interpreter);
+    assertEquals(1, both.getErrorLocations(Constants.DEFAULT_ENTRY_FUNCTION_NAME, sum).size());
+    assertEquals(1, interpreter.executions.get());
+    assertEquals(3, interpreter.streamed.get());
+
+    mappings.add(Constants.DEFAULT_ENTRY_FUNCTION_NAME, counter);
+    interpreter = new CountingInterpreter();
+    ErrorLocalisation partial = new LockStepErrorLocalizer().localizeErrors(submission,
+        reference, List.of(input), Constants.DEFAULT_ENTRY_FUNCTION_NAME, structuralMapping,
+        mappings, interpreter);
+    assertTrue(partial.getErrorLocations(Constants.DEFAULT_ENTRY_FUNCTION_NAME, counter)
+        .isEmpty());
+    assertEquals(1, partial.getErrorLocations(Constants.DEFAULT_ENTRY_FUNCTION_NAME, mapping)
+        .size());
+    assertEquals(1, interpreter.executions.get());
+    assertEquals(11, interpreter.streamed.get());
+  }
+}
@@ -0,0 +1,349 @@
+package sg.edu.nus.se.its.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sg.edu.nus.se.its.util.ProgramFixtures.op;
+import static sg.edu.nus.se.its.util.ProgramFixtures.sumProgram;
+import static sg.edu.nus.se.its.util.ProgramFixtures.var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.javatuples.Pair;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.PersistentMemory;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.Variable;
+import sg.edu.nus.se.its.util.Constants;
+import sg.edu.nus.se.its.util.ProgramFixtures.IntegerInterpreter;
+
+/**
+ * Tests the block-wise execution of the interpreter skeleton.
+ */
+public class AbstractInterpreterTest {
+
+  @Test
+  void test_LoopExecution() {
+    Trace trace = new IntegerInterpreter().executeProgram(sumProgram(),
+        new Input(null, new String[] {"4"}));
+
+    List<Integer> locations =
+        trace.getEntries().stream().map(TraceEntry::getLocation).collect(Collectors.toList());
+    assertEquals(Arrays.asList(1, 2, 3, 2, 3, 2, 3, 2, 3, 2, 4), locations);
+
+    Memory last = trace.getLastEntry().getMem();
+    assertEquals(6, last.get(Variable.asPrimedVariableName(Constants.VAR_RET)));
+    assertEquals(6, last.getValueForVariable("s"));
+    assertEquals(4, last.getValueForVariable("i"));
+  }
+
+  @Test
+  void test_TraceEntriesAreSnapshots() {
+    Trace trace = new IntegerInterpreter().executeProgram(sumProgram(),
+        new Input(null, new String[] {"2"}));
+
+    Memory first = trace.getEntries().get(0).getMem();
+    assertTrue(first instanceof SlotMemory);
+    assertEquals(0, first.get("i'"));
+    assertEquals(2, first.get("n"));
+    assertFalse(first.containsKey("i"));
+
+    Memory firstBody = trace.getEntries().get(2).getMem();
+    assertEquals(0, firstBody.get("i"));
+    assertEquals(1, firstBody.get("i'"));
+  }
+
+  @Test
+  void test_PersistentMemory() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    interpreter.setMemoryRepresentation(MemoryRepresentation.PERSISTENT);
+    Trace trace = interpreter.executeProgram(sumProgram(), new Input(null, new String[] {"4"}));
+
+    assertEquals(11, trace.size());
+    assertTrue(trace.getLastEntry().getMem() instanceof PersistentMemory);
+    assertEquals(6, trace.getLastEntry().getMem().get("$ret'"));
+    assertEquals(0, trace.getEntries().get(2).getMem().get("i"));
+    assertEquals(1, trace.getEntries().get(2).getMem().get("i'"));
+  }
+
+  @Test
+  void test_CompactTrace() {
+    Input input = new Input(null, new String[] {"20"});
+    Trace expected = new IntegerInterpreter().executeProgram(sumProgram(), input);
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    interpreter.setTraceCheckpointInterval(4);
+    Trace actual = interpreter.executeProgram(sumProgram(), input);
+
+    assertTrue(actual instanceof CompactTrace);
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.getLastEntry().getMem(), actual.getLastEntry().getMem());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getEntries().get(i).getLocation(),
+          actual.getEntries().get(i).getLocation());
+      assertEquals(expected.getEntries().get(i).getMem(), actual.getEntries().get(i).getMem());
+    }
+    assertEquals(expected.getAll(3).size(), actual.getAll(3).size());
+
+    // the deltas of the linked blocks, which are computed from their assignments
+    interpreter.setTraceCheckpointInterval(1000);
+    interpreter.setCompileExpressions(true);
+    interpreter.setMemoryRepresentation(MemoryRepresentation.PERSISTENT);
+    actual = interpreter.executeProgram(sumProgram(), input);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getEntries().get(i).getMem(), actual.getEntries().get(i).getMem());
+    }
+
+    // the returned memories are copies
+    Memory memory = actual.getEntries().get(5).getMem();
+    memory.put("i", -1);
+    memory.remove("n");
+    assertEquals(expected.getEntries().get(5).getMem(), actual.getEntries().get(5).getMem());
+    assertEquals(expected.getLastEntry().getMem(), actual.getLastEntry().getMem());
+    actual.getEntries().get(0).getMem().clear();
+    assertEquals(expected.getEntries().get(0).getMem(), actual.getEntries().get(0).getMem());
+  }
+
+  @Test
+  void test_CompiledExpressions() {
+    Input input = new Input(null, new String[] {"10"});
+    Trace expected = new IntegerInterpreter().executeProgram(sumProgram(), input);
+    Program program = sumProgram();
+    IntegerInterpreter compiling = new IntegerInterpreter();
+    assertTrue(compiling.isCompileExpressions());
+    Trace actual = compiling.executeProgram(program, input);
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getEntries().get(i).getMem(), actual.getEntries().get(i).getMem());
+    }
+    // without bound operators, the compiled blocks keep the semantics of executeOperation
+    assertEquals(Boolean.TRUE,
+        actual.getEntries().get(1).getMem().get(Variable.asPrimedVariableName(Constants.VAR_COND)));
+
+    // modifications through the Function API invalidate the compiled blocks
+    Function function = program.getfnc(Constants.DEFAULT_ENTRY_FUNCTION_NAME);
+    function.addExpr(1, "s", new Constant("100", 1), 0);
+    Trace changed = compiling.executeProgram(program, input);
+    assertEquals(145, changed.getLastEntry().getMem().get("$ret'"));
+
+    // in-place modifications of the assignments and of the expressions invalidate them as well
+    long stamp = Expression.getModificationStamp();
+    Variable variable = new Variable("s", 0, true);
+    assertEquals(stamp, Expression.getModificationStamp());
+    variable.setPrimed(false);
+    assertNotEquals(stamp, Expression.getModificationStamp());
+    function.getExprs(3).get(0).getValue1().replace("i", new Constant("2", 3));
+    assertEquals(120, compiling.executeProgram(program, input).getLastEntry().getMem()
+        .get("$ret'"));
+    function.getExprs(4).set(0, new Pair<>(Constants.VAR_RET, new Constant("7", 4)));
+    assertEquals(7, compiling.executeProgram(program, input).getLastEntry().getMem()
+        .get("$ret'"));
+    assertEquals(7, compiling.compile(program).execute(input).getLastEntry().getMem()
+        .get("$ret'"));
+
+    IntegerInterpreter interpreting = new IntegerInterpreter();
+    interpreting.setCompileExpressions(false);
+    assertEquals(7, interpreting.executeProgram(program, input).getLastEntry().getMem()
+        .get("$ret'"));
+  }
+
+  @Test
+  void test_CompiledProgram() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    CompiledProgram program = interpreter.compile(sumProgram());
+    for (int n = 0; n < 5; n++) {
+      Input input = new Input(null, new String[] {String.valueOf(n)});
+      Trace expected = interpreter.executeProgram(sumProgram(), input);
+      Trace actual = program.execute(input);
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.getEntries().get(i).getLocation(),
+            actual.getEntries().get(i).getLocation());
+        assertEquals(expected.getEntries().get(i).getMem(), actual.getEntries().get(i).getMem());
+      }
+    }
+
+    interpreter.setStepLimit(10);
+    assertThrows(RuntimeException.class,
+        () -> program.execute(new Input(null, new String[] {"100"})));
+
+    // the linked execution takes the transitions of the interpreter
+    IntegerInterpreter stopping = new IntegerInterpreter() {
+      @Override
+      protected Integer nextLocation(Function function, int location, Memory memory) {
+        return location == 2 ? null : super.nextLocation(function, location, memory);
+      }
+    };
+    assertEquals(2, stopping.compile(sumProgram()).execute(new Input(null, new String[] {"3"}))
+        .size());
+
+    // a location that only has transitions is executed as an empty block
+    Program withEmptyBlock = sumProgram();
+    Function function = withEmptyBlock.getFncs().get(Constants.DEFAULT_ENTRY_FUNCTION_NAME);
+    function.addLocation(5, "empty");
+    function.addLocationTrans(5, 2, null);
+    function.addLocationTrans(1, 5, null);
+    function.getLocexprs().remove(5);
+    Input input = new Input(null, new String[] {"3"});
+    Trace expected = new IntegerInterpreter().executeProgram(withEmptyBlock, input);
+    Trace actual = new IntegerInterpreter().compile(withEmptyBlock).execute(input);
+    assertEquals(expected.size(), actual.size());
+    assertEquals(5, actual.getEntries().get(1).getLocation());
+    assertEquals(expected.getEntries().get(expected.size() - 1).getMem(),
+        actual.getEntries().get(actual.size() - 1).getMem());
+  }
+
+  @Test
+  void test_TraceListener() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    Input input = new Input(null, new String[] {"1000"});
+    List<TraceEntry> received = new ArrayList<>();
+    boolean completed = interpreter.executeProgram(sumProgram(), input, entry -> {
+      received.add(entry);
+      return entry.getLocation() == 3 ? TraceListener.Signal.STOP
+          : TraceListener.Signal.CONTINUE;
+    });
+
+    assertFalse(completed);
+    assertEquals(Arrays.asList(1, 2, 3),
+        received.stream().map(TraceEntry::getLocation).collect(Collectors.toList()));
+
+    Trace trace = new Trace();
+    assertTrue(interpreter.compile(sumProgram()).execute(input, trace));
+    assertEquals(interpreter.executeProgram(sumProgram(), input).size(), trace.size());
+  }
+
+  @Test
+  void test_ExecutionBudget() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    Program program = sumProgram();
+    Input input = new Input(null, new String[] {"100"});
+
+    ExecutionResult completed = interpreter.execute(program, input, ExecutionBudget.UNLIMITED,
+        null);
+    assertTrue(completed.isCompleted());
+    assertEquals(completed.getSteps(), completed.getTrace().size());
+
+    ExecutionResult steps = interpreter.execute(program, input,
+        ExecutionBudget.UNLIMITED.withMaxSteps(10), null);
+    assertEquals(ExecutionResult.Status.STEP_LIMIT_EXCEEDED, steps.getStatus());
+    assertTrue(steps.isBudgetExhausted());
+    assertEquals(10, steps.getSteps());
+    assertEquals(10, steps.getTrace().size());
+
+    ExecutionResult entries = interpreter.compile(program).execute(input,
+        ExecutionBudget.UNLIMITED.withMaxTraceEntries(5), null);
+    assertEquals(ExecutionResult.Status.TRACE_LIMIT_EXCEEDED, entries.getStatus());
+    assertEquals(5, entries.getTrace().size());
+
+    CancellationToken token = new CancellationToken();
+    ExecutionResult cancelled = interpreter.execute(program, input, ExecutionBudget.UNLIMITED,
+        token, entry -> {
+          if (entry.getLocation() == 3) {
+            token.cancel();
+          }
+          return TraceListener.Signal.CONTINUE;
+        });
+    assertEquals(ExecutionResult.Status.CANCELLED, cancelled.getStatus());
+    assertEquals(3, cancelled.getSteps());
+
+    interpreter.setBudget(ExecutionBudget.UNLIMITED.withMaxSteps(10));
+    assertEquals(10, interpreter.getStepLimit());
+    assertThrows(RuntimeException.class, () -> interpreter.executeProgram(program, input));
+  }
+
+  @Test
+  void test_ParallelExecution() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    List<Input> inputs = new ArrayList<>();
+    for (int n = 0; n < 50; n++) {
+      inputs.add(new Input(null, new String[] {String.valueOf(n)}));
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<Trace> traces = interpreter.executeProgram(sumProgram(), inputs, pool);
+      assertEquals(inputs.size(), traces.size());
+      for (int n = 0; n < inputs.size(); n++) {
+        assertEquals(n * (n - 1) / 2, traces.get(n).getLastEntry().getMem().get("$ret'"));
+      }
+
+      List<ExecutionResult> results = interpreter.execute(sumProgram(), inputs,
+          ExecutionBudget.UNLIMITED.withMaxSteps(20), pool);
+      assertTrue(results.get(5).isCompleted());
+      assertEquals(ExecutionResult.Status.STEP_LIMIT_EXCEEDED, results.get(10).getStatus());
+
+      interpreter.setStepLimit(20);
+      assertThrows(RuntimeException.class,
+          () -> interpreter.executeProgram(sumProgram(), inputs, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void test_ResumeFromCheckpoint() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    Program program = sumProgram();
+    Input input = new Input(null, new String[] {"4"});
+    CheckpointedExecution execution = interpreter.executeWithCheckpoints(program, input);
+    assertEquals(11, execution.getTrace().size());
+    assertEquals(2, execution.getFirstVisit(3));
+    assertEquals(10, execution.getFirstVisit(4));
+
+    // return 2 * s instead of s
+    Program patched = program.deepCopy();
+    Function function = patched.getfnc(Constants.DEFAULT_ENTRY_FUNCTION_NAME);
+    function.replaceLocExpressions(4, new ArrayList<>(List.of(
+        new Pair<>(Constants.VAR_RET, op("+", var("s"), var("s"))))));
+    String entry = Constants.DEFAULT_ENTRY_FUNCTION_NAME;
+    CheckpointedExecution resumed =
+        interpreter.resume(execution, patched, List.of(new Pair<>(entry, 4)));
+    Trace expected = interpreter.executeProgram(patched, input);
+    assertEquals(expected.size(), resumed.getTrace().size());
+    assertEquals(12, resumed.getTrace().getLastEntry().getMem().get("$ret'"));
+    assertEquals(11, resumed.getResult().getSteps());
+    assertSame(execution.getTrace().getEntries().get(9), resumed.getTrace().getEntries().get(9));
+
+    // a patched body changes the suffix from the first iteration
+    Program patchedBody = patched.deepCopy();
+    patchedBody.getfnc(Constants.DEFAULT_ENTRY_FUNCTION_NAME).replaceLocExpressions(3,
+        new ArrayList<>(List.of(
+            new Pair<>("s", op("+", var("s"), new Constant("1", 3))),
+            new Pair<>("i", op("+", var("i"), new Constant("1", 3))))));
+    CheckpointedExecution twice =
+        interpreter.resume(resumed, patchedBody, List.of(new Pair<>(entry, 3)));
+    expected = interpreter.executeProgram(patchedBody, input);
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getEntries().get(i).getLocation(),
+          twice.getTrace().getEntries().get(i).getLocation());
+      assertEquals(expected.getEntries().get(i).getMem(), twice.getTrace().getEntries().get(i)
+          .getMem());
+    }
+    assertEquals(8, twice.getTrace().getLastEntry().getMem().get("$ret'"));
+    // an unvisited location does not change the execution
+    assertSame(twice.getTrace(),
+        interpreter.resume(twice, patchedBody.deepCopy(), List.of(new Pair<>(entry, 7)))
+            .getTrace());
+    // a patch of another function executes the program from the start
+    CheckpointedExecution restarted = interpreter.resume(twice, patchedBody.deepCopy(),
+        List.of(new Pair<>(entry, 7), new Pair<>("helper", 1)));
+    assertNotSame(twice.getTrace(), restarted.getTrace());
+    assertEquals(expected.size(), restarted.getTrace().size());
+    assertEquals(8, restarted.getTrace().getLastEntry().getMem().get("$ret'"));
+    assertEquals(twice.getCheckpointedLocations(), restarted.getCheckpointedLocations());
+  }
+}
@@ -0,0 +1,106 @@
+package sg.edu.nus.se.its.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.util.Constants;
+import sg.edu.nus.se.its.util.ProgramFixtures;
+import sg.edu.nus.se.its.util.ProgramFixtures.IntegerInterpreter;
+
+/**
+ * Tests the caching of reference traces.
+ */
+public class ReferenceTraceCacheTest {
+
+  private static Input input(int n) {
+    return new Input(null, new String[] {String.valueOf(n)});
+  }
+
+  @Test
+  void test_Fingerprint() {
+    Program program = ProgramFixtures.sumProgram();
+    String fingerprint = ReferenceTraceCache.fingerprint(program);
+    assertEquals(64, fingerprint.length());
+    assertEquals(fingerprint, ReferenceTraceCache.fingerprint(program.deepCopy()));
+
+    program.getfnc(Constants.DEFAULT_ENTRY_FUNCTION_NAME).addExpr(4, "s", new Constant("1", 4),
+        0);
+    assertNotEquals(fingerprint, ReferenceTraceCache.fingerprint(program));
+  }
+
+  @Test
+  void test_CachingInterpreter() {
+    AtomicInteger executions = new AtomicInteger();
+    IntegerInterpreter delegate = new IntegerInterpreter() {
+      @Override
+      public Trace executeProgram(Program program, Input input) {
+        executions.incrementAndGet();
+        return super.executeProgram(program, input);
+      }
+    };
+    ReferenceTraceCache cache = new ReferenceTraceCache(1L << 20);
+
+    // one interpreter per submission, the reference is loaded for each submission
+    for (int submission = 0; submission < 3; submission++) {
+      Program reference = ProgramFixtures.sumProgram();
+      CachingInterpreter interpreter = new CachingInterpreter(delegate, cache, reference);
+      Trace first = interpreter.executeProgram(reference, input(5));
+      Trace second = interpreter.executeProgram(reference, input(5));
+      assertNotSame(first, second);
+      assertEquals(10, second.getLastEntry().getMem().get("$ret'"));
+      interpreter.executeProgram(ProgramFixtures.sumProgram(), input(5));
+    }
+    // the reference once, and the submission three times
+    assertEquals(4, executions.get());
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getMisses());
+    assertEquals(5, cache.getHits());
+  }
+
+  @Test
+  void test_Eviction() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    Program program = ProgramFixtures.sumProgram();
+    String fingerprint = ReferenceTraceCache.fingerprint(program);
+    ReferenceTraceCache cache = new ReferenceTraceCache(20_000);
+
+    for (int n = 0; n < 20; n++) {
+      Input input = input(n);
+      cache.get(fingerprint, input, () -> interpreter.executeProgram(program, input));
+      cache.get(fingerprint, input(0), () -> interpreter.executeProgram(program, input(0)));
+    }
+    assertTrue(cache.getEstimatedSize() <= 20_000);
+    assertTrue(cache.size() < 20);
+    // the most recently used traces are kept
+    long misses = cache.getMisses();
+    cache.get(fingerprint, input(0), () -> interpreter.executeProgram(program, input(0)));
+    cache.get(fingerprint, input(19), () -> interpreter.executeProgram(program, input(19)));
+    assertEquals(misses, cache.getMisses());
+  }
+
+  @Test
+  void test_FailedExecution() {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    Program program = ProgramFixtures.sumProgram();
+    String fingerprint = ReferenceTraceCache.fingerprint(program);
+    ReferenceTraceCache cache = new ReferenceTraceCache(1L << 20);
+
+    assertThrows(StackOverflowError.class, () -> cache.get(fingerprint, input(3), () -> {
+      throw new StackOverflowError();
+    }));
+    assertEquals(0, cache.size());
+    // the failed slot is not kept, so the next request executes again instead of waiting
+    Trace trace =
+        cache.get(fingerprint, input(3), () -> interpreter.executeProgram(program, input(3)));
+    assertEquals(3, trace.getLastEntry().getMem().get("$ret'"));
+    assertEquals(1, cache.size());
+  }
+}
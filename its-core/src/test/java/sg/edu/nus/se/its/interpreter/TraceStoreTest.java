@@ -0,0 +1,115 @@
+package sg.edu.nus.se.its.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.util.Constants;
+import sg.edu.nus.se.its.util.ProgramFixtures;
+import sg.edu.nus.se.its.util.ProgramFixtures.IntegerInterpreter;
+
+/**
+ * Tests the memory-mapped trace store.
+ */
+public class TraceStoreTest {
+
+  private static Input input(int n) {
+    return new Input(null, new String[] {String.valueOf(n)});
+  }
+
+  @Test
+  void test_WriteAndRead(@TempDir Path directory) throws IOException {
+    IntegerInterpreter interpreter = new IntegerInterpreter();
+    Program program = ProgramFixtures.sumProgram();
+    TraceStoreWriter writer = new TraceStoreWriter();
+    for (int n = 0; n < 4; n++) {
+      writer.add(program, input(n), interpreter.executeProgram(program, input(n)));
+    }
+    Trace extra = new Trace();
+    Memory memory = new Memory();
+    memory.put("s", "text");
+    memory.put("d", 1.5);
+    memory.put("c", 'x');
+    memory.put("u", Constants.UNDEFINED);
+    memory.put("l", Arrays.asList(1, Arrays.asList("x", null)));
+    memory.put("a", new int[][] {{1, 2}, {3}});
+    memory.put("o", new Object[] {'y', 2L});
+    Map<String, Object> struct = new LinkedHashMap<>();
+    struct.put("x", 1);
+    struct.put("next", null);
+    memory.put("m", struct);
+    extra.add("f", 7, memory);
+    writer.add("other", new Input(new String[] {"a b"}, null), extra);
+
+    Trace unsupported = new Trace();
+    Memory unsupportedMemory = new Memory();
+    unsupportedMemory.put("t", new Thread());
+    unsupported.add("f", 1, unsupportedMemory);
+    assertThrows(RuntimeException.class, () -> writer.add("other", input(0), unsupported));
+    assertEquals(5, writer.size());
+    Path file = directory.resolve("reference.traces");
+    writer.write(file);
+
+    try (TraceStore store = TraceStore.open(file)) {
+      assertEquals(5, store.size());
+      Trace expected = interpreter.executeProgram(program, input(3));
+      StoredTrace stored = store.get(program, input(3));
+      assertEquals(expected.size(), stored.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.getEntries().get(i).getLocation(), stored.getEntry(i).getLocation());
+        assertEquals(expected.getEntries().get(i).getMem(), stored.getEntry(i).getMem());
+      }
+      List<TraceEntry> loop = stored.getAll(Constants.DEFAULT_ENTRY_FUNCTION_NAME, 3);
+      assertEquals(3, loop.size());
+      assertArrayEquals(new int[] {1, 3, 5, 7}, stored.positions(
+          Constants.DEFAULT_ENTRY_FUNCTION_NAME, 2));
+      assertEquals(0, stored.positions("other", 2).length);
+      assertNull(store.get(program, input(9)));
+
+      Memory decoded = store.get("other", new Input(new String[] {"a b"}, null)).getEntry(0)
+          .getMem();
+      assertEquals("text", decoded.get("s"));
+      assertEquals(1.5, decoded.get("d"));
+      assertEquals('x', decoded.get("c"));
+      assertEquals(Constants.UNDEFINED, decoded.get("u"));
+      assertEquals(Arrays.asList(1, Arrays.asList("x", null)), decoded.get("l"));
+      assertArrayEquals(new int[][] {{1, 2}, {3}}, (int[][]) decoded.get("a"));
+      assertArrayEquals(new Object[] {'y', 2L}, (Object[]) decoded.get("o"));
+      assertEquals(struct, decoded.get("m"));
+
+      AtomicInteger executions = new AtomicInteger();
+      Interpreter counting = new IntegerInterpreter() {
+        @Override
+        public Trace executeProgram(Program program, Input input) {
+          executions.incrementAndGet();
+          return super.executeProgram(program, input);
+        }
+      };
+      ReferenceTraceCache cache = new ReferenceTraceCache(1L << 20);
+      CachingInterpreter caching = new CachingInterpreter(counting, cache, program, store);
+      Trace served = caching.executeProgram(program, input(3));
+      assertEquals(3, served.getLastEntry().getMem().get("$ret'"));
+      assertEquals(expected.getAll(3).size(), served.getAll(3).size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.getEntries().get(i).getMem(), served.getEntries().get(i).getMem());
+      }
+      caching.executeProgram(program, input(5));
+      assertEquals(1, executions.get());
+      // only the trace that is missing in the store is cached
+      assertEquals(1, cache.size());
+    }
+  }
+}
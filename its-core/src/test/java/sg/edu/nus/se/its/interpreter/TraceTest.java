@@ -0,0 +1,76 @@
+package sg.edu.nus.se.its.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Memory;
+
+/**
+ * Tests the location index of traces.
+ */
+public class TraceTest {
+
+  private static Trace createTrace() {
+    Trace trace = new Trace();
+    int[] locations = {1, 2, 3, 2, 3, 2, 4};
+    for (int location : locations) {
+      trace.add("main", location, new Memory());
+    }
+    trace.add("f", 2, new Memory());
+    return trace;
+  }
+
+  @Test
+  void test_GetUnique() {
+    Trace trace = createTrace();
+
+    // entries are marked as checked, and checked entries are skipped
+    trace.getEntries().get(1).setChecked();
+    assertSame(trace.getEntries().get(3), trace.getUnique(2));
+    assertFalse(trace.getEntries().get(3).setChecked());
+
+    trace = createTrace();
+    assertSame(trace.getEntries().get(1), trace.getUnique(2));
+    assertSame(trace.getEntries().get(3), trace.getUnique(2));
+    assertSame(trace.getEntries().get(5), trace.getUnique(2));
+    assertSame(trace.getEntries().get(7), trace.getUnique(2));
+    assertNull(trace.getUnique(2));
+    assertNull(trace.getUnique(5));
+
+    // cursors are independent of getUnique and of each other
+    TraceCursor cursor = trace.cursor();
+    assertSame(trace.getEntries().get(1), cursor.next(2));
+    assertSame(trace.getEntries().get(7), cursor.next("f", 2));
+    assertNull(cursor.next("f", 2));
+    cursor.reset();
+    assertSame(trace.getEntries().get(1), cursor.next(2));
+  }
+
+  @Test
+  void test_GetAll() {
+    Trace trace = createTrace();
+
+    assertEquals(4, trace.getAll(2).size());
+    assertEquals(3, trace.getAll("main", 2).size());
+    assertEquals(0, trace.getAll(5).size());
+
+    // entries added to the list directly are indexed on the next lookup
+    trace.getEntries().add(new TraceEntry("main", 5, new Memory()));
+    assertEquals(1, trace.getAll(5).size());
+    trace.getEntries().remove(trace.size() - 1);
+    assertEquals(0, trace.getAll(5).size());
+
+    // replaced and inserted entries are reflected as well
+    trace.getEntries().set(0, new TraceEntry("main", 5, new Memory()));
+    assertEquals(1, trace.getAll(5).size());
+    trace.getEntries().add(0, new TraceEntry("f", 2, new Memory()));
+    assertEquals(2, trace.getAll("f", 2).size());
+    assertSame(trace.getEntries().get(0), trace.getAll(2).get(0));
+    trace.getEntries().subList(0, 2).clear();
+    assertEquals(0, trace.getAll(5).size());
+    assertEquals(1, trace.getAll("f", 2).size());
+  }
+}
@@ -0,0 +1,190 @@
+package sg.edu.nus.se.its.interpreter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sg.edu.nus.se.its.util.ProgramFixtures.cons;
+import static sg.edu.nus.se.its.util.ProgramFixtures.op;
+import static sg.edu.nus.se.its.util.ProgramFixtures.var;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.MemoryLayout;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.SlotMemory;
+import sg.edu.nus.se.its.model.ValueType;
+import sg.edu.nus.se.its.util.Constants;
+import sg.edu.nus.se.its.util.ProgramFixtures.IntegerInterpreter;
+
+/**
+ * Tests the unboxed evaluation of numeric expressions.
+ */
+public class TypedExpressionTest {
+
+  /**
+   * Interpreter that parses int, long (suffix L), double and char constants, binds the numeric
+   * operators, and evaluates the operations that they leave to the interpreter to the string
+   * "fallback".
+   */
+  static class NumberInterpreter extends AbstractInterpreter {
+
+    @Override
+    protected void initializeMemory(Function function, Input input, Memory memory) {
+    }
+
+    @Override
+    public Object executeConstant(Constant constant, Memory memory) {
+      String value = constant.getValue();
+      if (value.startsWith("'")) {
+        return value.charAt(1);
+      }
+      if (value.endsWith("L")) {
+        return Long.parseLong(value.substring(0, value.length() - 1));
+      }
+      if (value.contains(".")) {
+        return Double.parseDouble(value);
+      }
+      return Integer.parseInt(value);
+    }
+
+    @Override
+    public Object executeOperation(Operation operation, Memory memory) {
+      return "fallback";
+    }
+
+    @Override
+    protected Operator resolveOperator(Operation operation) {
+      return NumericOperator.resolve(operation);
+    }
+  }
+
+  /**
+   * Interpreter whose operations follow the C semantics, but which does not bind the operators
+   * itself.
+   */
+  static class CInterpreter extends AbstractInterpreter {
+
+    @Override
+    protected void initializeMemory(Function function, Input input, Memory memory) {
+    }
+
+    @Override
+    public Object executeConstant(Constant constant, Memory memory) {
+      return Integer.parseInt(constant.getValue());
+    }
+
+    @Override
+    public Object executeOperation(Operation operation, Memory memory) {
+      Operator operator = NumericOperator.resolve(operation);
+      List<Expression> args = operation.getArgs();
+      Object left = execute(args.get(0), memory);
+      return args.size() == 1 ? operator.apply(left)
+          : operator.apply(left, execute(args.get(1), memory));
+    }
+  }
+
+  private final NumberInterpreter interpreter = new NumberInterpreter();
+  private final MemoryLayout layout =
+      new MemoryLayout(new LinkedHashSet<>(Arrays.asList("i", "l", "d", "c", "u")));
+  private final ExpressionCompiler compiler;
+
+  TypedExpressionTest() {
+    Map<String, String> types = new HashMap<>();
+    types.put("i", "int");
+    types.put("l", "long");
+    types.put("d", "double");
+    types.put("c", "char");
+    types.put("u", "int");
+    compiler = new ExpressionCompiler(interpreter, layout, types);
+  }
+
+  private SlotMemory memory() {
+    SlotMemory memory = new SlotMemory(layout);
+    memory.put("i", Integer.MAX_VALUE);
+    memory.put("l", 5L);
+    memory.put("d", 0.5);
+    memory.put("c", 'a');
+    memory.put("u", Constants.UNDEFINED);
+    return memory;
+  }
+
+  @Test
+  void test_UnboxedStorage() {
+    SlotMemory memory = memory();
+    int slot = layout.slotOf("c");
+    assertEquals(ValueType.CHAR, memory.getType(slot));
+    assertEquals('a', memory.getLong(slot));
+    assertEquals(ValueType.UNDEFINED, memory.getType(layout.slotOf("u")));
+    assertEquals(Constants.UNDEFINED, memory.get("u"));
+    assertEquals(0.5, memory.snapshot().get("d"));
+
+    memory.moveValue(layout.slotOf("d"), layout.slotOf("i'"));
+    assertEquals(0.5, memory.get("i'"));
+    assertEquals(false, memory.containsKey("d"));
+  }
+
+  @Test
+  void test_TypedEvaluation() {
+    SlotMemory memory = memory();
+    // int arithmetic wraps around, char is promoted to int
+    assertEquals(Integer.MIN_VALUE, compiler.compile(op("+", var("i"), cons("1"))).evaluate(
+        memory));
+    assertEquals(98, compiler.compile(op("+", var("c"), cons("1"))).evaluate(memory));
+    assertEquals('a', compiler.compile(var("c")).evaluate(memory));
+    assertEquals(7L, compiler.compile(op("+", var("l"), cons("2"))).evaluate(memory));
+    assertEquals(2.5, compiler.compile(op("*", var("d"), var("l"))).evaluate(memory));
+    assertEquals(1, compiler.compile(op("&&", op("<", var("d"), var("l")), var("c")))
+        .evaluate(memory));
+    assertEquals(-97, compiler.compile(op("-", var("c"))).evaluate(memory));
+    // undefined values and division by zero are left to the interpreter
+    assertEquals("fallback", compiler.compile(op("+", var("u"), cons("1"))).evaluate(memory));
+    assertEquals("fallback", compiler.compile(op("/", var("l"), cons("0"))).evaluate(memory));
+
+    CompiledExpression sum = compiler.compile(op("+", var("i"), var("l")));
+    sum.evaluateInto(memory, layout.slotOf("l'"));
+    assertEquals(ValueType.LONG, memory.getType(layout.slotOf("l'")));
+    assertEquals(Integer.MAX_VALUE + 5L, memory.get("l'"));
+  }
+
+  @Test
+  void test_DefaultOperatorBinding() {
+    // the operators are bound if the interpreter agrees with them
+    CInterpreter cinterpreter = new CInterpreter();
+    assertSame(NumericOperator.LT, cinterpreter.resolveOperator(op("<", var("i"), cons("1"))));
+    CompiledExpression sum = new ExpressionCompiler(cinterpreter, layout, Map.of("i", "int"))
+        .compile(op("+", var("i"), cons("1")));
+    assertEquals(ValueType.INT, sum.getType());
+    assertEquals(Integer.MIN_VALUE, sum.evaluate(memory()));
+
+    // comparisons that return Boolean and operators that reject long operands stay unbound
+    IntegerInterpreter integers = new IntegerInterpreter();
+    assertNull(integers.resolveOperator(op("<", var("i"), cons("1"))));
+    assertNull(integers.resolveOperator(op("+", var("i"), cons("1"))));
+
+    // unary plus promotes characters
+    assertEquals(97, NumericOperator.ADD.apply('a'));
+    assertEquals(5L, NumericOperator.ADD.apply(5L));
+  }
+
+  @Test
+  void test_UntypedNodesUnboxValues() {
+    SlotMemory memory = memory();
+    ExpressionCompiler untyped = new ExpressionCompiler(interpreter, layout);
+    assertEquals(ValueType.OBJECT, untyped.compile(var("i")).getType());
+    assertEquals(Integer.MAX_VALUE, untyped.compile(var("i")).evaluateLong(memory));
+    assertEquals('a', untyped.compile(var("c")).evaluateLong(memory));
+    assertEquals(0.5, untyped.compile(var("d")).evaluateDouble(memory));
+    assertThrows(TypedExpression.TypeMismatch.class,
+        () -> untyped.compile(var("u")).evaluateLong(memory));
+  }
+}
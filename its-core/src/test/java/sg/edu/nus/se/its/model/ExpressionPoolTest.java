@@ -0,0 +1,92 @@
+package sg.edu.nus.se.its.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the hash-consing of expressions.
+ */
+public class ExpressionPoolTest {
+
+  private static Operation sum(String left, String right) {
+    return new Operation("+", Arrays.asList(new Variable(left, 1), new Variable(right, 1)), 1);
+  }
+
+  @Test
+  void test_IdenticalSubtreesAreShared() {
+    ExpressionPool pool = new ExpressionPool();
+    Expression first = pool.intern(new Operation("*", Arrays.asList(sum("a", "b"),
+        sum("a", "b")), 1));
+    Expression second = pool.intern(new Operation("*", Arrays.asList(sum("a", "b"),
+        sum("a", "b")), 1));
+
+    assertSame(first, second);
+    assertTrue(first.isInterned());
+    Operation product = (Operation) first;
+    assertSame(product.getArgs().get(0), product.getArgs().get(1));
+    // a, b, a+b and the product
+    assertEquals(4, pool.size());
+    assertEquals(sum("a", "b"), product.getArgs().get(0));
+    assertEquals(sum("a", "b").hashCode(), product.getArgs().get(0).hashCode());
+  }
+
+  @Test
+  void test_PrimingReturnsNewNodes() {
+    ExpressionPool pool = new ExpressionPool();
+    Operation operation = (Operation) pool.intern(sum("a", "b"));
+
+    Operation primed = (Operation) operation.prime();
+    assertNotSame(operation, primed);
+    assertFalse(((Variable) operation.getArgs().get(0)).isPrimed());
+    assertTrue(((Variable) primed.getArgs().get(0)).isPrimed());
+    assertSame(operation, primed.unprime());
+    assertSame(pool.intern(sum("c", "b")), operation.replace("a", new Variable("c", 1)));
+
+    // the primed variant of a variable is its own node
+    Variable variable = (Variable) operation.getArgs().get(0);
+    assertSame(pool.variable("a", true, 1), variable.prime());
+    assertSame(variable, variable.prime().unprime());
+    variable.setPrimed(false);
+    assertThrows(UnsupportedOperationException.class, () -> variable.setPrimed(true));
+  }
+
+  @Test
+  void test_InternedEquality() {
+    ExpressionPool pool = new ExpressionPool();
+    Variable variable = pool.variable("x", false, 1);
+    Variable primed = pool.variable("x", true, 1);
+
+    // interned variables ignore the prime status like mutable ones
+    assertNotSame(variable, primed);
+    assertEquals(new Variable("x", 1), new Variable("x'", 1));
+    assertEquals(variable, primed);
+    assertEquals(variable, new Variable("x", 1));
+    assertEquals(new Variable("x", 1), primed);
+    assertEquals(new Variable("x", 1).hashCode(), primed.hashCode());
+    assertNotEquals(variable, pool.variable("y", false, 1));
+
+    // line numbers are kept, the equality ignores them like for mutable expressions
+    assertSame(variable, pool.intern(new Variable("x", 1)));
+    assertNotSame(variable, pool.intern(new Variable("x", 7)));
+    assertEquals(7, pool.intern(new Variable("x", 7)).getLineNumber());
+    Operation first = new Operation("+", Arrays.asList(new Variable("x", 1),
+        new Constant("1", 1)), 1);
+    Operation second = new Operation("+", Arrays.asList(new Variable("x", 2),
+        new Constant("1", 2)), 2);
+    assertEquals(first, second);
+    assertNotSame(pool.intern(first), pool.intern(second));
+    assertEquals(pool.intern(first), pool.intern(second));
+    assertEquals(2, pool.intern(second).getLineNumber());
+    Expression interned = pool.intern(first);
+    assertNotSame(interned, interned.prime());
+    assertEquals(interned, interned.prime());
+  }
+}
@@ -0,0 +1,65 @@
+package sg.edu.nus.se.its.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.util.Constants;
+
+public class OpcodeTest {
+
+  @Test
+  void test_NameLookup() {
+    assertEquals(Opcode.ADD, Opcode.of("+"));
+    assertEquals(Opcode.ADD, Opcode.of("Add"));
+    assertEquals(Opcode.ADD, Opcode.of("UAdd"));
+    assertEquals(Opcode.AND, Opcode.of("&&"));
+    assertEquals(Opcode.AND, Opcode.of("and"));
+    assertEquals(Opcode.IS_NOT, Opcode.of("is not"));
+    assertEquals(Opcode.CONDITIONAL, Opcode.of(Constants.CONDITIONAL_OPERATOR));
+    assertEquals(Opcode.FUNCTION_CALL, Opcode.of(Constants.FUNCTION_CALL));
+    assertEquals(Opcode.MATH_FUNCTION, Opcode.of(Constants.FUNCS.get(0)));
+    assertEquals(Opcode.UNKNOWN, Opcode.of("foo"));
+    assertEquals(Opcode.UNKNOWN, Opcode.of(null));
+
+    Operation operation = new Operation("Mult", List.of(new Variable("x")), 1);
+    assertEquals(Opcode.MUL, operation.getOpcode());
+  }
+
+  @Test
+  void test_Symbols() {
+    assertEquals("+", Opcode.ADD.getSymbol());
+    assertEquals("ite", Opcode.CONDITIONAL.getSymbol());
+    assertNull(Opcode.UNKNOWN.getSymbol());
+
+    assertTrue(Opcode.DIV.isSymbol("/"));
+    assertFalse(Opcode.DIV.isSymbol("Div"));
+    assertTrue(Opcode.IN.isSymbol("in"));
+    assertFalse(Opcode.UNKNOWN.isSymbol("foo"));
+    for (Opcode opcode : Opcode.values()) {
+      if (opcode != Opcode.UNKNOWN) {
+        assertEquals(opcode, Opcode.of(opcode.getSymbol()));
+      }
+    }
+  }
+
+  @Test
+  void test_Arity() {
+    assertEquals(1, Opcode.SUB.getMinArity());
+    assertEquals(2, Opcode.SUB.getMaxArity());
+    assertEquals(1, Opcode.NOT.getMinArity());
+    assertEquals(1, Opcode.NOT.getMaxArity());
+    assertEquals(3, Opcode.CONDITIONAL.getMinArity());
+    assertEquals(3, Opcode.CONDITIONAL.getMaxArity());
+    assertEquals(Integer.MAX_VALUE, Opcode.OR.getMaxArity());
+    assertEquals(0, Opcode.ARRAY_CREATE.getMinArity());
+
+    assertEquals(Opcode.Category.COMPARISON, Opcode.LE.getCategory());
+    assertTrue(Opcode.BIT_XOR.isOperator());
+    assertFalse(Opcode.FUNCTION_CALL.isOperator());
+    assertFalse(Opcode.STRING_APPEND.isOperator());
+  }
+}
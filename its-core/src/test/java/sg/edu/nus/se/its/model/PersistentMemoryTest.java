@@ -0,0 +1,78 @@
+package sg.edu.nus.se.its.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the persistent memory against a HashMap.
+ */
+public class PersistentMemoryTest {
+
+  @Test
+  void test_CollidingKeys() {
+    // "Aa" and "BB" have the same hash code
+    PersistentMemory memory = new PersistentMemory();
+    memory.put("Aa", 1);
+    memory.put("BB", 2);
+    Memory snapshot = memory.snapshot();
+    memory.remove("Aa");
+
+    assertEquals(1, memory.size());
+    assertNull(memory.get("Aa"));
+    assertEquals(2, memory.get("BB"));
+    assertEquals(1, snapshot.get("Aa"));
+    assertEquals(2, snapshot.get("BB"));
+  }
+
+  @Test
+  void test_SnapshotsAreIsolated() {
+    Random random = new Random(42);
+    PersistentMemory memory = new PersistentMemory();
+    Map<String, Object> expected = new HashMap<>();
+    List<Memory> snapshots = new ArrayList<>();
+    List<Map<String, Object>> expectedSnapshots = new ArrayList<>();
+
+    for (int step = 0; step < 5000; step++) {
+      String key = "v" + random.nextInt(300);
+      if (random.nextInt(4) == 0) {
+        assertEquals(expected.remove(key), memory.remove(key));
+      } else {
+        Integer value = random.nextInt(10);
+        assertEquals(expected.put(key, value), memory.put(key, value));
+      }
+      if (step % 100 == 0) {
+        snapshots.add(memory.snapshot());
+        expectedSnapshots.add(new HashMap<>(expected));
+      }
+    }
+
+    assertEquals(expected, memory);
+    assertEquals(memory, expected);
+    for (int i = 0; i < snapshots.size(); i++) {
+      assertEquals(expectedSnapshots.get(i), snapshots.get(i));
+    }
+  }
+
+  @Test
+  void test_IteratorRemove() {
+    PersistentMemory memory = new PersistentMemory();
+    for (int i = 0; i < 100; i++) {
+      memory.put("x" + i, i);
+    }
+    Memory snapshot = memory.snapshot();
+    memory.entrySet().removeIf(entry -> (Integer) entry.getValue() % 2 == 0);
+
+    assertEquals(50, memory.size());
+    assertFalse(memory.containsKey("x0"));
+    assertEquals(100, snapshot.size());
+    assertEquals(0, snapshot.get("x0"));
+  }
+}
@@ -0,0 +1,49 @@
+package sg.edu.nus.se.its.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SlotMemoryTest {
+
+  @Test
+  void test_VariableSlots() {
+    MemoryLayout layout = new MemoryLayout(new LinkedHashSet<>(List.of("x", "y")));
+    MemoryLayout other = new MemoryLayout(new LinkedHashSet<>(List.of("y")));
+    Variable y = new Variable("y", 1);
+
+    assertEquals(2, layout.slotOf(y));
+    assertEquals(0, other.slotOf(y));
+    assertEquals(2, layout.slotOf(y));
+    y.setPrimed(true);
+    assertEquals(3, layout.slotOf(y));
+    assertEquals(-1, layout.slotOf(new Variable("z", 1)));
+  }
+
+  @Test
+  void test_BoxedValues() {
+    MemoryLayout layout = new MemoryLayout(new LinkedHashSet<>(List.of("x", "y")));
+    SlotMemory memory = new SlotMemory(layout);
+    Integer value = 1000;
+    memory.put("x", value);
+    assertSame(value, memory.get("x"));
+
+    memory.setLong(2, 5000L);
+    Object boxed = memory.get("y");
+    assertEquals(5000L, boxed);
+    assertSame(boxed, memory.get("y"));
+
+    Memory snapshot = memory.snapshot();
+    memory.setInt(2, 7);
+    assertEquals(7, memory.get("y"));
+    assertEquals(5000L, snapshot.get("y"));
+
+    memory.moveValue(2, 0);
+    assertEquals(7, memory.get("x"));
+    assertNull(memory.get("y"));
+  }
+}
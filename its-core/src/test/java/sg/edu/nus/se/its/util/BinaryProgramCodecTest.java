@@ -0,0 +1,126 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.javatuples.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Tests the binary program model format.
+ */
+public class BinaryProgramCodecTest {
+
+  private static final Gson GSON = ExpressionTypeAdapterFactory.newGsonBuilder().create();
+
+  private static Program program() {
+    Program program = ProgramFixtures.generateProgram(3, 6);
+    ArrayList<Pair<String, String>> params = new ArrayList<>();
+    params.add(new Pair<>("int", "n"));
+    Function function = new Function("g", params, "void");
+    function.addLocation(-4, "negative location");
+    function.addLocation(300, "large location");
+    Variable primed = new Variable("n", 7);
+    primed.setPrimed(true);
+    function.addExpr(300, "n", new Operation("-", Arrays.asList(primed, new Constant("1", 7)),
+        7), 0);
+    function.addLocationTrans(-4, 300, null);
+    function.setEndloc(300);
+    program.addfnc(function);
+    return program;
+  }
+
+  private static void assertSameModel(Program expected, Program actual) {
+    assertEquals(JsonParser.parseString(GSON.toJson(expected)),
+        JsonParser.parseString(GSON.toJson(actual)));
+  }
+
+  @Test
+  void test_RoundTrip() throws IOException {
+    Program program = program();
+    program.getfnc("g").addExpr(300, "s", new Constant("\"h\u00e9llo\"", 8), 0);
+    byte[] model = BinaryProgramCodec.encode(program);
+    Program decoded = BinaryProgramCodec.decode(model);
+    assertSameModel(program, decoded);
+    assertTrue(model.length * 3 < GSON.toJson(program).length());
+
+    Function function = decoded.getfnc("g");
+    assertEquals(-4, function.getInitloc());
+    assertEquals(300, function.getEndloc());
+    assertEquals(Integer.valueOf(300), function.getTrans(-4, true));
+    assertNull(function.getTrans(-4, false));
+    assertTrue(((Variable) ((Operation) function.getExprs(300, new Variable("n"))).getArgs()
+        .get(0)).isPrimed());
+  }
+
+  @Test
+  void test_Files(@TempDir Path directory) throws IOException {
+    Program program = program();
+    Path json = directory.resolve("model.json");
+    Path binary = directory.resolve("model" + BinaryProgramCodec.FILE_EXTENSION);
+    assertTrue(TestUtils.storeProgramAsJsonFile(program, json.toString()));
+    BinaryProgramCodec.convertJsonToBinary(json, binary);
+    assertSameModel(program, TestUtils.loadProgramByFilePath(binary.toString()));
+
+    Path converted = directory.resolve("converted.json");
+    BinaryProgramCodec.convertBinaryToJson(binary, converted);
+    assertSameModel(program, TestUtils.loadProgramByFilePath(converted.toString()));
+  }
+
+  @Test
+  void test_LazyFunctions() throws IOException {
+    Program program = program();
+    byte[] model = BinaryProgramCodec.encode(program);
+    // break the function that is encoded last, which is only noticed when it is accessed
+    List<String> names = new ArrayList<>(program.getFncs().keySet());
+    String last = names.get(names.size() - 1);
+    model[model.length - 1] = (byte) 0x80;
+
+    Program decoded = BinaryProgramCodec.decode(model);
+    assertEquals(program.getFncs().keySet(), decoded.getFncs().keySet());
+    assertTrue(decoded.getFncs().containsKey(last));
+    String first = names.get(0);
+    Function function = decoded.getfnc(first);
+    assertSame(function, decoded.getFunctionForName(first));
+    assertEquals(program.getfnc(first).getLocations(), function.getLocations());
+    assertNull(decoded.getfnc("unknown"));
+    assertThrows(RuntimeException.class, () -> decoded.getfnc(last));
+
+    decoded.addfnc(program.getfnc(last));
+    assertSame(program.getfnc(last), decoded.getfnc(last));
+    assertSameModel(program, decoded);
+  }
+
+  @Test
+  void test_InvalidModel(@TempDir Path directory) throws IOException {
+    assertThrows(IOException.class, () -> BinaryProgramCodec.decode("{}".getBytes()));
+    // models of the first, sequential version are no longer supported
+    byte[] sequential = Base64.getDecoder().decode(
+        "SVRTTU9ERUwAAAABBwRtYWluA2ludAFuBGJvZHkEJHJldAErATEBAQECAgACAgMAAQIHBAUCBQQGBAMCAwQDBwQ=");
+    assertThrows(IOException.class, () -> BinaryProgramCodec.decode(sequential));
+    byte[] model = BinaryProgramCodec.encode(program());
+    assertThrows(IOException.class,
+        () -> BinaryProgramCodec.decode(Arrays.copyOf(model, model.length - 3)));
+    Path file = directory.resolve("empty" + BinaryProgramCodec.FILE_EXTENSION);
+    Files.write(file, new byte[0]);
+    assertThrows(IOException.class, () -> BinaryProgramCodec.read(file));
+  }
+}
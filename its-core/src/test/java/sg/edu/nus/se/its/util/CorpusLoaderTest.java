@@ -0,0 +1,140 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.ExpressionPool;
+import sg.edu.nus.se.its.model.Program;
+
+/**
+ * Tests the parallel loading of a corpus of models.
+ */
+public class CorpusLoaderTest {
+
+  private static final int SUBMISSIONS = 20;
+
+  /**
+   * Writes the submissions s0 to s19, alternately as JSON and binary models, with inputs for the
+   * even ones, and an invalid model.
+   */
+  private static void writeCorpus(Path models, Path inputs) throws IOException {
+    Files.createDirectories(models);
+    Files.createDirectories(inputs);
+    for (int i = 0; i < SUBMISSIONS; i++) {
+      Program program = ProgramFixtures.generateProgram(1 + i % 3, 4);
+      if (i % 2 == 0) {
+        assertTrue(TestUtils.storeProgramAsJsonFile(program,
+            models.resolve("s" + i + ".json").toString()));
+        Files.write(inputs.resolve("s" + i + ".in"),
+            (i + " 7\n").getBytes(StandardCharsets.UTF_8));
+      } else {
+        BinaryProgramCodec.write(program,
+            models.resolve("s" + i + BinaryProgramCodec.FILE_EXTENSION));
+      }
+    }
+    Files.write(models.resolve("invalid.json"), "{\"fncs\": [".getBytes(StandardCharsets.UTF_8));
+    Files.write(models.resolve("notes.txt"), "not a model".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void test_LoadDirectory(@TempDir Path directory) throws IOException {
+    Path models = directory.resolve("models");
+    Path inputs = directory.resolve("inputs");
+    writeCorpus(models, inputs);
+    List<CorpusLoader.Entry> entries = CorpusLoader.listDirectory(models, inputs);
+    assertEquals(SUBMISSIONS + 1, entries.size());
+
+    Map<String, CorpusLoader.LoadedModel> loaded = new HashMap<>();
+    CorpusLoader.Statistics statistics;
+    try (CorpusLoader loader = new CorpusLoader(3)) {
+      statistics = loader.load(entries, model -> loaded.put(model.getId(), model));
+    }
+    assertEquals(SUBMISSIONS + 1, statistics.getModels());
+    assertEquals(1, statistics.getFailures());
+    assertTrue(statistics.getBytes() > 0);
+    assertNotNull(loaded.get("invalid").getError());
+    assertNull(loaded.get("invalid").getProgram());
+
+    for (int i = 0; i < SUBMISSIONS; i++) {
+      CorpusLoader.LoadedModel model = loaded.get("s" + i);
+      assertNull(model.getError());
+      assertEquals(1 + i % 3, model.getProgram().getFncs().size());
+      assertNotNull(model.getProgram().getfnc("f0"));
+      if (i % 2 == 0) {
+        assertEquals(1, model.getInputs().size());
+        assertArrayEquals(new String[] {String.valueOf(i), "7"},
+            model.getInputs().get(0).getInputs());
+      } else {
+        assertTrue(model.getInputs().isEmpty());
+      }
+    }
+  }
+
+  @Test
+  void test_LoadManifest(@TempDir Path directory) throws IOException {
+    writeCorpus(directory.resolve("models"), directory.resolve("inputs"));
+    Path manifest = directory.resolve("corpus.tsv");
+    List<String> lines = new ArrayList<>(Arrays.asList("# id\tmodel\tinputs", ""));
+    for (int i = SUBMISSIONS - 1; i >= 0; i--) {
+      String model = "models/s" + i + (i % 2 == 0 ? ".json" : BinaryProgramCodec.FILE_EXTENSION);
+      lines.add(i % 2 == 0 ? "submission-" + i + "\t" + model + "\tinputs/s" + i + ".in"
+          : "submission-" + i + "\t" + model);
+    }
+    Files.write(manifest, lines, StandardCharsets.UTF_8);
+
+    List<CorpusLoader.Entry> entries = CorpusLoader.readManifest(manifest);
+    assertEquals(SUBMISSIONS, entries.size());
+    try (CorpusLoader loader = new CorpusLoader(2)) {
+      List<CorpusLoader.LoadedModel> models = loader.loadAll(entries);
+      for (int i = 0; i < SUBMISSIONS; i++) {
+        CorpusLoader.LoadedModel model = models.get(i);
+        int submission = SUBMISSIONS - 1 - i;
+        assertEquals("submission-" + submission, model.getId());
+        assertEquals(1 + submission % 3, model.getProgram().getFncs().size());
+        assertEquals(submission % 2 == 0 ? 1 : 0, model.getInputs().size());
+      }
+    }
+
+    Files.write(manifest, Arrays.asList("only-an-id"), StandardCharsets.UTF_8);
+    assertThrows(IOException.class, () -> CorpusLoader.readManifest(manifest));
+  }
+
+  @Test
+  void test_InternedExpressions(@TempDir Path directory) throws IOException {
+    Path models = directory.resolve("models");
+    writeCorpus(models, directory.resolve("inputs"));
+    List<CorpusLoader.Entry> entries = CorpusLoader.listDirectory(models, null);
+    ExpressionPool pool = new ExpressionPool();
+    List<CorpusLoader.LoadedModel> loaded;
+    try (CorpusLoader loader = new CorpusLoader(2, pool)) {
+      loaded = loader.loadAll(entries);
+    }
+    Map<String, Program> programs = new HashMap<>();
+    for (CorpusLoader.LoadedModel model : loaded) {
+      programs.put(model.getId(), model.getProgram());
+    }
+    // s0 is a JSON model and s3 a binary model of the same program
+    Expression json = programs.get("s0").getfnc("f0").getExprs(1).get(0).getValue1();
+    Expression binary = programs.get("s3").getfnc("f0").getExprs(1).get(0).getValue1();
+    assertTrue(json.isInterned());
+    assertSame(json, binary);
+    assertTrue(pool.size() > 0);
+  }
+}
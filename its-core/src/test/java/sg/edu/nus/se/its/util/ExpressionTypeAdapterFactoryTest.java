@@ -0,0 +1,55 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.alignment.VariableMapping;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Tests that the streaming de-/serialization of expressions is compatible with
+ * {@link JsonSerializerWithInheritance}.
+ */
+public class ExpressionTypeAdapterFactoryTest {
+
+  @Test
+  void test_WireCompatibility() {
+    Program program = ProgramFixtures.generateProgram(2, 5);
+    Variable primed = new Variable("y", 2);
+    primed.setPrimed(true);
+    program.getfnc("f1").addExpr(2, "z", primed, 0);
+    Gson legacy = new GsonBuilder()
+        .registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>())
+        .create();
+    Gson streaming = ExpressionTypeAdapterFactory.newGsonBuilder().create();
+
+    String json = legacy.toJson(program);
+    assertEquals(json, streaming.toJson(program));
+    // the untyped tuple fields valueArray and valueList do not survive a round trip
+    assertEquals(legacy.toJson(legacy.fromJson(json, Program.class)),
+        streaming.toJson(streaming.fromJson(json, Program.class)));
+
+    Program copy = streaming.fromJson(json, Program.class);
+    Operation operation = (Operation) copy.getfnc("f0").getExprs(1).get(0).getValue1();
+    assertEquals("*", operation.getName());
+    assertTrue(((Variable) copy.getfnc("f1").getExprs(2, new Variable("z"))).isPrimed());
+
+    VariableMapping mapping = new VariableMapping();
+    Map<Variable, Variable> variables = new HashMap<>();
+    variables.put(new Variable("x"), new Variable("y"));
+    mapping.add("main", variables);
+    Gson legacyMapping = new GsonBuilder().enableComplexMapKeySerialization()
+        .registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>())
+        .create();
+    assertEquals(legacyMapping.toJson(mapping), ExpressionTypeAdapterFactory.newGsonBuilder()
+        .enableComplexMapKeySerialization().create().toJson(mapping));
+  }
+}
@@ -0,0 +1,136 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the compilation cache and the process pool for C programs.
+ */
+public class NativeExecutionServiceTest {
+
+  private static final String SUM = "#include <stdio.h>\n"
+      + "int main() {\n"
+      + "  int n, s = 0;\n"
+      + "  scanf(\"%d\", &n);\n"
+      + "  for (int i = 0; i < n; i++) { s += i; }\n"
+      + "  printf(\"%d\\n\", s);\n"
+      + "  for (int i = 0; i < n * 10000; i++) { putchar('x'); }\n"
+      + "  return n < 0;\n"
+      + "}\n";
+
+  private static boolean hasGcc() {
+    try {
+      return new ProcessBuilder("gcc", "--version").start().waitFor() == 0;
+    } catch (IOException | InterruptedException e) {
+      return false;
+    }
+  }
+
+  @Test
+  void test_CachedBatchExecution() {
+    assumeTrue(hasGcc(), "gcc is not available");
+    try (NativeExecutionService service =
+        new NativeExecutionService(2, Duration.ofSeconds(10), Duration.ofSeconds(60))) {
+      List<NativeExecutionResult> results = service.executeAll(SUM, List.of("4", "10", "-1"));
+      assertEquals(3, results.size());
+      assertTrue(results.get(0).getStdout().startsWith("6\n"));
+      // the output exceeds the pipe buffer
+      assertEquals(100000, results.get(1).getStdout().length() - "45\n".length());
+      assertEquals(1, results.get(2).getExitCode());
+
+      assertTrue(service.execute(SUM, "3").isSuccess());
+      assertEquals(1, service.getCompilations());
+
+      RuntimeException error =
+          assertThrows(RuntimeException.class, () -> service.execute("int main( {", ""));
+      assertTrue(error.getMessage().startsWith("Compilation Error"));
+    }
+  }
+
+  @Test
+  void test_BinaryEviction() throws IOException {
+    assumeTrue(hasGcc(), "gcc is not available");
+    try (NativeExecutionService service =
+        new NativeExecutionService(2, Duration.ofSeconds(10), Duration.ofSeconds(60))) {
+      service.setMaxCachedBinaries(2);
+      for (int i = 0; i < 4; i++) {
+        assertEquals(i, service.execute("int main() { return " + i + "; }", "").getExitCode());
+      }
+      assertEquals(2, service.getCachedBinaries());
+      Path directory = service.compile("int main() { return 3; }").getParent();
+      try (Stream<Path> files = Files.list(directory)) {
+        assertEquals(2, files.filter(file -> file.toString().endsWith(".out")).count());
+      }
+      assertEquals(4, service.getCompilations());
+
+      // the evicted binaries are compiled again
+      assertEquals(0, service.execute("int main() { return 0; }", "").getExitCode());
+      assertEquals(5, service.getCompilations());
+      assertEquals(2, service.getCachedBinaries());
+    }
+  }
+
+  @Test
+  void test_OutputLimit() {
+    assumeTrue(hasGcc(), "gcc is not available");
+    String endless = "#include <stdio.h>\nint main() { for (;;) { putchar('x'); } }\n";
+    for (boolean forkServer : new boolean[] {false, true}) {
+      try (NativeExecutionService service =
+          new NativeExecutionService(2, Duration.ofSeconds(10), Duration.ofSeconds(60))) {
+        service.setForkServer(forkServer);
+        service.setOutputLimit(100_000);
+        NativeExecutionResult result = service.execute(endless, "");
+        assertTrue(result.isOutputLimitExceeded());
+        assertFalse(result.isTimedOut());
+        assertFalse(result.isSuccess());
+        assertEquals(100_000, result.getStdout().length());
+
+        NativeExecutionResult small = service.execute(SUM, "4");
+        assertTrue(small.isSuccess());
+        assertEquals(40002, small.getStdout().length());
+        assertEquals(service.isForkServer() ? 2 : 0, service.getForkedExecutions());
+      }
+    }
+  }
+
+  @Test
+  void test_ForkServer() {
+    assumeTrue(hasGcc() && System.getProperty("os.name").toLowerCase().contains("linux"),
+        "gcc on Linux is not available");
+    try (NativeExecutionService service =
+        new NativeExecutionService(2, Duration.ofSeconds(2), Duration.ofSeconds(60))) {
+      service.setForkServer(true);
+      List<NativeExecutionResult> results = service.executeAll(SUM, List.of("4", "10", "-1"));
+      assertEquals(3, service.getForkedExecutions());
+      assertTrue(results.get(0).getStdout().startsWith("6\n"));
+      assertEquals(100000, results.get(1).getStdout().length() - "45\n".length());
+      assertEquals(1, results.get(2).getExitCode());
+
+      NativeExecutionResult loop = service.execute("int main() { for (;;) {} }", "");
+      assertTrue(loop.isTimedOut());
+      assertTrue(service.execute(SUM, "3").isSuccess());
+
+      // the idle servers of all binaries are limited
+      for (int i = 0; i < 4; i++) {
+        String source = "int main() { return " + i + "; }";
+        assertEquals(i, service.executeAll(source, List.of("", "")).get(1).getExitCode());
+        assertTrue(service.getIdleForkServers() <= 2);
+      }
+      service.setMaxIdleForkServers(0);
+      assertEquals(0, service.getIdleForkServers());
+      assertTrue(service.execute(SUM, "3").isSuccess());
+      assertEquals(0, service.getIdleForkServers());
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package sg.edu.nus.se.its.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import sg.edu.nus.se.its.interpreter.AbstractInterpreter;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Memory;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Program models and a minimal interpreter shared by the tests.
+ */
+public class ProgramFixtures {
+
+  /**
+   * Minimal interpreter for integer arithmetic, the input is passed as the variable "n".
+   */
+  public static class IntegerInterpreter extends AbstractInterpreter {
+
+    @Override
+    protected void initializeMemory(Function function, Input input, Memory memory) {
+      memory.put("n", Integer.parseInt(input.getArgs()[0]));
+    }
+
+    @Override
+    public Object executeConstant(Constant constant, Memory memory) {
+      return Integer.parseInt(constant.getValue());
+    }
+
+    @Override
+    public Object executeOperation(Operation operation, Memory memory) {
+      int left = (Integer) execute(operation.getArgs().get(0), memory);
+      int right = (Integer) execute(operation.getArgs().get(1), memory);
+      switch (operation.getName()) {
+        case "+":
+          return left + right;
+        case "<":
+          return left < right;
+        default:
+          throw new RuntimeException("Unknown operation: " + operation.getName());
+      }
+    }
+  }
+
+  public static Variable var(String name) {
+    return new Variable(name);
+  }
+
+  public static Constant cons(String value) {
+    return new Constant(value, 0);
+  }
+
+  public static Operation op(String name, Expression... args) {
+    return new Operation(name, Arrays.asList(args), 0);
+  }
+
+  /**
+   * Creates a program that sums up the numbers 0..n-1.
+   */
+  public static Program sumProgram() {
+    return sumProgram(var("i"));
+  }
+
+  /**
+   * Creates a program that sums up n times the given summand, whose loop counter is "i".
+   */
+  public static Program sumProgram(Expression summand) {
+    Function function = new Function(Constants.DEFAULT_ENTRY_FUNCTION_NAME, new ArrayList<>(),
+        "int");
+    function.addType("i", "int");
+    function.addType("s", "int");
+    function.addType("n", "int");
+    function.addLocation(1, "init");
+    function.addLocation(2, "loop condition");
+    function.addLocation(3, "loop body");
+    function.addLocation(4, "return");
+    function.addExpr(1, "i", new Constant("0", 1), 0);
+    function.addExpr(1, "s", new Constant("0", 1), 0);
+    function.addExpr(2, Constants.VAR_COND, op("<", var("i"), var("n")), 0);
+    function.addExpr(3, "s", op("+", var("s"), summand), 0);
+    function.addExpr(3, "i", op("+", var("i"), new Constant("1", 3)), 0);
+    function.addExpr(4, Constants.VAR_RET, var("s"), 0);
+    function.addLocationTrans(1, 2, null);
+    function.addLocationTrans(2, 3, 4);
+    function.addLocationTrans(3, 2, null);
+    function.addLocationTrans(4, null, null);
+
+    Program program = new Program();
+    program.addfnc(function);
+    return program;
+  }
+
+  /**
+   * Generates a program with the given number of functions, each with a chain of locations whose
+   * blocks contain a few nested expressions.
+   */
+  public static Program generateProgram(int functions, int locations) {
+    Program program = new Program();
+    program.setImportStatements(new ArrayList<>(Arrays.asList("#include <stdio.h>")));
+    for (int f = 0; f < functions; f++) {
+      Function function = new Function("f" + f, new ArrayList<>(), "int");
+      function.addType("x", "int");
+      function.addType("y", "int");
+      for (int loc = 1; loc <= locations; loc++) {
+        function.addLocation(loc, "location " + loc);
+        Variable x = new Variable("x", loc);
+        Variable y = new Variable("y", loc);
+        Expression sum = new Operation("+", Arrays.asList(x, new Constant("1", loc)), loc);
+        function.addExpr(loc, "x", new Operation("*", Arrays.asList(sum, y), loc), 0);
+        function.addExpr(loc, "$cond",
+            new Operation("<", Arrays.asList(new Variable("x", loc), new Constant("100", loc)),
+                loc), 0);
+        function.addLocationTrans(loc, loc < locations ? loc + 1 : null, null);
+      }
+      program.addfnc(function);
+    }
+    return program;
+  }
+}
@@ -0,0 +1,48 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the execution of Python programs by long-lived workers.
+ */
+public class PythonWorkerPoolTest {
+
+  private static boolean hasPython() {
+    try {
+      return new ProcessBuilder("python3", "--version").start().waitFor() == 0;
+    } catch (IOException | InterruptedException e) {
+      return false;
+    }
+  }
+
+  @Test
+  void test_WorkersAreReused() {
+    assumeTrue(hasPython(), "python3 is not available");
+    try (PythonWorkerPool pool = new PythonWorkerPool(2, Duration.ofSeconds(2))) {
+      List<String> sources = new ArrayList<>();
+      for (int n = 0; n < 20; n++) {
+        sources.add("def f(n):\n  return sum(range(n))\nx = " + n + "\nprint(f(x))\n");
+      }
+      List<NativeExecutionResult> results = pool.executeAll(sources);
+      for (int n = 0; n < 20; n++) {
+        assertEquals(n * (n - 1) / 2 + "\n", results.get(n).getStdout());
+      }
+      assertTrue(pool.getStartedWorkers() <= 2);
+
+      // every program runs in a fresh namespace
+      assertEquals(1, pool.execute("print(x)").getExitCode());
+      assertEquals(3, pool.execute("import sys\nsys.exit(3)").getExitCode());
+      NativeExecutionResult loop = pool.execute("while True:\n  pass\n");
+      assertTrue(loop.isTimedOut());
+      assertEquals("ok\n", pool.execute("print('ok')").getStdout());
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sg.edu.nus.se.its.util.ProgramFixtures.op;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Tests the equivalence check of program models.
+ */
+public class TestUtilsTest {
+
+  private static Program program(Expression expression) {
+    Function function = new Function("main", new ArrayList<>(), "int");
+    function.addLocation(1, "body");
+    function.addExpr(1, "x", expression, 0);
+    function.addLocationTrans(1, null, null);
+    Program program = new Program();
+    program.addfnc(function);
+    return program;
+  }
+
+  @Test
+  void test_ProgramEquivalenceCheck() {
+    Variable a = new Variable("a");
+    Variable b = new Variable("b");
+    Variable c = new Variable("c");
+
+    // n-ary C operators are folded into binary operations
+    TestUtils.programEquivalenceCheck(program(op("+", op("+", a, b), c)),
+        program(op("+", a, b, c)));
+    TestUtils.programEquivalenceCheck(program(op("&&", op("&&", a, b), c)),
+        program(op("&&", a, b, c)));
+
+    // the Python operations are n-ary and are compared as they are
+    TestUtils.programEquivalenceCheck(program(op("And", a, b, c)), program(op("And", a, b, c)));
+    assertThrows(AssertionError.class, () -> TestUtils
+        .programEquivalenceCheck(program(op("And", op("And", a, b), c)), program(op("And", a, b,
+            c))));
+    assertThrows(AssertionError.class, () -> TestUtils
+        .programEquivalenceCheck(program(op("Add", op("Add", a, b), c)), program(op("Add", a, b,
+            c))));
+    // alphanumeric C symbols are not folded either
+    assertThrows(AssertionError.class, () -> TestUtils
+        .programEquivalenceCheck(program(op("in", op("in", a, b), c)), program(op("in", a, b,
+            c))));
+  }
+}
@@ -0,0 +1,99 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.javatuples.Pair;
+import org.javatuples.Triplet;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+import sg.edu.nus.se.its.repair.LocalRepair;
+
+/**
+ * Tests the compact de-/serialization of tuples and the compatibility with the legacy layout.
+ */
+public class TupleTypeAdapterFactoryTest {
+
+  private static final Gson LEGACY = ExpressionTypeAdapterFactory.newGsonBuilder().create();
+
+  private static final Gson COMPACT = TupleTypeAdapterFactory.GSON;
+
+  private static Program program() {
+    Program program = ProgramFixtures.generateProgram(2, 5);
+    ArrayList<Pair<String, String>> params = new ArrayList<>();
+    params.add(new Pair<>("int", "n"));
+    Function function = new Function("g", params, "int");
+    function.addLocation(1, "body");
+    function.addExpr(1, "$ret", new Variable("n", 1), 0);
+    program.addfnc(function);
+    return program;
+  }
+
+  @Test
+  void test_CompactProgram() {
+    Program program = program();
+    String legacy = LEGACY.toJson(program);
+    String compact = COMPACT.toJson(program);
+    assertTrue(compact.contains("\"params\":[[\"int\",\"n\"]]"));
+    assertTrue(compact.length() * 2 < legacy.length());
+
+    // both layouts are read into the same program
+    String expected = COMPACT.toJson(COMPACT.fromJson(legacy, Program.class));
+    assertEquals(compact, expected);
+    Program copy = COMPACT.fromJson(compact, Program.class);
+    assertEquals(compact, COMPACT.toJson(copy));
+    // the shared configuration writes the models like a dedicated one
+    assertEquals(compact, TupleTypeAdapterFactory.newGsonBuilder().create().toJson(program));
+    assertEquals(TupleTypeAdapterFactory.newGsonBuilder().setPrettyPrinting().create()
+        .toJson(program), TupleTypeAdapterFactory.toPrettyJson(program));
+    Operation operation = (Operation) copy.getfnc("f0").getExprs(1).get(0).getValue1();
+    assertEquals("*", operation.getName());
+    assertEquals("n", copy.getfnc("g").getParams().get(0).getValue1());
+  }
+
+  @Test
+  void test_LocalRepair() throws Exception {
+    Map<Variable, Variable> mapping = new HashMap<>();
+    mapping.put(new Variable("a"), new Variable("x"));
+    Expression incorrect = new Operation("-", Arrays.asList(new Variable("a", 3),
+        new Constant("1", 3)), 3);
+    LocalRepair repair = new LocalRepair(mapping, 2.0f,
+        new Triplet<>(new Variable("a", 3), incorrect, new Constant("0", 3)), "main",
+        new Pair<>(2, 4));
+    Gson legacy = ExpressionTypeAdapterFactory.newGsonBuilder()
+        .enableComplexMapKeySerialization().create();
+    Gson compact = TupleTypeAdapterFactory.newGsonBuilder()
+        .enableComplexMapKeySerialization().create();
+
+    String json = compact.toJson(repair);
+    assertTrue(json.contains("\"errorLocation\":[2,4]"));
+    for (String layout : Arrays.asList(json, legacy.toJson(repair))) {
+      LocalRepair copy = compact.fromJson(layout, LocalRepair.class);
+      assertEquals(json, compact.toJson(copy));
+      assertEquals(incorrect, copy.getRepairedVariable().getValue1());
+      assertEquals(Integer.valueOf(4), copy.getErrorLocation().getValue1());
+    }
+  }
+
+  @Test
+  void test_MalformedTuples() {
+    Pair<?, ?> pair = COMPACT.fromJson("{\"val1\":\"b\",\"valueList\":[\"a\",\"b\"]}", Pair.class);
+    assertNull(pair.getValue0());
+    assertEquals("b", pair.getValue1());
+    assertThrows(JsonParseException.class, () -> COMPACT.fromJson("[1]", Pair.class));
+    assertThrows(JsonParseException.class, () -> COMPACT.fromJson("[1,2,3]", Pair.class));
+  }
+}
@@ -0,0 +1,79 @@
+package sg.edu.nus.se.its.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import org.javatuples.Pair;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.se.its.model.Constant;
+import sg.edu.nus.se.its.model.Expression;
+import sg.edu.nus.se.its.model.Function;
+import sg.edu.nus.se.its.model.Operation;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.model.Variable;
+
+/**
+ * Tests the utility functions on program models.
+ */
+public class UtilFunctionsTest {
+
+  private static final Gson GSON = new GsonBuilder()
+      .registerTypeAdapter(Expression.class, new JsonSerializerWithInheritance<Expression>())
+      .create();
+
+  /**
+   * Deep copy via a Gson round trip, as UtilFunctions.deepCopyProgram was implemented before.
+   */
+  private static Program copyViaGson(Program program) {
+    return GSON.fromJson(GSON.toJson(program), Program.class);
+  }
+
+  @Test
+  void test_DeepCopyProgram() {
+    Program program = ProgramFixtures.generateProgram(2, 5);
+    Program copy = UtilFunctions.deepCopyProgram(program);
+
+    assertEquals(JsonParser.parseString(GSON.toJson(copyViaGson(program))),
+        JsonParser.parseString(GSON.toJson(copy)));
+    TestUtils.programEquivalenceCheck(program, copy);
+
+    Function function = program.getfnc("f0");
+    Function functionCopy = copy.getfnc("f0");
+    assertNotSame(function, functionCopy);
+    functionCopy.getExprs(1).get(0).getValue1().prime();
+    Operation original = (Operation) function.getExprs(1).get(0).getValue1();
+    Operation sum = (Operation) original.getArgs().get(0);
+    assertFalse(((Variable) sum.getArgs().get(0)).isPrimed());
+  }
+
+  @Test
+  void test_DeepCopyIsIndependent() {
+    Program program = ProgramFixtures.generateProgram(2, 5);
+    String json = GSON.toJson(program);
+    Program copy = program.deepCopy();
+
+    copy.getImportStatements().add("#include <math.h>");
+    Function function = copy.getfnc("f1");
+    function.getTypes().put("z", "double");
+    function.getParams().add(new Pair<>("z", "double"));
+    function.addLocation(6, "location 6");
+    function.addLocationTrans(5, 6, null);
+    function.addExpr(6, "z", new Constant("0", 6), 0);
+    function.getExprs(1).get(0).getValue1().prime();
+    function.replaceLocExpressions(2, new ArrayList<>());
+    copy.addfnc(new Function("g", new ArrayList<>(), "void"));
+
+    assertEquals(json, GSON.toJson(program));
+    assertNull(program.getfnc("g"));
+    assertEquals(5, program.getfnc("f1").getLocations().size());
+    assertEquals(2, program.getfnc("f1").getExprs(2).size());
+    assertNotEquals(json, GSON.toJson(copy));
+  }
+}
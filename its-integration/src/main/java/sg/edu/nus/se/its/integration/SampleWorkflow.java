@@ -15,8 +15,10 @@ import sg.edu.nus.se.its.errorlocalizer.BasicErrorLocalizer;
 import sg.edu.nus.se.its.errorlocalizer.ErrorLocalisation;
 import sg.edu.nus.se.its.errorlocalizer.ErrorLocation;
 import sg.edu.nus.se.its.feedback.Feedback;
+import sg.edu.nus.se.its.interpreter.CachingInterpreter;
 import sg.edu.nus.se.its.interpreter.Interpreter;
 import sg.edu.nus.se.its.interpreter.Interpreter4C;
+import sg.edu.nus.se.its.interpreter.ReferenceTraceCache;
 import sg.edu.nus.se.its.model.Input;
 import sg.edu.nus.se.its.model.Program;
 import sg.edu.nus.se.its.model.Variable;
@@ -31,6 +33,11 @@ import sg.edu.nus.se.its.util.TestUtils;
  */
 public class SampleWorkflow {
 
+  /**
+   * Traces of the reference programs, shared by all submissions.
+   */
+  private static final ReferenceTraceCache REFERENCE_TRACES = new ReferenceTraceCache(256L << 20);
+
   public static void main (String[] args) {
     System.out.println("Hello world");
     System.out.println("Hello world");
@@ -115,7 +122,9 @@ public class SampleWorkflow {
     System.out.println();
     System.out.println(">> Identifying error locations...");
 
-    Interpreter interpreter = new Interpreter4C(50000, Constants.DEFAULT_ENTRY_FUNCTION_NAME);
+    Interpreter interpreter = new CachingInterpreter(
+        new Interpreter4C(50000, Constants.DEFAULT_ENTRY_FUNCTION_NAME), REFERENCE_TRACES,
+        referenceProgram);
 
     BasicErrorLocalizer errorLocalizer = new BasicErrorLocalizer();
     ErrorLocalisation errorLocations = errorLocalizer.localizeErrors(submittedProgram,
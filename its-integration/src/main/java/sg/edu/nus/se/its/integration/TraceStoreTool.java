@@ -0,0 +1,67 @@
+package sg.edu.nus.se.its.integration;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import sg.edu.nus.se.its.interpreter.Interpreter;
+import sg.edu.nus.se.its.interpreter.Interpreter4C;
+import sg.edu.nus.se.its.interpreter.TraceStoreWriter;
+import sg.edu.nus.se.its.model.Input;
+import sg.edu.nus.se.its.model.Program;
+import sg.edu.nus.se.its.util.Constants;
+import sg.edu.nus.se.its.util.TestUtils;
+
+/**
+ * Command line tool that precomputes the traces of reference programs into a trace store, which
+ * the grading workers map with {@link sg.edu.nus.se.its.interpreter.TraceStore}.
+ *
+ * <p>Usage: {@code TraceStoreTool <store file> <reference program> <input file>... [--
+ * <reference program> <input file>...]...}, where a reference program is a JSON program model
+ * and an input file contains the whitespace-separated I/O inputs of one execution.
+ */
+public class TraceStoreTool {
+
+  /**
+   * Builds the trace store.
+   *
+   * @param args - store file, followed by groups of a reference program and its input files
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: TraceStoreTool <store file> <reference program> <input file>..."
+          + " [-- <reference program> <input file>...]...");
+      System.exit(1);
+    }
+
+    Interpreter interpreter = new Interpreter4C(50000, Constants.DEFAULT_ENTRY_FUNCTION_NAME);
+    TraceStoreWriter writer = new TraceStoreWriter();
+    int index = 1;
+    while (index < args.length) {
+      Program reference = TestUtils.loadProgramByFilePath(args[index++]);
+      System.out.println(">> Reference program: " + args[index - 1]);
+      while (index < args.length && !args[index].equals("--")) {
+        Input input = loadInput(new File(args[index++]));
+        writer.add(reference, input, interpreter.executeProgram(reference, input));
+        System.out.println(">> Input: " + input);
+      }
+      index++;
+    }
+
+    writer.write(Paths.get(args[0]));
+    System.out.println(">> Stored traces: " + writer.size());
+  }
+
+  private static Input loadInput(File file) throws FileNotFoundException {
+    List<String> inputs = new ArrayList<>();
+    try (Scanner reader = new Scanner(file)) {
+      while (reader.hasNext()) {
+        inputs.add(reader.next());
+      }
+    }
+    return new Input(inputs.toArray(new String[0]), null);
+  }
+}